@@ -0,0 +1,71 @@
+package com.example.todo.benchmark;
+
+import com.example.todo.TodoApplication;
+import com.example.todo.model.Task;
+import com.example.todo.repository.TaskRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TaskListRenderingBenchmark {
+
+    @Param({"100", "10000"})
+    public int storeSize;
+
+    @Param({"default", "prod"})
+    public String profile;
+
+    private ConfigurableApplicationContext context;
+    private MockMvc mockMvc;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        context = new SpringApplicationBuilder(TodoApplication.class)
+                .profiles(profile)
+                .properties("server.port=0", "spring.main.banner-mode=off", "logging.level.root=warn")
+                .run();
+        mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context).build();
+        TaskRepository taskRepository = context.getBean(TaskRepository.class);
+        for (int i = 0; i < storeSize; i++) {
+            taskRepository.saveTask(new Task(UUID.randomUUID().toString(), "Rendered task " + i, i % 2 == 0));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        TaskRepository taskRepository = context.getBean(TaskRepository.class);
+        for (Task task : taskRepository.findAll()) {
+            taskRepository.deleteById(task.getId());
+        }
+        context.close();
+    }
+
+    @Benchmark
+    public String renderFirstPage() throws Exception {
+        return mockMvc.perform(get("/tasks")).andReturn().getResponse().getContentAsString();
+    }
+
+    @Benchmark
+    public String renderLargestPage() throws Exception {
+        return mockMvc.perform(get("/tasks").param("size", "500")).andReturn().getResponse().getContentAsString();
+    }
+
+    @Benchmark
+    public String listTasksAsJson() throws Exception {
+        return mockMvc.perform(get("/api/tasks")).andReturn().getResponse().getContentAsString();
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.todo.benchmark;
+
+import com.example.todo.model.Task;
+import com.example.todo.model.TaskPage;
+import com.example.todo.repository.TaskRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(1)
+@State(Scope.Benchmark)
+public class TaskRepositoryBenchmark {
+
+    @Param({"1000", "100000"})
+    public int storeSize;
+
+    private TaskRepository taskRepository;
+    private String[] ids;
+
+    @Setup(Level.Trial)
+    public void fillStore() {
+        taskRepository = new TaskRepository();
+        ids = new String[storeSize];
+        for (int i = 0; i < storeSize; i++) {
+            ids[i] = UUID.randomUUID().toString();
+            taskRepository.saveTask(new Task(ids[i], "Benchmark task " + i, i % 2 == 0));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void clearStore() {
+        for (Task task : taskRepository.findAll()) {
+            taskRepository.deleteById(task.getId());
+        }
+    }
+
+    @Benchmark
+    public Task saveTask() {
+        String id = randomId();
+        return taskRepository.saveTask(new Task(id, "Updated " + id, ThreadLocalRandom.current().nextBoolean()));
+    }
+
+    @Benchmark
+    public Optional<Task> findById() {
+        return taskRepository.findById(randomId());
+    }
+
+    @Benchmark
+    public List<Task> findAll() {
+        return taskRepository.findAll();
+    }
+
+    @Benchmark
+    public TaskPage findPage() {
+        return taskRepository.findPage(randomId(), 50);
+    }
+
+    private String randomId() {
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+
+    @Threads(4)
+    public static class FourThreads extends TaskRepositoryBenchmark {
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.todo.benchmark;
+
+import com.example.todo.model.Task;
+import com.example.todo.repository.TaskRepository;
+import com.example.todo.service.TaskService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(1)
+@State(Scope.Benchmark)
+public class TaskServiceBenchmark {
+
+    @Param({"1000", "100000"})
+    public int storeSize;
+
+    private TaskRepository taskRepository;
+    private TaskService taskService;
+    private String[] completedIds;
+    private String[] pendingIds;
+
+    @Setup(Level.Trial)
+    public void fillStore() {
+        taskRepository = new TaskRepository();
+        taskService = new TaskService(taskRepository);
+        completedIds = new String[storeSize / 2];
+        pendingIds = new String[storeSize - completedIds.length];
+        for (int i = 0; i < completedIds.length; i++) {
+            completedIds[i] = UUID.randomUUID().toString();
+            taskRepository.saveTask(new Task(completedIds[i], "Completed task " + i, true));
+        }
+        for (int i = 0; i < pendingIds.length; i++) {
+            pendingIds[i] = UUID.randomUUID().toString();
+            taskRepository.saveTask(new Task(pendingIds[i], "Pending task " + i, false));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void clearStore() {
+        for (Task task : taskRepository.findAll()) {
+            taskRepository.deleteById(task.getId());
+        }
+    }
+
+    @Benchmark
+    public Task toggleTaskStatus() {
+        return taskService.toggleTaskStatus(pendingIds[ThreadLocalRandom.current().nextInt(pendingIds.length)]);
+    }
+
+    // Removes a completed task and puts it back, so the store size stays constant. It is put
+    // back around the service: creating it would fail when another thread got there first.
+    @Benchmark
+    public Task removeCompletedTask() {
+        String id = completedIds[ThreadLocalRandom.current().nextInt(completedIds.length)];
+        taskService.removeTask(id);
+        return taskRepository.saveTask(new Task(id, "Completed task", true));
+    }
+
+    @Benchmark
+    public Optional<String> removeUncompletedTask() {
+        return taskService.removeTask(pendingIds[ThreadLocalRandom.current().nextInt(pendingIds.length)]);
+    }
+
+    @Threads(4)
+    public static class FourThreads extends TaskServiceBenchmark {
+    }
+}
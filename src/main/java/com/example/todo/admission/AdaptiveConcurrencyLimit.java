@@ -0,0 +1,63 @@
+package com.example.todo.admission;
+
+/**
+ * A concurrency limit that adapts to latency, increasing additively and decreasing
+ * multiplicatively. Every response within the latency target lets the limit grow by
+ * 1/limit, about one per round of requests, as long as the limit is actually being used. A
+ * slower one cuts it by {@code backoff}, at most once per target latency, so one burst of slow
+ * responses counts once. Requests beyond the limit are refused rather than queued, which keeps
+ * the latency of the admitted ones near the target while the application is overloaded.
+ */
+final class AdaptiveConcurrencyLimit {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long targetNanos;
+    private final double backoff;
+    private double limit;
+    private int inFlight;
+    private long decreasedAt;
+
+    AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, long targetNanos, double backoff) {
+        if (minLimit < 1 || minLimit > initialLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("The concurrency limits must satisfy 1 <= min <= initial <= max");
+        }
+        if (backoff <= 0 || backoff >= 1) {
+            throw new IllegalArgumentException("The backoff must be between 0 and 1");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.targetNanos = targetNanos;
+        this.backoff = backoff;
+        this.limit = initialLimit;
+        this.decreasedAt = System.nanoTime() - targetNanos;
+    }
+
+    synchronized boolean tryAcquire() {
+        if (inFlight >= (int) limit) {
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    synchronized void release(long latencyNanos, long now) {
+        int concurrency = inFlight--;
+        if (latencyNanos > targetNanos) {
+            if (now - decreasedAt >= targetNanos) {
+                limit = Math.max(minLimit, limit * backoff);
+                decreasedAt = now;
+            }
+        } else if (concurrency * 2 >= limit) {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+
+    synchronized int limit() {
+        return (int) limit;
+    }
+
+    synchronized int inFlight() {
+        return inFlight;
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.todo.admission;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Sheds load once responses get slower than {@code todo.concurrency-limit.latency-target}.
+ * Requests beyond the {@link AdaptiveConcurrencyLimit} are answered with 503 at once instead of
+ * waiting for the ones in flight. Two paths are outside the limit. The event stream stays open
+ * for as long as a page does. Actuator is left out so the application can still be watched while
+ * it sheds load.
+ */
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(name = "todo.concurrency-limit.enabled", havingValue = "true")
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    static final String OVERLOADED_MESSAGE = "The server is busy, try again shortly";
+
+    private final AdaptiveConcurrencyLimit limit;
+    private final Counter rejected;
+
+    public ConcurrencyLimitFilter(@Value("${todo.concurrency-limit.initial-limit:100}") int initialLimit,
+                                  @Value("${todo.concurrency-limit.min-limit:10}") int minLimit,
+                                  @Value("${todo.concurrency-limit.max-limit:1000}") int maxLimit,
+                                  @Value("${todo.concurrency-limit.latency-target:250ms}") Duration latencyTarget,
+                                  @Value("${todo.concurrency-limit.backoff:0.9}") double backoff,
+                                  MeterRegistry meterRegistry) {
+        this.limit = new AdaptiveConcurrencyLimit(initialLimit, minLimit, maxLimit, latencyTarget.toNanos(), backoff);
+        this.rejected = RateLimitFilter.rejectedCounter(meterRegistry, "overloaded");
+        Gauge.builder("http.concurrency.limit", limit, AdaptiveConcurrencyLimit::limit)
+                .description("Requests allowed in flight at once")
+                .register(meterRegistry);
+        Gauge.builder("http.concurrency.in.flight", limit, AdaptiveConcurrencyLimit::inFlight)
+                .description("Requests in flight under the concurrency limit")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return path.equals("/tasks/events") || path.startsWith("/actuator/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (!limit.tryAcquire()) {
+            rejected.increment();
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, OVERLOADED_MESSAGE);
+            return;
+        }
+        long started = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            long now = System.nanoTime();
+            limit.release(now - started, now);
+        }
+    }
+}
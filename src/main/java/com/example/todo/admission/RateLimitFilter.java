@@ -0,0 +1,108 @@
+package com.example.todo.admission;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits how fast each client may change tasks, with a {@link TokenBucket} per client address:
+ * a client may send {@code burst} writes at once and {@code requests-per-second} on average after
+ * that, and is answered with 429 and Retry-After beyond it. Reads are never limited. Only the
+ * {@code max-clients} most recently seen addresses keep a bucket, so the limiter's own memory is
+ * bounded; a client whose bucket was dropped starts over with a full one.
+ * The address is the connection's, so behind a proxy {@code server.forward-headers-strategy} has
+ * to be set for it to be the client's.
+ */
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(name = "todo.rate-limit.enabled", havingValue = "true")
+@Order(Ordered.HIGHEST_PRECEDENCE + 2)
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    static final String REJECTED_COUNTER = "http.requests.rejected";
+    static final String RATE_LIMITED_MESSAGE = "Too many changes, slow down and try again";
+
+    private static final Set<String> READ_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+
+    private final double requestsPerSecond;
+    private final double burst;
+    private final Map<String, TokenBucket> buckets;
+    private final Counter rejected;
+
+    public RateLimitFilter(@Value("${todo.rate-limit.requests-per-second:10}") double requestsPerSecond,
+                           @Value("${todo.rate-limit.burst:20}") int burst,
+                           @Value("${todo.rate-limit.max-clients:10000}") int maxClients,
+                           MeterRegistry meterRegistry) {
+        if (requestsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("The rate limit needs a positive rate and a burst of at least 1");
+        }
+        this.requestsPerSecond = requestsPerSecond;
+        this.burst = burst;
+        this.buckets = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, TokenBucket> eldest) {
+                return size() > maxClients;
+            }
+        };
+        this.rejected = rejectedCounter(meterRegistry, "rate_limited");
+        Gauge.builder("http.rate.limit.clients", this, RateLimitFilter::clients)
+                .description("Client addresses with a rate limit bucket")
+                .register(meterRegistry);
+    }
+
+    static Counter rejectedCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder(REJECTED_COUNTER)
+                .description("Requests turned away before reaching the application")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    int clients() {
+        synchronized (buckets) {
+            return buckets.size();
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return READ_METHODS.contains(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long now = System.nanoTime();
+        long wait;
+        synchronized (buckets) {
+            wait = buckets.computeIfAbsent(request.getRemoteAddr(),
+                    address -> new TokenBucket(burst, requestsPerSecond, now)).take(now);
+        }
+        if (wait == 0) {
+            chain.doFilter(request, response);
+            return;
+        }
+        rejected.increment();
+        long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait + TimeUnit.SECONDS.toNanos(1) - 1));
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), RATE_LIMITED_MESSAGE);
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.todo.admission;
+
+// Holds up to capacity tokens and gains ratePerSecond of them continuously. Not thread-safe:
+// RateLimitFilter uses it under the lock of its bucket map.
+final class TokenBucket {
+
+    private final double capacity;
+    private final double tokensPerNano;
+    private double tokens;
+    private long refilledAt;
+
+    TokenBucket(double capacity, double ratePerSecond, long now) {
+        this.capacity = capacity;
+        this.tokensPerNano = ratePerSecond / 1_000_000_000.0;
+        this.tokens = capacity;
+        this.refilledAt = now;
+    }
+
+    // Takes a token and returns 0, or returns how many nanoseconds remain until one is available.
+    long take(long now) {
+        tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerNano);
+        refilledAt = now;
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return (long) Math.ceil((1 - tokens) / tokensPerNano);
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.todo.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Rendered responses of the task list endpoints, keyed by tenant and request. Every page keeps
+ * the version of its tenant's store it was rendered at and is only returned for that version,
+ * so a mutation invalidates exactly its own tenant's pages and nothing has to be tracked per
+ * task; tenants writing at once do not throw out each other's pages. A page of an outdated
+ * version is dropped when it is next asked for or replaced, and otherwise ages out: the least
+ * recently used pages are evicted beyond the configured number of entries.
+ */
+@Component
+@Profile("!reactive")
+public class RenderedPageCache {
+
+    public static final class Page {
+
+        private final long version;
+        private final long eventSequence;
+        private final String contentType;
+        private final byte[] body;
+
+        public Page(long version, long eventSequence, String contentType, byte[] body) {
+            this.version = version;
+            this.eventSequence = eventSequence;
+            this.contentType = contentType;
+            this.body = body;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        // The tenant's last event when the page was rendered; a page showing the list resumes
+        // its event stream from there.
+        public long getEventSequence() {
+            return eventSequence;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+    }
+
+    private final int maxEntries;
+    private final Map<String, Page> pages;
+
+    public RenderedPageCache(@Value("${todo.page-cache.max-entries:256}") int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.pages = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Page> eldest) {
+                return size() > RenderedPageCache.this.maxEntries;
+            }
+        };
+    }
+
+    public synchronized Page get(String key, long version) {
+        Page page = pages.get(key);
+        if (page == null || page.getVersion() == version) {
+            return page;
+        }
+        if (page.getVersion() < version) {
+            pages.remove(key);
+        }
+        return null;
+    }
+
+    // A page rendered at an older version than the cached one is already stale and dropped.
+    public synchronized void put(String key, Page page) {
+        Page cached = pages.get(key);
+        if (cached == null || cached.getVersion() <= page.getVersion()) {
+            pages.put(key, page);
+        }
+    }
+
+    public synchronized void remove(String key) {
+        pages.remove(key);
+    }
+
+    public synchronized int size() {
+        return pages.size();
+    }
+}
@@ -0,0 +1,234 @@
+package com.example.todo.cache;
+
+import com.example.todo.events.TaskEventBus;
+import com.example.todo.events.TaskEventLog;
+import com.example.todo.service.TaskService;
+import com.example.todo.tenant.TenantContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Serves {@code GET /tasks}, {@code /tasks/search} and {@code /api/tasks} from
+ * {@link RenderedPageCache} while the store version is unchanged, and answers a matching
+ * If-None-Match with 304 before anything is rendered. The version is captured before the
+ * request is handled, so a cached page is never older than the version it is stored under.
+ * Versions restart with the process, so the ETag and the cache key also carry the epoch of
+ * {@link TaskService#versionTag}: a client's tag from before a restart is not mistaken for
+ * the page that the restarted store has at the same version.
+ * Pages and versions are per tenant, so this filter runs after the tenant is resolved.
+ * A rendered list tells its script which event to resume the live updates from; a page whose
+ * event is no longer buffered would make the script reload it over and over, so it is rendered
+ * anew instead of being served.
+ * <p>
+ * A page that is not cached goes to the client as it renders, so Thymeleaf's partial output
+ * reaches the browser before the template is finished; the filter keeps a copy of the bytes on
+ * the way through and only stores it once the render completed with 200.
+ */
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(name = "todo.page-cache.enabled", havingValue = "true", matchIfMissing = true)
+public class RenderedPageCacheFilter extends OncePerRequestFilter {
+
+    static final String CACHE_COUNTER = "tasks.page.cache";
+
+    private static final Set<String> CACHED_PATHS = Set.of("/tasks", "/tasks/search", "/api/tasks");
+
+    private final TaskService taskService;
+    private final RenderedPageCache cache;
+    private final TaskEventBus taskEventBus;
+    private final Counter hits;
+    private final Counter misses;
+
+    public RenderedPageCacheFilter(TaskService taskService, RenderedPageCache cache, TaskEventBus taskEventBus,
+                                   MeterRegistry meterRegistry) {
+        this.taskService = taskService;
+        this.cache = cache;
+        this.taskEventBus = taskEventBus;
+        this.hits = counter(meterRegistry, "hit");
+        this.misses = counter(meterRegistry, "miss");
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder(CACHE_COUNTER)
+                .description("Task list requests served from or rendered into the page cache")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"GET".equals(request.getMethod()) || !CACHED_PATHS.contains(path(request));
+    }
+
+    private static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    // Parameters in name order, so the same page requested with reordered parameters is one entry;
+    // encoded, so no crafted value can produce the key of a different request.
+    private String key(HttpServletRequest request) {
+        StringBuilder key = new StringBuilder(taskService.epoch()).append(' ').append(TenantContext.current())
+                .append(' ').append(path(request));
+        new TreeMap<>(request.getParameterMap()).forEach((name, values) -> {
+            for (String value : values) {
+                key.append(key.indexOf("?") < 0 ? '?' : '&').append(URLEncoder.encode(name, StandardCharsets.UTF_8))
+                        .append('=').append(URLEncoder.encode(value, StandardCharsets.UTF_8));
+            }
+        });
+        return key.toString();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long version = taskService.version();
+        // Captured before the page is rendered, so the page resumes from this event or a later one.
+        TaskEventLog events = taskEventBus.log(TenantContext.current());
+        long eventSequence = events.lastSequence();
+        String etag = taskService.versionTag(version);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        if (etag.equals(request.getHeader(HttpHeaders.IF_NONE_MATCH))) {
+            response.setHeader(HttpHeaders.ETAG, etag);
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        String key = key(request);
+        RenderedPageCache.Page page = cache.get(key, version);
+        if (page != null && !events.isBuffered(page.getEventSequence())) {
+            cache.remove(key);
+            page = null;
+        }
+        if (page != null) {
+            hits.increment();
+            response.setHeader(HttpHeaders.ETAG, etag);
+            response.setContentType(page.getContentType());
+            response.setContentLength(page.getBody().length);
+            response.getOutputStream().write(page.getBody());
+            return;
+        }
+
+        misses.increment();
+        CopyingResponse copying = new CopyingResponse(response, etag);
+        try {
+            chain.doFilter(request, copying);
+        } finally {
+            copying.flushWriter();
+        }
+        copying.tag();
+        if (copying.getStatus() == HttpServletResponse.SC_OK && !request.isAsyncStarted()) {
+            cache.put(key, new RenderedPageCache.Page(version, eventSequence, copying.getContentType(),
+                    copying.copy.toByteArray()));
+        }
+    }
+
+    // Writes the body straight through to the response and keeps a copy for the cache. The ETag
+    // goes out with the headers, when the body is first asked for, and only on a 200 that does
+    // not carry its own.
+    private static final class CopyingResponse extends HttpServletResponseWrapper {
+
+        private final String etag;
+        private final ByteArrayOutputStream copy = new ByteArrayOutputStream();
+        private ServletOutputStream outputStream;
+        private PrintWriter writer;
+
+        CopyingResponse(HttpServletResponse response, String etag) {
+            super(response);
+            this.etag = etag;
+        }
+
+        void tag() {
+            if (!isCommitted() && getStatus() == HttpServletResponse.SC_OK && !containsHeader(HttpHeaders.ETAG)) {
+                setHeader(HttpHeaders.ETAG, etag);
+            }
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (writer != null) {
+                throw new IllegalStateException("getWriter() has already been called for this response");
+            }
+            return stream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                if (outputStream != null) {
+                    throw new IllegalStateException("getOutputStream() has already been called for this response");
+                }
+                writer = new PrintWriter(new OutputStreamWriter(stream(), getCharacterEncoding()));
+            }
+            return writer;
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            flushWriter();
+            super.flushBuffer();
+        }
+
+        void flushWriter() {
+            if (writer != null) {
+                writer.flush();
+            }
+        }
+
+        private ServletOutputStream stream() throws IOException {
+            if (outputStream == null) {
+                tag();
+                ServletOutputStream target = super.getOutputStream();
+                outputStream = new ServletOutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        target.write(b);
+                        copy.write(b);
+                    }
+
+                    @Override
+                    public void write(byte[] bytes, int offset, int length) throws IOException {
+                        target.write(bytes, offset, length);
+                        copy.write(bytes, offset, length);
+                    }
+
+                    @Override
+                    public void flush() throws IOException {
+                        target.flush();
+                    }
+
+                    @Override
+                    public boolean isReady() {
+                        return target.isReady();
+                    }
+
+                    @Override
+                    public void setWriteListener(WriteListener writeListener) {
+                        target.setWriteListener(writeListener);
+                    }
+                };
+            }
+            return outputStream;
+        }
+    }
+}
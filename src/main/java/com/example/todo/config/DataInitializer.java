@@ -1,7 +1,8 @@
 package com.example.todo.config;
 
 import com.example.todo.model.Task;
-import com.example.todo.repository.TaskRepository;
+import com.example.todo.repository.TaskStore;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -11,12 +12,14 @@ import java.util.UUID;
 @Configuration
 public class DataInitializer {
 
+    // A follower gets its tasks from the leader, so sample tasks would only diverge from it.
     @Bean
-    public CommandLineRunner initData(TaskRepository taskRepository) {
+    public CommandLineRunner initData(TaskStore taskStore,
+                                      @Value("${todo.replication.role:none}") String replicationRole) {
         return args -> {
-            if (taskRepository.count() == 0) {
-                taskRepository.saveTask(new Task(UUID.randomUUID().toString(), "Eat", false));
-                taskRepository.saveTask(new Task(UUID.randomUUID().toString(), "Wake up", true));
+            if (taskStore.count() == 0 && !"follower".equals(replicationRole)) {
+                taskStore.saveTask(new Task(UUID.randomUUID().toString(), "Eat", false));
+                taskStore.saveTask(new Task(UUID.randomUUID().toString(), "Wake up", true));
             }
         };
     }
@@ -0,0 +1,46 @@
+package com.example.todo.config;
+
+import com.example.todo.repository.TaskStore;
+import com.example.todo.tenant.TenantContext;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.function.ToLongFunction;
+
+@Configuration
+public class MetricsConfig {
+
+    // Gauges read the store's maintained counters, so scraping never scans the store. They
+    // cover all tenants; tenants are not tags, so their number does not grow the series count.
+    @Bean
+    public MeterBinder taskStoreMetrics(TaskStore taskStore) {
+        return registry -> {
+            Gauge.builder("tasks.stored", taskStore, TaskStore::countAllTenants)
+                    .description("Number of tasks in the store")
+                    .register(registry);
+            Gauge.builder("tasks.stored.by.status", taskStore,
+                            store -> sumOverTenants(store, s -> s.countByCompleted(true)))
+                    .description("Number of tasks in the store by completion status")
+                    .tag("status", "completed")
+                    .register(registry);
+            Gauge.builder("tasks.stored.by.status", taskStore,
+                            store -> sumOverTenants(store, s -> s.countByCompleted(false)))
+                    .description("Number of tasks in the store by completion status")
+                    .tag("status", "pending")
+                    .register(registry);
+            Gauge.builder("tasks.tenants", taskStore, store -> store.tenants().size())
+                    .description("Number of tenants with a partition in the store")
+                    .register(registry);
+        };
+    }
+
+    private static double sumOverTenants(TaskStore store, ToLongFunction<TaskStore> counter) {
+        long sum = 0;
+        for (String tenant : store.tenants()) {
+            sum += TenantContext.callAs(tenant, () -> counter.applyAsLong(store));
+        }
+        return sum;
+    }
+}
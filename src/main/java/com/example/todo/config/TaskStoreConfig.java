@@ -0,0 +1,48 @@
+package com.example.todo.config;
+
+import com.example.todo.repository.ColdTaskSegment;
+import com.example.todo.repository.CompactTaskStore;
+import com.example.todo.repository.JdbcTaskStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Configuration
+public class TaskStoreConfig {
+
+    // The in-memory TaskRepository is picked up by component scanning unless another
+    // store type is configured.
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "todo.store.type", havingValue = "jdbc")
+    public JdbcTaskStore jdbcTaskStore(@Value("${todo.store.jdbc.url:jdbc:h2:file:./data/tasks}") String url,
+                                       @Value("${todo.store.jdbc.username:sa}") String username,
+                                       @Value("${todo.store.jdbc.password:}") String password,
+                                       @Value("${todo.store.jdbc.max-connections:10}") int maxConnections,
+                                       @Value("${todo.tenants.max-tasks:0}") long maxTasksPerTenant,
+                                       @Value("${todo.store.max-tasks:0}") long maxTasks) {
+        return new JdbcTaskStore(url, username, password, maxConnections, maxTasksPerTenant, maxTasks);
+    }
+
+    // In-memory store with a dense layout, for task counts where TaskRepository's objects per
+    // task take too much heap.
+    @Bean
+    @ConditionalOnProperty(name = "todo.store.type", havingValue = "compact")
+    public CompactTaskStore compactTaskStore(@Value("${todo.tenants.max-tasks:0}") long maxTasksPerTenant,
+                                             @Value("${todo.store.max-tasks:0}") long maxTasks) {
+        return new CompactTaskStore(maxTasksPerTenant, maxTasks);
+    }
+
+    // Disk tier for completed tasks of the in-memory store.
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "todo.store.cold.enabled", havingValue = "true")
+    public ColdTaskSegment coldTaskSegment(@Value("${todo.store.cold.directory:data}") Path directory,
+                                           @Value("${todo.store.cold.max-hot-completed:10000}") int maxHotCompleted,
+                                           @Value("${todo.store.cold.spill-after:10m}") Duration spillAfter,
+                                           @Value("${todo.store.cold.cache-size:1024}") int cacheSize) {
+        return new ColdTaskSegment(directory, maxHotCompleted, spillAfter, cacheSize);
+    }
+}
@@ -0,0 +1,226 @@
+package com.example.todo.controller;
+
+import com.example.todo.model.Task;
+import com.example.todo.model.TaskBatchResult;
+import com.example.todo.model.TaskPage;
+import com.example.todo.repository.TaskCapacityExceededException;
+import com.example.todo.repository.TaskQuotaExceededException;
+import com.example.todo.repository.TaskVersionConflictException;
+import com.example.todo.service.TaskService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@RestController
+@Profile("!reactive")
+@RequestMapping("/api/tasks")
+public class TaskApiController {
+
+    static final int MAX_BATCH_SIZE = 10_000;
+
+    @Autowired
+    private TaskService taskService;
+
+    // The ETag is the store version captured before reading, so it can only be older than
+    // the data it is sent with; a matching If-None-Match is answered before any lookup. The
+    // version restarts with the process, so the tag carries the process's epoch as well.
+    @GetMapping
+    public ResponseEntity<TaskPage> getTasks(@RequestParam Optional<String> cursor,
+                                             @RequestParam Optional<Integer> size,
+                                             @RequestParam Optional<String> status,
+                                             WebRequest request) {
+        if (request.checkNotModified(etag())) {
+            return null;
+        }
+        int pageSize = TaskController.pageSize(size);
+        Optional<Boolean> completed = status.flatMap(TaskController::parseStatus);
+        TaskPage page = completed
+                .map(c -> taskService.findByCompleted(c, cursor.orElse(null), pageSize))
+                .orElseGet(() -> taskService.findPage(cursor.orElse(null), pageSize));
+        return ResponseEntity.ok(page);
+    }
+
+    // A single task is tagged with its own version, which If-Match on writes refers to.
+    @GetMapping("/{id}")
+    public ResponseEntity<?> getTask(@PathVariable String id, WebRequest request) {
+        Optional<Task> task = taskService.findById(id);
+        if (task.isEmpty()) {
+            return error(HttpStatus.NOT_FOUND, TaskService.TASK_NOT_FOUND);
+        }
+        if (request.checkNotModified(etag(task.get()))) {
+            return null;
+        }
+        return ResponseEntity.ok(task.get());
+    }
+
+    @PostMapping
+    public ResponseEntity<?> createTask(@RequestBody Task task) {
+        Optional<String> invalid = TaskService.descriptionError(task.getDescription());
+        if (invalid.isPresent()) {
+            return error(HttpStatus.BAD_REQUEST, invalid.get());
+        }
+        Task created;
+        try {
+            created = taskService.createTask(task);
+        } catch (TaskVersionConflictException e) {
+            return alreadyExists(e);
+        } catch (TaskQuotaExceededException e) {
+            return error(HttpStatus.FORBIDDEN, TaskService.TASK_QUOTA_EXCEEDED);
+        } catch (TaskCapacityExceededException e) {
+            return error(HttpStatus.INSUFFICIENT_STORAGE, TaskService.TASK_CAPACITY_EXCEEDED);
+        }
+        return ResponseEntity.created(ServletUriComponentsBuilder.fromCurrentRequest()
+                        .path("/{id}").buildAndExpand(created.getId()).toUri())
+                .body(created);
+    }
+
+    // The expected version comes from If-Match (412 on mismatch) or else from the body's
+    // version (409 with the current task on mismatch); without either the task is overwritten.
+    @PutMapping("/{id}")
+    public ResponseEntity<?> updateTask(@PathVariable String id, @RequestBody Task task,
+                                        @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) Optional<String> ifMatch) {
+        Optional<String> invalid = TaskService.descriptionError(task.getDescription());
+        if (invalid.isPresent()) {
+            return error(HttpStatus.BAD_REQUEST, invalid.get());
+        }
+        task.setId(id);
+        Optional<Long> expectedVersion = ifMatch.flatMap(TaskApiController::parseVersion);
+        expectedVersion.ifPresent(task::setVersion);
+        try {
+            Task updated = taskService.updateTask(task);
+            return ResponseEntity.ok().eTag(etag(updated)).body(updated);
+        } catch (TaskVersionConflictException e) {
+            return conflict(e, expectedVersion.isPresent());
+        } catch (TaskQuotaExceededException e) {
+            return error(HttpStatus.FORBIDDEN, TaskService.TASK_QUOTA_EXCEEDED);
+        } catch (TaskCapacityExceededException e) {
+            return error(HttpStatus.INSUFFICIENT_STORAGE, TaskService.TASK_CAPACITY_EXCEEDED);
+        }
+    }
+
+    @PostMapping("/{id}/toggle")
+    public ResponseEntity<?> toggleTaskStatus(@PathVariable String id,
+                                              @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) Optional<String> ifMatch) {
+        Optional<Long> expectedVersion = ifMatch.flatMap(TaskApiController::parseVersion);
+        try {
+            Task toggled = expectedVersion
+                    .map(version -> taskService.toggleTaskStatus(id, version))
+                    .orElseGet(() -> taskService.toggleTaskStatus(id));
+            return ResponseEntity.ok().eTag(etag(toggled)).body(toggled);
+        } catch (IllegalArgumentException e) {
+            return error(HttpStatus.NOT_FOUND, e.getMessage());
+        } catch (TaskVersionConflictException e) {
+            return conflict(e, true);
+        }
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<?> deleteTask(@PathVariable String id) {
+        Optional<String> error = taskService.removeTask(id);
+        if (error.isEmpty()) {
+            return ResponseEntity.noContent().build();
+        }
+        HttpStatus status = TaskService.TASK_NOT_FOUND.equals(error.get()) ? HttpStatus.NOT_FOUND : HttpStatus.CONFLICT;
+        return error(status, error.get());
+    }
+
+    // Invalid items are reported in place; all valid ones are created in one repository call,
+    // or none of them when they do not fit in the tenant's quota.
+    @PostMapping("/batch")
+    public ResponseEntity<?> createTasks(@RequestBody List<Task> tasks) {
+        if (tasks.size() > MAX_BATCH_SIZE) {
+            return error(HttpStatus.PAYLOAD_TOO_LARGE, "Batch size must not exceed " + MAX_BATCH_SIZE);
+        }
+        List<Task> valid = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            if (TaskService.descriptionError(task.getDescription()).isEmpty()) {
+                valid.add(task);
+            }
+        }
+        try {
+            taskService.createTasks(valid);
+        } catch (TaskVersionConflictException e) {
+            return alreadyExists(e);
+        } catch (TaskQuotaExceededException e) {
+            return error(HttpStatus.FORBIDDEN, TaskService.TASK_QUOTA_EXCEEDED);
+        } catch (TaskCapacityExceededException e) {
+            return error(HttpStatus.INSUFFICIENT_STORAGE, TaskService.TASK_CAPACITY_EXCEEDED);
+        }
+        List<TaskBatchResult> results = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            results.add(TaskService.descriptionError(task.getDescription())
+                    .map(error -> TaskBatchResult.failure(task.getId(), error))
+                    .orElseGet(() -> TaskBatchResult.success(task)));
+        }
+        return ResponseEntity.ok(results);
+    }
+
+    @PostMapping("/batch/toggle")
+    public ResponseEntity<?> toggleTasks(@RequestBody List<String> ids) {
+        if (ids.size() > MAX_BATCH_SIZE) {
+            return error(HttpStatus.PAYLOAD_TOO_LARGE, "Batch size must not exceed " + MAX_BATCH_SIZE);
+        }
+        return ResponseEntity.ok(taskService.toggleAll(ids));
+    }
+
+    @DeleteMapping("/completed")
+    public Map<String, Integer> deleteCompletedTasks() {
+        return Map.of("removed", taskService.removeCompleted());
+    }
+
+    private String etag() {
+        return taskService.versionTag(taskService.version());
+    }
+
+    static String etag(Task task) {
+        return "\"" + task.getVersion() + "\"";
+    }
+
+    // Empty for "*", which matches any version; a tag that is not a task version matches none.
+    static Optional<Long> parseVersion(String ifMatch) {
+        String tag = ifMatch.trim();
+        if (tag.equals("*")) {
+            return Optional.empty();
+        }
+        if (tag.startsWith("W/")) {
+            tag = tag.substring(2);
+        }
+        try {
+            long version = Long.parseLong(tag.replace("\"", ""));
+            return Optional.of(version > 0 ? version : Long.MAX_VALUE);
+        } catch (NumberFormatException e) {
+            return Optional.of(Long.MAX_VALUE);
+        }
+    }
+
+    private static ResponseEntity<?> conflict(TaskVersionConflictException e, boolean precondition) {
+        if (precondition) {
+            return error(HttpStatus.PRECONDITION_FAILED, TaskService.TASK_VERSION_CONFLICT);
+        }
+        return e.getCurrent()
+                .<ResponseEntity<?>>map(current -> ResponseEntity.status(HttpStatus.CONFLICT)
+                        .body(Map.of("error", TaskService.TASK_VERSION_CONFLICT, "task", current)))
+                .orElseGet(() -> error(HttpStatus.NOT_FOUND, TaskService.TASK_NOT_FOUND));
+    }
+
+    private static ResponseEntity<?> alreadyExists(TaskVersionConflictException e) {
+        return e.getCurrent()
+                .<ResponseEntity<?>>map(current -> ResponseEntity.status(HttpStatus.CONFLICT)
+                        .body(Map.of("error", TaskService.TASK_ALREADY_EXISTS, "task", current)))
+                .orElseGet(() -> error(HttpStatus.CONFLICT, TaskService.TASK_ALREADY_EXISTS));
+    }
+
+    private static ResponseEntity<?> error(HttpStatus status, String message) {
+        return ResponseEntity.status(status).body(Map.of("error", message));
+    }
+}
@@ -1,54 +1,155 @@
 package com.example.todo.controller;
 
+import com.example.todo.events.TaskEventBus;
 import com.example.todo.model.Task;
+import com.example.todo.model.TaskPage;
+import com.example.todo.repository.TaskCapacityExceededException;
+import com.example.todo.repository.TaskQuotaExceededException;
+import com.example.todo.repository.TaskVersionConflictException;
 import com.example.todo.service.TaskService;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.validation.BindingResult;
-import java.util.List;
 import java.util.Optional;
 
 @Controller
+@Profile("!reactive")
 public class TaskController {
 
+    static final int DEFAULT_PAGE_SIZE = 50;
+    static final int MAX_PAGE_SIZE = 500;
+
     @Autowired
     private TaskService taskService;
 
+    @Autowired
+    private TaskEventBus taskEventBus;
+
     @GetMapping("/tasks")
-    public String getTasks(@RequestParam Optional<String> error, Model model) {
-        List<Task> tasks = taskService.findAll();
-        if(tasks.isEmpty()) {
+    public String getTasks(@RequestParam Optional<String> error,
+                           @RequestParam Optional<String> cursor,
+                           @RequestParam Optional<Integer> size,
+                           @RequestParam Optional<String> status,
+                           Model model) {
+        // Captured before reading, so the page's live updates start no later than its data
+        long eventSequence = taskEventBus.lastSequence();
+        long completedCount = taskService.countByCompleted(true);
+        long pendingCount = taskService.countByCompleted(false);
+        if(completedCount + pendingCount == 0) {
             return "noTasks";
         }
-        model.addAttribute("tasks", tasks);
+        int pageSize = pageSize(size);
+        Optional<Boolean> completed = status.flatMap(TaskController::parseStatus);
+        TaskPage page = completed
+                .map(c -> taskService.findByCompleted(c, cursor.orElse(null), pageSize))
+                .orElseGet(() -> taskService.findPage(cursor.orElse(null), pageSize));
+        model.addAttribute("tasks", page.getTasks());
+        model.addAttribute("nextCursor", page.getNextCursor());
+        model.addAttribute("pageSize", pageSize);
+        model.addAttribute("paged", cursor.isPresent());
+        model.addAttribute("status", completed.map(c -> c ? "completed" : "pending").orElse(null));
+        model.addAttribute("completedCount", completedCount);
+        model.addAttribute("pendingCount", pendingCount);
+        model.addAttribute("eventId", taskEventBus.eventId(eventSequence));
         error.ifPresent(s -> model.addAttribute("error", s));
         return "taskList";
     }
 
+    @GetMapping("/tasks/search")
+    public String searchTasks(@RequestParam String q,
+                              @RequestParam Optional<String> cursor,
+                              @RequestParam Optional<Integer> size,
+                              Model model) {
+        long eventSequence = taskEventBus.lastSequence();
+        int pageSize = pageSize(size);
+        TaskPage page = taskService.search(q, cursor.orElse(null), pageSize);
+        model.addAttribute("tasks", page.getTasks());
+        model.addAttribute("nextCursor", page.getNextCursor());
+        model.addAttribute("pageSize", pageSize);
+        model.addAttribute("paged", cursor.isPresent());
+        model.addAttribute("query", q);
+        model.addAttribute("completedCount", taskService.countByCompleted(true));
+        model.addAttribute("pendingCount", taskService.countByCompleted(false));
+        model.addAttribute("eventId", taskEventBus.eventId(eventSequence));
+        return "taskList";
+    }
+
+    @PostMapping("/task/delete-completed")
+    public String deleteCompletedTasks() {
+        taskService.removeCompleted();
+        return "redirect:/tasks";
+    }
+
+    static int pageSize(Optional<Integer> size) {
+        return Math.max(1, Math.min(size.orElse(DEFAULT_PAGE_SIZE), MAX_PAGE_SIZE));
+    }
+
+    static Optional<Boolean> parseStatus(String status) {
+        switch (status) {
+            case "completed":
+                return Optional.of(true);
+            case "pending":
+                return Optional.of(false);
+            default:
+                return Optional.empty();
+        }
+    }
+
     @GetMapping("/tasks/new")
     public String showTasksForm(Model model) {
         model.addAttribute("task", new Task());
         return "taskForm";
     }
 
+    // A description too long to store is answered with 400 and a full store with 507, both with
+    // the form, so the description is not lost.
     @PostMapping("/task/save")
-    public String saveTask(@ModelAttribute Task task, BindingResult result) {
+    public String saveTask(@ModelAttribute Task task, BindingResult result, HttpServletResponse response) {
         if(result.hasErrors()) {
             return "taskForm";
         }
-        taskService.createTask(task);
+        if (task.getDescription() != null && task.getDescription().length() > TaskService.MAX_DESCRIPTION_LENGTH) {
+            response.setStatus(HttpStatus.BAD_REQUEST.value());
+            result.rejectValue("description", "length", TaskService.TASK_DESCRIPTION_TOO_LONG);
+            return "taskForm";
+        }
+        try {
+            taskService.createTask(task);
+        } catch (TaskVersionConflictException e) {
+            response.setStatus(HttpStatus.CONFLICT.value());
+            result.rejectValue("description", "exists", TaskService.TASK_ALREADY_EXISTS);
+            return "taskForm";
+        } catch (TaskQuotaExceededException e) {
+            return "redirect:/tasks?error=" + TaskService.TASK_QUOTA_EXCEEDED;
+        } catch (TaskCapacityExceededException e) {
+            response.setStatus(HttpStatus.INSUFFICIENT_STORAGE.value());
+            result.rejectValue("description", "capacity", TaskService.TASK_CAPACITY_EXCEEDED);
+            return "taskForm";
+        }
         return "redirect:/tasks";
     }
 
+    // The list posts the version it showed; if the task changed since, the current list is
+    // shown again with 409 instead of toggling it back.
     @PostMapping("/task/toggle/{id}")
-    public String toggleTaskStatus(@PathVariable String id) {
+    public String toggleTaskStatus(@PathVariable String id,
+                                   @RequestParam Optional<Long> version,
+                                   HttpServletResponse response,
+                                   Model model) {
         try {
-            taskService.toggleTaskStatus(id);
+            version.map(v -> taskService.toggleTaskStatus(id, v)).orElseGet(() -> taskService.toggleTaskStatus(id));
             return "redirect:/tasks";
         } catch (IllegalArgumentException e) {
             return "redirect:/tasks?error=Task not found with id: " + id;
+        } catch (TaskVersionConflictException e) {
+            response.setStatus(HttpServletResponse.SC_CONFLICT);
+            return getTasks(Optional.of(TaskService.TASK_VERSION_CONFLICT), Optional.empty(), Optional.empty(),
+                    Optional.empty(), model);
         }
     }
 
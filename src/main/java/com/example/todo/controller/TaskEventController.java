@@ -0,0 +1,81 @@
+package com.example.todo.controller;
+
+import com.example.todo.events.TaskEventBus;
+import com.example.todo.events.TaskEventLog;
+import com.example.todo.model.TaskEvent;
+import com.example.todo.tenant.TenantContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@RestController
+@Profile("!reactive")
+public class TaskEventController {
+
+    static final long STREAM_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    static final long HEARTBEAT_SECONDS = 15;
+    static final String RESET_EVENT = "reset";
+
+    @Autowired
+    private TaskEventBus taskEventBus;
+
+    // Streams every change after the given event id: the Last-Event-ID header that
+    // EventSource sends on reconnect, else the after parameter, else the current sequence.
+    // Each stream is written by its own virtual thread, so a slow client only holds up itself.
+    // When the requested events are no longer buffered, or the id is of an earlier process,
+    // the stream sends a reset event with the current id and the client is expected to reload
+    // the list. Sequence numbers are per tenant, and a stream only carries its own tenant's
+    // events.
+    @GetMapping(path = "/tasks/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamEvents(@RequestHeader(name = "Last-Event-ID", required = false) Optional<String> lastEventId,
+                                   @RequestParam Optional<String> after) {
+        TaskEventLog events = taskEventBus.log(TenantContext.current());
+        long from = lastEventId.or(() -> after).map(taskEventBus::sequenceOf).orElseGet(events::lastSequence);
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT_MILLIS);
+        Thread sender = Thread.ofVirtual().name("task-events").unstarted(() -> send(emitter, events, from));
+        emitter.onCompletion(sender::interrupt);
+        emitter.onTimeout(sender::interrupt);
+        emitter.onError(e -> sender.interrupt());
+        sender.start();
+        return emitter;
+    }
+
+    private void send(SseEmitter emitter, TaskEventLog log, long from) {
+        long sequence = from;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                Optional<List<TaskEvent>> events = log.eventsAfter(sequence, HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+                if (events.isEmpty()) {
+                    sequence = log.lastSequence();
+                    String id = taskEventBus.eventId(sequence);
+                    emitter.send(SseEmitter.event().id(id).name(RESET_EVENT).data(id));
+                } else if (events.get().isEmpty()) {
+                    emitter.send(SseEmitter.event().comment("heartbeat"));
+                } else {
+                    for (TaskEvent event : events.get()) {
+                        emitter.send(SseEmitter.event()
+                                .id(taskEventBus.eventId(event.getSequence()))
+                                .name(event.getType().name().toLowerCase(Locale.ROOT))
+                                .data(event, MediaType.APPLICATION_JSON));
+                        sequence = event.getSequence();
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            emitter.complete();
+        } catch (IOException | IllegalStateException e) {
+            // The client went away or the stream timed out; the emitter is already done.
+        }
+    }
+}
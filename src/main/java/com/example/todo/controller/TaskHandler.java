@@ -0,0 +1,103 @@
+package com.example.todo.controller;
+
+import com.example.todo.model.Task;
+import com.example.todo.model.TaskPage;
+import com.example.todo.repository.TaskCapacityExceededException;
+import com.example.todo.repository.TaskQuotaExceededException;
+import com.example.todo.repository.TaskVersionConflictException;
+import com.example.todo.service.ReactiveTaskService;
+import com.example.todo.service.TaskService;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.Optional;
+
+@Component
+@Profile("reactive")
+public class TaskHandler {
+
+    private final ReactiveTaskService taskService;
+
+    public TaskHandler(ReactiveTaskService taskService) {
+        this.taskService = taskService;
+    }
+
+    public Mono<ServerResponse> getTasks(ServerRequest request) {
+        int pageSize = TaskController.pageSize(request.queryParam("size").flatMap(TaskHandler::parseInt));
+        return taskService.findPage(status(request), request.queryParam("cursor").orElse(null), pageSize)
+                .flatMap(page -> ServerResponse.ok().bodyValue(page));
+    }
+
+    // Newline-delimited JSON, written as the client reads it.
+    public Mono<ServerResponse> streamTasks(ServerRequest request) {
+        return ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(taskService.streamAll(status(request)), Task.class);
+    }
+
+    public Mono<ServerResponse> getTask(ServerRequest request) {
+        return taskService.findById(request.pathVariable("id"))
+                .flatMap(task -> ServerResponse.ok().bodyValue(task))
+                .switchIfEmpty(error(HttpStatus.NOT_FOUND, TaskService.TASK_NOT_FOUND));
+    }
+
+    public Mono<ServerResponse> createTask(ServerRequest request) {
+        return request.bodyToMono(Task.class)
+                .flatMap(task -> TaskService.descriptionError(task.getDescription())
+                        .map(invalid -> error(HttpStatus.BAD_REQUEST, invalid))
+                        .orElseGet(() -> taskService.createTask(task)
+                                .flatMap(created -> ServerResponse
+                                        .created(request.uriBuilder().path("/{id}").build(created.getId()))
+                                        .bodyValue(created))))
+                .onErrorResume(TaskVersionConflictException.class,
+                        e -> error(HttpStatus.CONFLICT, TaskService.TASK_ALREADY_EXISTS))
+                .onErrorResume(TaskQuotaExceededException.class,
+                        e -> error(HttpStatus.FORBIDDEN, TaskService.TASK_QUOTA_EXCEEDED))
+                .onErrorResume(TaskCapacityExceededException.class,
+                        e -> error(HttpStatus.INSUFFICIENT_STORAGE, TaskService.TASK_CAPACITY_EXCEEDED))
+                .switchIfEmpty(error(HttpStatus.BAD_REQUEST, TaskService.TASK_DESCRIPTION_EMPTY));
+    }
+
+    public Mono<ServerResponse> toggleTaskStatus(ServerRequest request) {
+        String id = request.pathVariable("id");
+        Optional<Long> expectedVersion = request.headers().header(HttpHeaders.IF_MATCH).stream().findFirst()
+                .flatMap(TaskApiController::parseVersion);
+        return expectedVersion
+                .map(version -> taskService.toggleTaskStatus(id, version))
+                .orElseGet(() -> taskService.toggleTaskStatus(id))
+                .flatMap(task -> ServerResponse.ok().eTag(TaskApiController.etag(task)).bodyValue(task))
+                .onErrorResume(IllegalArgumentException.class, e -> error(HttpStatus.NOT_FOUND, e.getMessage()))
+                .onErrorResume(TaskVersionConflictException.class,
+                        e -> error(HttpStatus.PRECONDITION_FAILED, TaskService.TASK_VERSION_CONFLICT));
+    }
+
+    public Mono<ServerResponse> deleteTask(ServerRequest request) {
+        return taskService.removeTask(request.pathVariable("id"))
+                .flatMap(message -> error(TaskService.TASK_NOT_FOUND.equals(message)
+                        ? HttpStatus.NOT_FOUND : HttpStatus.CONFLICT, message))
+                .switchIfEmpty(ServerResponse.noContent().build());
+    }
+
+    private static Optional<Boolean> status(ServerRequest request) {
+        return request.queryParam("status").flatMap(TaskController::parseStatus);
+    }
+
+    private static Optional<Integer> parseInt(String value) {
+        try {
+            return Optional.of(Integer.parseInt(value));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static Mono<ServerResponse> error(HttpStatus status, String message) {
+        return ServerResponse.status(status).bodyValue(Map.of("error", message));
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.todo.controller;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+
+// Replaces TaskApiController when the application runs with the reactive profile.
+@Configuration
+@Profile("reactive")
+public class TaskRouter {
+
+    @Bean
+    public RouterFunction<ServerResponse> taskRoutes(TaskHandler handler) {
+        return route()
+                .path("/api/tasks", builder -> builder
+                        .GET("", handler::getTasks)
+                        .GET("/stream", handler::streamTasks)
+                        .GET("/{id}", handler::getTask)
+                        .POST("", handler::createTask)
+                        .POST("/{id}/toggle", handler::toggleTaskStatus)
+                        .DELETE("/{id}", handler::deleteTask))
+                .build();
+    }
+}
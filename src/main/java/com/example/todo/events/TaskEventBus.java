@@ -0,0 +1,87 @@
+package com.example.todo.events;
+
+import com.example.todo.model.Task;
+import com.example.todo.model.TaskEvent;
+import com.example.todo.repository.TaskChangeListener;
+import com.example.todo.repository.TaskStore;
+import com.example.todo.tenant.TenantContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Numbers every store mutation within its tenant and keeps each tenant's recent events in a
+ * {@link TaskEventLog} of its own, so subscribers follow their tenant's store as a stream of
+ * deltas. Tenants neither share a lock on the write path nor push each other's events out of
+ * the buffer. A tenant's log is created with its first event or subscriber.
+ * <p>
+ * Sequence numbers restart with the process, so the ids handed to clients carry the process's
+ * epoch, as the replication log's do. A client resuming from an id of an earlier process is
+ * told to reload rather than being sent the events that happen to follow the same number.
+ */
+@Component
+public class TaskEventBus implements TaskChangeListener {
+
+    private final int bufferSize;
+    private final ConcurrentMap<String, TaskEventLog> logs = new ConcurrentHashMap<>();
+    private final String epoch = UUID.randomUUID().toString();
+
+    public TaskEventBus(TaskStore taskStore,
+                        @Value("${todo.events.buffer-size:4096}") int bufferSize) {
+        this.bufferSize = bufferSize;
+        taskStore.addListener(this);
+    }
+
+    @Override
+    public void taskSaved(Task previous, Task task) {
+        log(task.getTenant()).taskSaved(previous, task);
+    }
+
+    @Override
+    public void taskDeleted(String id, Task previous) {
+        log(previous.getTenant()).taskDeleted(id, previous);
+    }
+
+    // The events of the given tenant, for subscribers that read them outside the request's tenant.
+    public TaskEventLog log(String tenant) {
+        return logs.computeIfAbsent(tenant == null ? TenantContext.DEFAULT_TENANT : tenant,
+                name -> new TaskEventLog(bufferSize));
+    }
+
+    public long lastSequence() {
+        return log(TenantContext.current()).lastSequence();
+    }
+
+    // The id clients see for the given sequence number of this process.
+    public String eventId(long sequence) {
+        return epoch + ":" + sequence;
+    }
+
+    // The sequence number of an id this process handed out; -1, which no log has buffered,
+    // for an id of another epoch or one that is not an event id at all.
+    public long sequenceOf(String eventId) {
+        int separator = eventId.lastIndexOf(':');
+        if (separator < 0 || !epoch.equals(eventId.substring(0, separator))) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(eventId.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Returns the current tenant's events after the given sequence number, as
+     * {@link TaskEventLog#eventsAfter} does.
+     */
+    public Optional<List<TaskEvent>> eventsAfter(long sequence, long timeout, TimeUnit unit) throws InterruptedException {
+        return log(TenantContext.current()).eventsAfter(sequence, timeout, unit);
+    }
+}
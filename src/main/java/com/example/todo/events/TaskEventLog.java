@@ -0,0 +1,136 @@
+package com.example.todo.events;
+
+import com.example.todo.model.Task;
+import com.example.todo.model.TaskEvent;
+import com.example.todo.repository.TaskChangeListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Numbers the changes it is told about and keeps the most recent ones in a ring buffer, so
+ * subscribers can follow them as a stream of deltas and resume after a disconnect from the
+ * last sequence number they saw. Sequence numbers start at 1 and restart with the process; a
+ * subscriber that asks for events that are no longer buffered, or that belong to an earlier
+ * process, has to reload the full state instead. The ring starts small and grows up to its
+ * capacity as events arrive, so a log that sees few changes stays small.
+ */
+public class TaskEventLog implements TaskChangeListener {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int capacity;
+    private TaskEvent[] buffer;
+
+    // Guards buffer and lastSequence. Publishing happens while the store holds the task's lock,
+    // so the critical section only stores a reference and wakes up waiting subscribers.
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition published = lock.newCondition();
+    private long lastSequence;
+
+    public TaskEventLog(int capacity) {
+        this.capacity = capacity;
+        this.buffer = new TaskEvent[Math.min(capacity, INITIAL_CAPACITY)];
+    }
+
+    @Override
+    public void taskSaved(Task previous, Task task) {
+        TaskEvent.Type type;
+        if (previous == null) {
+            type = TaskEvent.Type.CREATED;
+        } else if (previous != task && previous.isCompleted() != task.isCompleted()
+                && Objects.equals(previous.getDescription(), task.getDescription())) {
+            type = TaskEvent.Type.TOGGLED;
+        } else {
+            type = TaskEvent.Type.UPDATED;
+        }
+        publish(type, task.getId(), copy(task));
+    }
+
+    @Override
+    public void taskDeleted(String id, Task previous) {
+        publish(TaskEvent.Type.DELETED, id, copy(previous));
+    }
+
+    public long lastSequence() {
+        lock.lock();
+        try {
+            return lastSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Whether a subscriber that saw the given sequence number can still resume from it.
+    public boolean isBuffered(long sequence) {
+        lock.lock();
+        try {
+            return sequence >= 0 && sequence <= lastSequence && sequence >= lastSequence - buffer.length;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the events after the given sequence number, waiting up to the timeout for the
+     * first one; the list is empty when nothing was published in time. Returns empty when
+     * some of the requested events are no longer available.
+     */
+    public Optional<List<TaskEvent>> eventsAfter(long sequence, long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            if (sequence < 0 || sequence > lastSequence || sequence < lastSequence - buffer.length) {
+                return Optional.empty();
+            }
+            while (sequence == lastSequence && nanos > 0) {
+                nanos = published.awaitNanos(nanos);
+            }
+            if (sequence < lastSequence - buffer.length) {
+                return Optional.empty();
+            }
+            List<TaskEvent> events = new ArrayList<>((int) (lastSequence - sequence));
+            for (long next = sequence + 1; next <= lastSequence; next++) {
+                events.add(buffer[(int) (next % buffer.length)]);
+            }
+            return Optional.of(events);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void publish(TaskEvent.Type type, String id, Task task) {
+        lock.lock();
+        try {
+            long sequence = ++lastSequence;
+            if (sequence > buffer.length && buffer.length < capacity) {
+                grow(sequence);
+            }
+            buffer[(int) (sequence % buffer.length)] = new TaskEvent(sequence, type, id, task);
+            published.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Called before the event that would overwrite the oldest one, so no event is lost until
+    // the ring has reached its capacity.
+    private void grow(long sequence) {
+        TaskEvent[] grown = new TaskEvent[(int) Math.min(capacity, 2L * buffer.length)];
+        for (long kept = sequence - buffer.length; kept < sequence; kept++) {
+            grown[(int) (kept % grown.length)] = buffer[(int) (kept % buffer.length)];
+        }
+        buffer = grown;
+    }
+
+    // Tasks saved through the store may be mutated later by their owner; events keep
+    // the state they were published with.
+    private static Task copy(Task task) {
+        return new Task(task.getId(), task.getDescription(), task.isCompleted(), task.getVersion(), task.getTenant());
+    }
+}
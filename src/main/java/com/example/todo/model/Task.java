@@ -5,6 +5,11 @@ public class Task {
     private String id;
     private String description;
     private boolean completed;
+    // Assigned by the repository: 1 when the task is created, incremented by every change.
+    // A task saved with a non-zero version only replaces the stored one if it still has it.
+    private long version;
+    // Assigned by the store from the tenant the task is saved for; clients cannot choose it.
+    private String tenant;
 
     public Task() {
     }
@@ -15,6 +20,16 @@ public class Task {
         this.completed = completed;
     }
 
+    public Task(String id, String description, boolean completed, long version) {
+        this(id, description, completed);
+        this.version = version;
+    }
+
+    public Task(String id, String description, boolean completed, long version, String tenant) {
+        this(id, description, completed, version);
+        this.tenant = tenant;
+    }
+
     public String getId() {
         return id;
     }
@@ -38,4 +53,20 @@ public class Task {
     public void setCompleted(boolean completed) {
         this.completed = completed;
     }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public String getTenant() {
+        return tenant;
+    }
+
+    public void setTenant(String tenant) {
+        this.tenant = tenant;
+    }
 }
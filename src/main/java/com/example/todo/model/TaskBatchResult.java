@@ -0,0 +1,38 @@
+package com.example.todo.model;
+
+public class TaskBatchResult {
+
+    private final String id;
+    private final Task task;
+    private final String error;
+
+    private TaskBatchResult(String id, Task task, String error) {
+        this.id = id;
+        this.task = task;
+        this.error = error;
+    }
+
+    public static TaskBatchResult success(Task task) {
+        return new TaskBatchResult(task.getId(), task, null);
+    }
+
+    public static TaskBatchResult failure(String id, String error) {
+        return new TaskBatchResult(id, null, error);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Task getTask() {
+        return task;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
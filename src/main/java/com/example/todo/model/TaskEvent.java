@@ -0,0 +1,37 @@
+package com.example.todo.model;
+
+public class TaskEvent {
+
+    public enum Type {
+        CREATED, UPDATED, TOGGLED, DELETED
+    }
+
+    private final long sequence;
+    private final Type type;
+    private final String id;
+    private final Task task;
+
+    // For DELETED events the task is the one that was removed.
+    public TaskEvent(long sequence, Type type, String id, Task task) {
+        this.sequence = sequence;
+        this.type = type;
+        this.id = id;
+        this.task = task;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Task getTask() {
+        return task;
+    }
+}
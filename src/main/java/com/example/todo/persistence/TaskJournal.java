@@ -0,0 +1,624 @@
+package com.example.todo.persistence;
+
+import com.example.todo.model.Task;
+import com.example.todo.repository.TaskChangeListener;
+import com.example.todo.repository.TaskStore;
+import com.example.todo.tenant.TenantContext;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of task mutations, written behind the store: a change is visible in
+ * memory at once, and its record is encoded on the mutating thread and left in a bounded
+ * buffer for a single writer thread, which appends everything buffered as one batch and issues
+ * one fsync per batch (group commit). Records are full task states, so a buffered record for a
+ * task is replaced by the task's next one instead of taking another slot: a task toggled many
+ * times between two batches is written once. When the buffer holds as many tasks as it can,
+ * writers wait for the writer thread in {@link #awaitRoom()} before they change the store
+ * (back-pressure), so nobody waits while the store holds a task's lock; the buffer may go past
+ * its capacity by the records of the changes already under way. Callers that need a change to be
+ * durable before they answer wait with {@link #flush()}, which also cuts the current batch
+ * short. Once a log generation grows past the compaction threshold the writer rolls over to a
+ * new generation, snapshots the store and drops the old logs, so recovery only replays the
+ * snapshot plus the current tail.
+ * <p>
+ * A batch that cannot be written is kept in front of the buffer and written again into a new log
+ * generation every {@link #RETRY_MILLIS}, since the failed log may end in a torn record. Until
+ * a write succeeds again, {@link #flush()} and {@link #awaitRoom()} fail with the error instead
+ * of waiting for a disk that may never recover.
+ */
+@Component
+@ConditionalOnProperty(name = "todo.journal.enabled", havingValue = "true")
+public class TaskJournal implements TaskChangeListener {
+
+    private static final Logger log = LoggerFactory.getLogger(TaskJournal.class);
+
+    // Records of the first format wrote strings with writeUTF, which is limited to 64 KB; they
+    // are still read, but only written with length-prefixed UTF-8 fields.
+    private static final byte SAVE_UTF = 1;
+    private static final byte DELETE_UTF = 2;
+    static final byte SAVE = 3;
+    static final byte DELETE = 4;
+
+    static final String SNAPSHOT_FILE = "tasks.snapshot";
+    static final String LOG_PREFIX = "journal-";
+    static final String LOG_SUFFIX = ".log";
+
+    private static final int MAX_RECORD_LENGTH = 1 << 24;
+
+    static final long RETRY_MILLIS = 1000;
+
+    private final TaskStore taskStore;
+    private final Path directory;
+    private final long groupCommitMillis;
+    private final int maxBatch;
+    private final long compactAfterRecords;
+    private final int capacity;
+
+    // Records waiting for the writer by tenant and id, in the order the tasks were first changed,
+    // and the number of appends so far, counting replaced records. Both are guarded by
+    // pendingLock; appends are counted under it so that a batch covers every append counted
+    // before it was taken.
+    private final ReentrantLock pendingLock = new ReentrantLock();
+    private final Condition notEmpty = pendingLock.newCondition();
+    private final Condition notFull = pendingLock.newCondition();
+    private LinkedHashMap<String, Pending> pending = new LinkedHashMap<>();
+    private long appended;
+    private boolean flushRequested;
+    // Set while the writer snapshots the store; writers do not wait for room then, rather than
+    // stall for as long as the snapshot takes.
+    private volatile boolean compacting;
+    private final LongAdder coalesced = new LongAdder();
+
+    // A j.u.c. lock rather than a monitor, so callers waiting in flush() do not pin the
+    // carrier thread when requests run on virtual threads.
+    private final ReentrantLock durableLock = new ReentrantLock();
+    private final Condition durableAdvanced = durableLock.newCondition();
+    private long durable;
+
+    private FileChannel channel;
+    private long generation;
+    private long recordsInGeneration;
+    private Thread writer;
+    private volatile boolean running;
+    // The error of the last write, cleared once a batch is written again.
+    private volatile IOException failure;
+
+    private static final class Pending {
+        byte[] record;
+        int appends = 1;
+
+        Pending(byte[] record) {
+            this.record = record;
+        }
+    }
+
+    public TaskJournal(TaskStore taskStore, Path directory, long groupCommitMillis, int maxBatch,
+                       long compactAfterRecords) {
+        this(taskStore, directory, groupCommitMillis, maxBatch, compactAfterRecords, 65_536);
+    }
+
+    // groupCommitMillis is how long the writer gathers a batch, unless maxBatch tasks are
+    // buffered or a caller flushes first; capacity is how many tasks the buffer holds.
+    @Autowired
+    public TaskJournal(TaskStore taskStore,
+                       @Value("${todo.journal.directory:data}") Path directory,
+                       @Value("${todo.journal.group-commit-millis:5}") long groupCommitMillis,
+                       @Value("${todo.journal.max-batch:4096}") int maxBatch,
+                       @Value("${todo.journal.compact-after-records:100000}") long compactAfterRecords,
+                       @Value("${todo.journal.queue-capacity:65536}") int capacity) {
+        this.taskStore = taskStore;
+        this.directory = directory;
+        this.groupCommitMillis = groupCommitMillis;
+        this.maxBatch = maxBatch;
+        this.compactAfterRecords = compactAfterRecords;
+        this.capacity = capacity;
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        Files.createDirectories(directory);
+        long started = System.nanoTime();
+        generation = readSnapshot();
+        long replayed = 0;
+        for (long logGeneration : logGenerations()) {
+            if (logGeneration >= generation) {
+                replayed += replayLog(logGeneration);
+                generation = logGeneration;
+            }
+        }
+        long recovered = 0;
+        for (String tenant : taskStore.tenants()) {
+            recovered += TenantContext.callAs(tenant, taskStore::count);
+        }
+        log.info("Recovered {} tasks ({} journal records) in {} ms", recovered, replayed,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+
+        channel = openLog(generation);
+        recordsInGeneration = replayed;
+        running = true;
+        writer = new Thread(this::writeLoop, "task-journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+        taskStore.addListener(this);
+    }
+
+    @PreDestroy
+    public void close() throws IOException, InterruptedException {
+        taskStore.removeListener(this);
+        pendingLock.lock();
+        try {
+            running = false;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            pendingLock.unlock();
+        }
+        if (writer != null) {
+            writer.join();
+        }
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    @Override
+    public void taskSaved(Task task) {
+        append(task.getTenant(), task.getId(),
+                encode(SAVE, task.getTenant(), task.getId(), task.getDescription(), task.isCompleted(), task.getVersion()));
+    }
+
+    @Override
+    public void taskDeleted(String id, Task previous) {
+        append(previous.getTenant(), id, encode(DELETE, previous.getTenant(), id, null, false, 0));
+    }
+
+    // Blocks until every record appended before this call has been written and fsynced, or
+    // throws the journal's write error while it cannot write.
+    public void flush() throws IOException, InterruptedException {
+        long target;
+        pendingLock.lock();
+        try {
+            target = appended;
+            if (!pending.isEmpty()) {
+                flushRequested = true;
+                notEmpty.signal();
+            }
+        } finally {
+            pendingLock.unlock();
+        }
+        durableLock.lock();
+        try {
+            while (durable < target) {
+                if (!running) {
+                    throw new IllegalStateException("Task journal is closed");
+                }
+                checkFailure();
+                durableAdvanced.await(100, TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            durableLock.unlock();
+        }
+    }
+
+    /**
+     * Blocks while the buffer is full, until the writer thread has taken a batch. Called before
+     * changing the store rather than by the listener, which runs under the task's lock. Throws
+     * the journal's write error if the buffer is full because the journal cannot write.
+     */
+    public void awaitRoom() throws IOException, InterruptedException {
+        pendingLock.lock();
+        try {
+            while (pending.size() >= capacity && running && !compacting) {
+                checkFailure();
+                notFull.await();
+            }
+        } finally {
+            pendingLock.unlock();
+        }
+    }
+
+    // Runs on the mutating thread while the store holds the task's lock, so records for one
+    // task arrive in the order of its changes. Never waits for room; see awaitRoom.
+    private void append(String tenant, String id, byte[] record) {
+        String key = tenant + '\0' + id;
+        pendingLock.lock();
+        try {
+            Pending buffered = pending.get(key);
+            if (buffered != null) {
+                buffered.record = record;
+                buffered.appends++;
+                coalesced.increment();
+            } else {
+                pending.put(key, new Pending(record));
+                if (pending.size() == 1 || pending.size() >= maxBatch) {
+                    notEmpty.signal();
+                }
+            }
+            appended++;
+        } finally {
+            pendingLock.unlock();
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        IOException error = failure;
+        if (error != null) {
+            throw new IOException("Task journal cannot write to " + directory, error);
+        }
+    }
+
+    // Records replaced in the buffer before they were written.
+    long coalesced() {
+        return coalesced.sum();
+    }
+
+    private void writeLoop() {
+        while (true) {
+            LinkedHashMap<String, Pending> batch;
+            try {
+                batch = takeBatch();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (batch == null) {
+                return;
+            }
+            try {
+                if (failure != null) {
+                    rollOver();
+                }
+                writeBatch(batch);
+            } catch (IOException e) {
+                if (!running) {
+                    log.error("Task journal closed with {} tasks it could not write", batch.size(), e);
+                    return;
+                }
+                log.error("Failed to write task journal, retrying in {} ms", RETRY_MILLIS, e);
+                fail(e, batch);
+                try {
+                    pauseBeforeRetry();
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                continue;
+            }
+            failure = null;
+            try {
+                if (recordsInGeneration >= compactAfterRecords) {
+                    compacting = true;
+                    signalRoom();
+                    try {
+                        compact();
+                    } finally {
+                        compacting = false;
+                    }
+                }
+            } catch (IOException e) {
+                log.error("Failed to write task journal", e);
+            }
+        }
+    }
+
+    // Waits for the first buffered record, then gathers until the group commit time is up, the
+    // batch is full or a caller flushes, and takes the whole buffer. Null once closed and empty.
+    private LinkedHashMap<String, Pending> takeBatch() throws InterruptedException {
+        pendingLock.lock();
+        try {
+            while (pending.isEmpty()) {
+                if (!running) {
+                    return null;
+                }
+                notEmpty.await(100, TimeUnit.MILLISECONDS);
+            }
+            long remaining = TimeUnit.MILLISECONDS.toNanos(groupCommitMillis);
+            while (running && !flushRequested && pending.size() < maxBatch && remaining > 0) {
+                remaining = notEmpty.awaitNanos(remaining);
+            }
+            LinkedHashMap<String, Pending> batch = pending;
+            pending = new LinkedHashMap<>();
+            flushRequested = false;
+            notFull.signalAll();
+            return batch;
+        } finally {
+            pendingLock.unlock();
+        }
+    }
+
+    // Records the error and puts the batch back in front of the records buffered since, so the
+    // next batch writes it again; a task changed meanwhile keeps its newer record. Waiting
+    // writers and flushes are woken up to fail with the error.
+    private void fail(IOException error, LinkedHashMap<String, Pending> batch) {
+        pendingLock.lock();
+        try {
+            failure = error;
+            for (Map.Entry<String, Pending> entry : pending.entrySet()) {
+                Pending older = batch.get(entry.getKey());
+                if (older != null) {
+                    older.record = entry.getValue().record;
+                    older.appends += entry.getValue().appends;
+                } else {
+                    batch.put(entry.getKey(), entry.getValue());
+                }
+            }
+            pending = batch;
+            notFull.signalAll();
+        } finally {
+            pendingLock.unlock();
+        }
+        durableLock.lock();
+        try {
+            durableAdvanced.signalAll();
+        } finally {
+            durableLock.unlock();
+        }
+    }
+
+    private void pauseBeforeRetry() throws InterruptedException {
+        pendingLock.lock();
+        try {
+            long remaining = TimeUnit.MILLISECONDS.toNanos(RETRY_MILLIS);
+            while (running && remaining > 0) {
+                remaining = notEmpty.awaitNanos(remaining);
+            }
+        } finally {
+            pendingLock.unlock();
+        }
+    }
+
+    private void signalRoom() {
+        pendingLock.lock();
+        try {
+            notFull.signalAll();
+        } finally {
+            pendingLock.unlock();
+        }
+    }
+
+    private void writeBatch(LinkedHashMap<String, Pending> batch) throws IOException {
+        int size = 0;
+        int appends = 0;
+        for (Pending buffered : batch.values()) {
+            size += buffered.record.length;
+            appends += buffered.appends;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        batch.values().forEach(buffered -> buffer.put(buffered.record));
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+        recordsInGeneration += batch.size();
+        durableLock.lock();
+        try {
+            durable += appends;
+            durableAdvanced.signalAll();
+        } finally {
+            durableLock.unlock();
+        }
+    }
+
+    // Everything already taken is in the current log, and everything still buffered will
+    // land in the next one. Records are full task states, so replaying the new log on top
+    // of a snapshot taken after the switch converges to the same store.
+    void compact() throws IOException {
+        rollOver();
+        writeSnapshot(generation);
+        for (long logGeneration : logGenerations()) {
+            if (logGeneration < generation) {
+                Files.deleteIfExists(logPath(logGeneration));
+            }
+        }
+    }
+
+    // Continues in a new log generation. Recovery replays every generation after the snapshot in
+    // order and cuts each one's torn tail, so records after a failed write are not lost behind it.
+    private void rollOver() throws IOException {
+        FileChannel next = openLog(generation + 1);
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Failed to close task journal log {}", generation, e);
+        }
+        channel = next;
+        generation++;
+        recordsInGeneration = 0;
+    }
+
+    private void writeSnapshot(long logGeneration) throws IOException {
+        TaskSnapshot.write(directory.resolve(SNAPSHOT_FILE), logGeneration, taskStore.findAllTenants());
+    }
+
+    private long readSnapshot() throws IOException {
+        Path snapshot = directory.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(snapshot)) {
+            return 0;
+        }
+        return TaskSnapshot.read(snapshot, taskStore::restore);
+    }
+
+    // Replays a log and cuts off a torn tail left by a crash in the middle of a batch.
+    private long replayLog(long logGeneration) throws IOException {
+        Path path = logPath(logGeneration);
+        long records = 0;
+        long validLength = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            while (true) {
+                byte[] payload;
+                try {
+                    payload = readRecord(in);
+                } catch (EOFException | CorruptRecordException e) {
+                    log.warn("Truncating torn tail of {} at byte {}", path, validLength);
+                    break;
+                }
+                if (payload == null) {
+                    break;
+                }
+                apply(payload);
+                records++;
+                validLength += 8 + payload.length;
+            }
+        }
+        try (FileChannel out = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            if (out.size() > validLength) {
+                out.truncate(validLength);
+                out.force(true);
+            }
+        }
+        return records;
+    }
+
+    // Returns the payload of the next framed record, or null at a clean end of input.
+    private static byte[] readRecord(DataInputStream in) throws IOException {
+        int length;
+        try {
+            length = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        int checksum = in.readInt();
+        if (length <= 0 || length > MAX_RECORD_LENGTH) {
+            throw new CorruptRecordException();
+        }
+        byte[] payload = new byte[length];
+        in.readFully(payload);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        if ((int) crc.getValue() != checksum) {
+            throw new CorruptRecordException();
+        }
+        return payload;
+    }
+
+    private void apply(byte[] payload) throws IOException {
+        ByteBuffer record = ByteBuffer.wrap(payload);
+        byte op = record.get();
+        if (op == SAVE) {
+            String id = readString(record);
+            String description = readString(record);
+            boolean completed = record.get() != 0;
+            long version = record.getLong();
+            taskStore.restore(new Task(id, description, completed, version, readString(record)));
+        } else if (op == DELETE) {
+            String id = readString(record);
+            String tenant = readString(record);
+            TenantContext.runAs(tenant, () -> taskStore.deleteById(id));
+        } else if (op == SAVE_UTF || op == DELETE_UTF) {
+            applyUtf(op, new DataInputStream(new ByteArrayInputStream(payload, 1, payload.length - 1)));
+        } else {
+            throw new CorruptRecordException();
+        }
+    }
+
+    // A length of -1 stands for null.
+    private static String readString(ByteBuffer record) throws IOException {
+        int length = record.getInt();
+        if (length < -1 || length > record.remaining()) {
+            throw new CorruptRecordException();
+        }
+        if (length == -1) {
+            return null;
+        }
+        String value = new String(record.array(), record.arrayOffset() + record.position(), length,
+                StandardCharsets.UTF_8);
+        record.position(record.position() + length);
+        return value;
+    }
+
+    private void applyUtf(byte op, DataInputStream record) throws IOException {
+        String id = record.readUTF();
+        if (op == SAVE_UTF) {
+            String description = record.readBoolean() ? record.readUTF() : null;
+            boolean completed = record.readBoolean();
+            // Records written before tasks had versions end here
+            long version = record.available() >= 8 ? record.readLong() : 0;
+            taskStore.restore(new Task(id, description, completed, version, readUtfTenant(record)));
+        } else {
+            TenantContext.runAs(readUtfTenant(record), () -> taskStore.deleteById(id));
+        }
+    }
+
+    // Records written before tasks had tenants end before it and belong to the default tenant.
+    private static String readUtfTenant(DataInputStream record) throws IOException {
+        return record.available() > 0 ? record.readUTF() : TenantContext.DEFAULT_TENANT;
+    }
+
+    // Frame: payload length, CRC32 of the payload, payload (op, id, [description, completed, version], tenant),
+    // every string as its UTF-8 length and bytes. Descriptions are limited by TaskService, so a
+    // record always fits in MAX_RECORD_LENGTH and encoding cannot fail after the store has changed.
+    static byte[] encode(byte op, String tenant, String id, String description, boolean completed, long version) {
+        byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+        byte[] tenantBytes = (tenant == null ? TenantContext.DEFAULT_TENANT : tenant).getBytes(StandardCharsets.UTF_8);
+        byte[] descriptionBytes = description == null ? null : description.getBytes(StandardCharsets.UTF_8);
+        int length = 1 + 4 + idBytes.length + 4 + tenantBytes.length;
+        if (op == SAVE) {
+            length += 4 + (descriptionBytes == null ? 0 : descriptionBytes.length) + 1 + 8;
+        }
+        ByteBuffer record = ByteBuffer.allocate(8 + length);
+        record.putInt(length).putInt(0).put(op);
+        record.putInt(idBytes.length).put(idBytes);
+        if (op == SAVE) {
+            if (descriptionBytes == null) {
+                record.putInt(-1);
+            } else {
+                record.putInt(descriptionBytes.length).put(descriptionBytes);
+            }
+            record.put((byte) (completed ? 1 : 0));
+            record.putLong(version);
+        }
+        record.putInt(tenantBytes.length).put(tenantBytes);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 8, length);
+        return record.putInt(4, (int) crc.getValue()).array();
+    }
+
+    // Package-private so that tests can make the log fail.
+    FileChannel openLog(long logGeneration) throws IOException {
+        return FileChannel.open(logPath(logGeneration), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    private Path logPath(long logGeneration) {
+        return directory.resolve(String.format("%s%019d%s", LOG_PREFIX, logGeneration, LOG_SUFFIX));
+    }
+
+    private List<Long> logGenerations() throws IOException {
+        List<Long> generations = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(LOG_PREFIX) && name.endsWith(LOG_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(LOG_PREFIX.length(), name.length() - LOG_SUFFIX.length())))
+                    .sorted()
+                    .forEach(generations::add);
+        }
+        return generations;
+    }
+
+    private static class CorruptRecordException extends IOException {
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.todo.replication;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Set;
+
+// A follower only changes through replication, so it turns away requests that would write and
+// the load balancer is expected to send those to the leader.
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(name = "todo.replication.role", havingValue = "follower")
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ReplicaWriteFilter extends OncePerRequestFilter {
+
+    static final Set<String> READ_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+    static final String READ_ONLY_MESSAGE = "This node is a read-only replica, send changes to the leader";
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return READ_METHODS.contains(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, READ_ONLY_MESSAGE);
+    }
+}
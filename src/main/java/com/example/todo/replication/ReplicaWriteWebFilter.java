@@ -0,0 +1,29 @@
+package com.example.todo.replication;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+// Reactive counterpart of ReplicaWriteFilter.
+@Component
+@Profile("reactive")
+@ConditionalOnProperty(name = "todo.replication.role", havingValue = "follower")
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ReplicaWriteWebFilter implements WebFilter {
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (ReplicaWriteFilter.READ_METHODS.contains(exchange.getRequest().getMethod().name())) {
+            return chain.filter(exchange);
+        }
+        exchange.getResponse().setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+        return exchange.getResponse().setComplete();
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.todo.replication;
+
+import com.example.todo.model.Task;
+import com.example.todo.repository.TaskStore;
+import com.example.todo.tenant.TenantContext;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps the local store a copy of the leader's. Changes are applied in sequence order with
+ * {@link TaskStore#restore(Task)}, so tasks keep the leader's versions, and the local listeners
+ * (search index, event stream, journal) follow them as if they had been made here. A gap in the
+ * sequence or a lost connection makes the follower reconnect and resume after the last change it
+ * applied; the leader answers with a snapshot when it cannot resume from there.
+ * <p>
+ * Reads are served from the local store and may lag the leader by {@link #lag()} changes.
+ * Writes must go to the leader, see {@link ReplicaWriteFilter}.
+ */
+@Component
+@ConditionalOnProperty(name = "todo.replication.role", havingValue = "follower")
+public class ReplicationFollower {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicationFollower.class);
+
+    static final String LAG_GAUGE = "replication.lag";
+
+    private final TaskStore taskStore;
+    private final String leaderHost;
+    private final int leaderPort;
+    private final long reconnectMillis;
+
+    private volatile String epoch = "";
+    private volatile long appliedSequence;
+    private volatile long leaderSequence;
+    private volatile boolean running;
+    private volatile Socket socket;
+    private Thread receiver;
+
+    public ReplicationFollower(TaskStore taskStore, String leader, long reconnectMillis) {
+        this(taskStore, leader, reconnectMillis, Metrics.globalRegistry);
+    }
+
+    @Autowired
+    public ReplicationFollower(TaskStore taskStore,
+                               @Value("${todo.replication.leader:localhost:7070}") String leader,
+                               @Value("${todo.replication.reconnect-millis:1000}") long reconnectMillis,
+                               MeterRegistry meterRegistry) {
+        int colon = leader.lastIndexOf(':');
+        if (colon < 0) {
+            throw new IllegalArgumentException("Replication leader must be host:port, got " + leader);
+        }
+        this.taskStore = taskStore;
+        this.leaderHost = leader.substring(0, colon);
+        this.leaderPort = Integer.parseInt(leader.substring(colon + 1));
+        this.reconnectMillis = reconnectMillis;
+        Gauge.builder(LAG_GAUGE, this, ReplicationFollower::lag)
+                .description("Changes made on the replication leader that this follower has not applied yet")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void open() {
+        running = true;
+        receiver = new Thread(this::receiveLoop, "replication-receiver");
+        receiver.setDaemon(true);
+        receiver.start();
+    }
+
+    @PreDestroy
+    public void close() throws IOException, InterruptedException {
+        running = false;
+        Socket current = socket;
+        if (current != null) {
+            current.close();
+        }
+        receiver.interrupt();
+        receiver.join();
+    }
+
+    public long appliedSequence() {
+        return appliedSequence;
+    }
+
+    public long lag() {
+        return Math.max(0, leaderSequence - appliedSequence);
+    }
+
+    public boolean isConnected() {
+        Socket current = socket;
+        return current != null && !current.isClosed();
+    }
+
+    private void receiveLoop() {
+        while (running) {
+            try (Socket connection = new Socket()) {
+                connection.connect(new InetSocketAddress(leaderHost, leaderPort));
+                connection.setTcpNoDelay(true);
+                socket = connection;
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()));
+                ReplicationProtocol.writeString(out, epoch);
+                out.writeLong(appliedSequence);
+                out.flush();
+                DataInputStream in = new DataInputStream(new BufferedInputStream(connection.getInputStream()));
+                while (running) {
+                    apply(in);
+                }
+            } catch (IOException e) {
+                if (running) {
+                    log.warn("Lost replication leader {}:{}, reconnecting: {}", leaderHost, leaderPort, e.toString());
+                }
+            } finally {
+                socket = null;
+            }
+            try {
+                Thread.sleep(reconnectMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void apply(DataInputStream in) throws IOException {
+        byte op = in.readByte();
+        switch (op) {
+            case ReplicationProtocol.SNAPSHOT -> applySnapshot(in);
+            case ReplicationProtocol.SAVE -> {
+                long sequence = nextSequence(in);
+                taskStore.restore(ReplicationProtocol.readTask(in));
+                applied(sequence);
+            }
+            case ReplicationProtocol.DELETE -> {
+                long sequence = nextSequence(in);
+                String tenant = ReplicationProtocol.readString(in);
+                String id = ReplicationProtocol.readString(in);
+                TenantContext.runAs(tenant, () -> taskStore.deleteById(id));
+                applied(sequence);
+            }
+            case ReplicationProtocol.HEARTBEAT -> leaderSequence = Math.max(leaderSequence, in.readLong());
+            default -> throw new IOException("Unknown replication frame " + op);
+        }
+    }
+
+    private long nextSequence(DataInputStream in) throws IOException {
+        long sequence = in.readLong();
+        if (sequence != appliedSequence + 1) {
+            throw new IOException("Expected change " + (appliedSequence + 1) + " but got " + sequence);
+        }
+        return sequence;
+    }
+
+    private void applied(long sequence) {
+        appliedSequence = sequence;
+        leaderSequence = Math.max(leaderSequence, sequence);
+    }
+
+    // Tasks are replaced one by one, so readers may briefly see a mix of the old and new state.
+    private void applySnapshot(DataInputStream in) throws IOException {
+        String snapshotEpoch = ReplicationProtocol.readString(in);
+        long sequence = in.readLong();
+        int count = in.readInt();
+        Map<String, Set<String>> kept = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            Task task = ReplicationProtocol.readTask(in);
+            taskStore.restore(task);
+            kept.computeIfAbsent(task.getTenant(), tenant -> new HashSet<>()).add(task.getId());
+        }
+        for (String tenant : taskStore.tenants()) {
+            Set<String> ids = kept.getOrDefault(tenant, Set.of());
+            TenantContext.runAs(tenant, () -> {
+                for (Task task : taskStore.findAll()) {
+                    if (!ids.contains(task.getId())) {
+                        taskStore.deleteById(task.getId());
+                    }
+                }
+            });
+        }
+        epoch = snapshotEpoch;
+        appliedSequence = sequence;
+        leaderSequence = Math.max(leaderSequence, sequence);
+        log.info("Loaded replication snapshot of {} tasks at change {}", count, sequence);
+    }
+}
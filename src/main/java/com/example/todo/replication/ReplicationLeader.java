@@ -0,0 +1,171 @@
+package com.example.todo.replication;
+
+import com.example.todo.events.TaskEventLog;
+import com.example.todo.model.Task;
+import com.example.todo.model.TaskEvent;
+import com.example.todo.repository.TaskStore;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ships the store's changes to followers. The change log is a {@link TaskEventLog} over all
+ * tenants, kept by the leader alone so that nodes without followers never order writes of
+ * different tenants: its events carry full task states in the order they were applied, so a
+ * follower that replays them in sequence ends up with the leader's store. Each follower is
+ * served by its own virtual thread and only holds up itself; one that asks for events the log
+ * no longer buffers, or that were numbered by an earlier leader process (another epoch), is
+ * sent a snapshot of the whole store first and continues with the events after it.
+ */
+@Component
+@ConditionalOnProperty(name = "todo.replication.role", havingValue = "leader")
+public class ReplicationLeader {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicationLeader.class);
+
+    private final TaskStore taskStore;
+    private final TaskEventLog changeLog;
+    private final String bindAddress;
+    private final int port;
+    private final long heartbeatMillis;
+
+    // Sequence numbers of the log restart with the process; followers resume only within an epoch.
+    private final String epoch = UUID.randomUUID().toString();
+    private final Set<Socket> followers = ConcurrentHashMap.newKeySet();
+    private ServerSocket serverSocket;
+
+    public ReplicationLeader(TaskStore taskStore,
+                             @Value("${todo.events.buffer-size:4096}") int logSize,
+                             @Value("${todo.replication.bind-address:127.0.0.1}") String bindAddress,
+                             @Value("${todo.replication.port:7070}") int port,
+                             @Value("${todo.replication.heartbeat-millis:1000}") long heartbeatMillis) {
+        this.taskStore = taskStore;
+        this.changeLog = new TaskEventLog(logSize);
+        this.bindAddress = bindAddress;
+        this.port = port;
+        this.heartbeatMillis = heartbeatMillis;
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        taskStore.addListener(changeLog);
+        serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(InetAddress.getByName(bindAddress), port));
+        Thread.ofVirtual().name("replication-accept").start(this::acceptLoop);
+        log.info("Replication leader listening on {}:{}", bindAddress, port());
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        taskStore.removeListener(changeLog);
+        serverSocket.close();
+        for (Socket follower : followers) {
+            follower.close();
+        }
+    }
+
+    // The bound port, which differs from the configured one when that is 0.
+    public int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    public long lastSequence() {
+        return changeLog.lastSequence();
+    }
+
+    public int followerCount() {
+        return followers.size();
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket follower = serverSocket.accept();
+                follower.setTcpNoDelay(true);
+                followers.add(follower);
+                Thread.ofVirtual().name("replication-sender").start(() -> serve(follower));
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    log.warn("Failed to accept a replication follower", e);
+                }
+            }
+        }
+    }
+
+    private void serve(Socket follower) {
+        try (follower) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(follower.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(follower.getOutputStream()));
+            String followerEpoch = ReplicationProtocol.readString(in);
+            long sequence = in.readLong();
+            if (!epoch.equals(followerEpoch)) {
+                sequence = sendSnapshot(out);
+            }
+            while (!follower.isClosed()) {
+                Optional<List<TaskEvent>> events = changeLog.eventsAfter(sequence, heartbeatMillis, TimeUnit.MILLISECONDS);
+                if (events.isEmpty()) {
+                    sequence = sendSnapshot(out);
+                } else if (events.get().isEmpty()) {
+                    out.writeByte(ReplicationProtocol.HEARTBEAT);
+                    out.writeLong(changeLog.lastSequence());
+                } else {
+                    for (TaskEvent event : events.get()) {
+                        send(out, event);
+                        sequence = event.getSequence();
+                    }
+                }
+                out.flush();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            // The follower went away; it reconnects and resumes from what it applied.
+        } finally {
+            followers.remove(follower);
+        }
+    }
+
+    // Changes made while the store is read are both in the snapshot and sent after it. Events
+    // are full task states, so replaying them on top of the snapshot converges to the same store.
+    private long sendSnapshot(DataOutputStream out) throws IOException {
+        long sequence = changeLog.lastSequence();
+        List<Task> tasks = taskStore.findAllTenants();
+        out.writeByte(ReplicationProtocol.SNAPSHOT);
+        ReplicationProtocol.writeString(out, epoch);
+        out.writeLong(sequence);
+        out.writeInt(tasks.size());
+        for (Task task : tasks) {
+            ReplicationProtocol.writeTask(out, task);
+        }
+        return sequence;
+    }
+
+    private static void send(DataOutputStream out, TaskEvent event) throws IOException {
+        if (event.getType() == TaskEvent.Type.DELETED) {
+            out.writeByte(ReplicationProtocol.DELETE);
+            out.writeLong(event.getSequence());
+            ReplicationProtocol.writeString(out, event.getTask().getTenant());
+            ReplicationProtocol.writeString(out, event.getId());
+        } else {
+            out.writeByte(ReplicationProtocol.SAVE);
+            out.writeLong(event.getSequence());
+            ReplicationProtocol.writeTask(out, event.getTask());
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.todo.replication;
+
+import com.example.todo.model.Task;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Wire format between {@link ReplicationLeader} and {@link ReplicationFollower}, as
+ * {@link DataOutputStream} primitives over one TCP connection per follower.
+ * <p>
+ * The follower opens with the leader epoch and the last sequence number it applied (an empty
+ * epoch and 0 when it has nothing). The leader then sends frames, each starting with its op:
+ * SNAPSHOT (epoch, sequence, count, tasks) replaces the follower's whole store and is what the
+ * following changes are numbered after; SAVE (sequence, task) and DELETE (sequence, tenant, id)
+ * are single changes; HEARTBEAT (the leader's last sequence) is sent while nothing changes.
+ * A task is its tenant, id, description, completed flag and version. Strings, the epoch
+ * included, are their UTF-8 length and bytes, -1 for null, so a description of any size the
+ * store accepts can be shipped.
+ */
+final class ReplicationProtocol {
+
+    static final byte SNAPSHOT = 1;
+    static final byte SAVE = 2;
+    static final byte DELETE = 3;
+    static final byte HEARTBEAT = 4;
+
+    // Anything longer is a corrupt stream rather than a task, and is not allocated.
+    private static final int MAX_STRING_LENGTH = 1 << 24;
+
+    private ReplicationProtocol() {
+    }
+
+    static void writeTask(DataOutputStream out, Task task) throws IOException {
+        writeString(out, task.getTenant());
+        writeString(out, task.getId());
+        writeString(out, task.getDescription());
+        out.writeBoolean(task.isCompleted());
+        out.writeLong(task.getVersion());
+    }
+
+    static Task readTask(DataInputStream in) throws IOException {
+        String tenant = readString(in);
+        String id = readString(in);
+        String description = readString(in);
+        boolean completed = in.readBoolean();
+        return new Task(id, description, completed, in.readLong(), tenant);
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length == -1) {
+            return null;
+        }
+        if (length < 0 || length > MAX_STRING_LENGTH) {
+            throw new IOException("Invalid string length in replication stream: " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,358 @@
+package com.example.todo.repository;
+
+import com.example.todo.model.Task;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Disk tier for completed tasks that {@link TaskRepository} moves off the heap. Spilled tasks
+ * are appended to one segment file and found through a map from id to file offset, so only
+ * their ids stay in memory, and an LRU cache keeps the most recently read ones. The segment is
+ * an overflow area for the running process and starts empty; keeping tasks across restarts is
+ * still the journal's job.
+ * <p>
+ * Callers serialize the operations that change what is found for an id, publish and remove (the
+ * repository holds the key's lock), so the cache never disagrees with the file for a given task.
+ * Appending does not change it and is done without the key's lock. Neither append nor remove
+ * rewrites the file: superseded records pile up until {@link #compactIfNeeded} is called, which
+ * the repository does from its spill thread, never under a key's lock.
+ */
+public class ColdTaskSegment implements AutoCloseable {
+
+    static final String SEGMENT_FILE = "cold-tasks.seg";
+
+    // Rewrite the file once it holds more superseded records than live ones, but not for less.
+    private static final int MIN_GARBAGE_TO_COMPACT = 1024;
+
+    private final Path file;
+    private final int maxHotCompleted;
+    private final Duration spillAfter;
+
+    // Reads share the lock; appends, removals and compaction, which moves every record, take it
+    // exclusively. The offset maps, by tenant and then id, are only touched under the lock.
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Map<String, Long>> offsets = new HashMap<>();
+    private int stored;
+    private FileChannel channel;
+    private long end;
+    private long garbage;
+    // Compactions so far; records appended before the last one but not published are gone.
+    private long compactions;
+
+    private final ReentrantLock cacheLock = new ReentrantLock();
+    // Keyed by tenant, a NUL and the id; tenant names cannot contain a NUL.
+    private final LinkedHashMap<String, Task> cache;
+    private final LongAdder diskReads = new LongAdder();
+
+    public ColdTaskSegment(Path directory, int maxHotCompleted, Duration spillAfter, int cacheSize) {
+        this.file = directory.resolve(SEGMENT_FILE);
+        this.maxHotCompleted = maxHotCompleted;
+        this.spillAfter = spillAfter;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Task> eldest) {
+                return size() > cacheSize;
+            }
+        };
+        try {
+            Files.createDirectories(directory);
+            channel = open(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open cold task segment " + file, e);
+        }
+    }
+
+    // Completed tasks kept on the heap before the oldest are spilled.
+    public int getMaxHotCompleted() {
+        return maxHotCompleted;
+    }
+
+    // How long a completed task stays on the heap after its last write.
+    public Duration getSpillAfter() {
+        return spillAfter;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return stored;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Number of reads that missed the cache and went to the file.
+    long diskReads() {
+        return diskReads.sum();
+    }
+
+    /**
+     * Writes the task to the file without making it visible, so the caller can do the disk write
+     * before taking the task's lock and {@link #publish} it under the lock, or drop it by never
+     * publishing it. Until then the record counts as garbage.
+     */
+    public Appended append(Task task) {
+        byte[] record = encode(task);
+        lock.writeLock().lock();
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(record);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, end + buffer.position());
+            }
+            Appended appended = new Appended(task.getTenant(), task.getId(), end, compactions);
+            end += record.length;
+            garbage++;
+            return appended;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write to cold task segment " + file, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Makes an appended task the one found for its id. Only updates the offsets, so it is cheap
+     * enough to call under the task's lock. Returns false, leaving the segment as it was, when
+     * the file was compacted since the append and the record is gone.
+     */
+    public boolean publish(Appended appended) {
+        lock.writeLock().lock();
+        try {
+            if (appended.compactions != compactions) {
+                return false;
+            }
+            garbage--;
+            if (offsets.computeIfAbsent(appended.tenant, tenant -> new HashMap<>())
+                    .put(appended.id, appended.offset) != null) {
+                garbage++;
+            } else {
+                stored++;
+            }
+            evict(cacheKey(appended.tenant, appended.id));
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Task find(String tenant, String id) {
+        String key = cacheKey(tenant, id);
+        cacheLock.lock();
+        try {
+            Task cached = cache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        } finally {
+            cacheLock.unlock();
+        }
+        Task task;
+        lock.readLock().lock();
+        try {
+            Map<String, Long> tenantOffsets = offsets.get(tenant);
+            Long offset = tenantOffsets == null ? null : tenantOffsets.get(id);
+            if (offset == null) {
+                return null;
+            }
+            diskReads.increment();
+            task = read(channel, offset);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read cold task segment " + file, e);
+        } finally {
+            lock.readLock().unlock();
+        }
+        cacheLock.lock();
+        try {
+            cache.put(key, task);
+        } finally {
+            cacheLock.unlock();
+        }
+        return task;
+    }
+
+    // Only forgets the record, leaving it in the file as garbage, so it is cheap enough to call
+    // under the task's lock.
+    public void remove(String tenant, String id) {
+        lock.writeLock().lock();
+        try {
+            Map<String, Long> tenantOffsets = offsets.get(tenant);
+            if (tenantOffsets != null && tenantOffsets.remove(id) != null) {
+                stored--;
+                garbage++;
+                evict(cacheKey(tenant, id));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Copies the live records to a new file and swaps it in, once the file holds more superseded
+     * records than live ones. Reads and writes of the segment wait for it, so callers must not
+     * hold a task's lock. Returns whether the file was rewritten.
+     */
+    public boolean compactIfNeeded() {
+        lock.writeLock().lock();
+        try {
+            if (garbage < MIN_GARBAGE_TO_COMPACT || garbage <= stored) {
+                return false;
+            }
+            compact();
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot compact cold task segment " + file, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Reads every task of the tenant straight from the file, without filling the cache.
+    public void forEach(String tenant, Consumer<Task> action) {
+        lock.readLock().lock();
+        try {
+            for (long offset : offsets.getOrDefault(tenant, Map.of()).values()) {
+                action.accept(read(channel, offset));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read cold task segment " + file, e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            channel.close();
+            Files.deleteIfExists(file);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // A record written by append and not yet published.
+    public static final class Appended {
+
+        private final String tenant;
+        private final String id;
+        private final long offset;
+        private final long compactions;
+
+        Appended(String tenant, String id, long offset, long compactions) {
+            this.tenant = tenant;
+            this.id = id;
+            this.offset = offset;
+            this.compactions = compactions;
+        }
+    }
+
+    private static String cacheKey(String tenant, String id) {
+        return tenant + '\0' + id;
+    }
+
+    private void evict(String key) {
+        cacheLock.lock();
+        try {
+            cache.remove(key);
+        } finally {
+            cacheLock.unlock();
+        }
+    }
+
+    // Called with the write lock held.
+    private void compact() throws IOException {
+        Path compacted = file.resolveSibling(SEGMENT_FILE + ".tmp");
+        long position = 0;
+        try (FileChannel target = open(compacted)) {
+            for (Map<String, Long> tenantOffsets : offsets.values()) {
+                for (Map.Entry<String, Long> entry : tenantOffsets.entrySet()) {
+                    ByteBuffer record = ByteBuffer.wrap(encode(read(channel, entry.getValue())));
+                    entry.setValue(position);
+                    while (record.hasRemaining()) {
+                        position += target.write(record, position);
+                    }
+                }
+            }
+        }
+        channel.close();
+        Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        end = position;
+        garbage = 0;
+        compactions++;
+    }
+
+    private static FileChannel open(Path path) throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    // Record: int body length, then tenant and id lengths and UTF-8 bytes, description length
+    // (-1 for none) and bytes, completed flag and version.
+    private static byte[] encode(Task task) {
+        byte[] tenant = task.getTenant().getBytes(StandardCharsets.UTF_8);
+        byte[] id = task.getId().getBytes(StandardCharsets.UTF_8);
+        byte[] description = task.getDescription() == null ? null : task.getDescription().getBytes(StandardCharsets.UTF_8);
+        int bodyLength = 4 + tenant.length + 4 + id.length + 4 + (description == null ? 0 : description.length) + 1 + 8;
+        ByteBuffer buffer = ByteBuffer.allocate(4 + bodyLength);
+        buffer.putInt(bodyLength);
+        buffer.putInt(tenant.length).put(tenant);
+        buffer.putInt(id.length).put(id);
+        if (description == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(description.length).put(description);
+        }
+        buffer.put((byte) (task.isCompleted() ? 1 : 0));
+        buffer.putLong(task.getVersion());
+        return buffer.array();
+    }
+
+    private static Task read(FileChannel channel, long offset) throws IOException {
+        ByteBuffer length = ByteBuffer.allocate(4);
+        readFully(channel, length, offset);
+        ByteBuffer body = ByteBuffer.allocate(length.flip().getInt());
+        readFully(channel, body, offset + 4);
+        body.flip();
+        byte[] tenant = new byte[body.getInt()];
+        body.get(tenant);
+        byte[] id = new byte[body.getInt()];
+        body.get(id);
+        int descriptionLength = body.getInt();
+        String description = null;
+        if (descriptionLength >= 0) {
+            byte[] bytes = new byte[descriptionLength];
+            body.get(bytes);
+            description = new String(bytes, StandardCharsets.UTF_8);
+        }
+        boolean completed = body.get() == 1;
+        return new Task(new String(id, StandardCharsets.UTF_8), description, completed, body.getLong(),
+                new String(tenant, StandardCharsets.UTF_8));
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long offset) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new IOException("Truncated cold task record at " + offset);
+            }
+        }
+    }
+}
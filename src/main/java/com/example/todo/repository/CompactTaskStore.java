@@ -0,0 +1,887 @@
+package com.example.todo.repository;
+
+import com.example.todo.model.Task;
+import com.example.todo.model.TaskPage;
+import com.example.todo.tenant.TenantContext;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory {@link TaskStore} for very large task counts ({@code todo.store.type=compact}).
+ * Instead of a Task object, a map entry and an index node per task, every tenant keeps its
+ * tasks in parallel arrays addressed by slot: canonical UUID ids as two longs, versions, and
+ * the place of the description in one shared UTF-8 byte arena, with the completed flags in a
+ * bit set. An open-addressing int table finds a slot by id, and the slots of completed and of
+ * pending tasks are kept in id order in chunked int arrays for cursor pages: lower-case
+ * canonical UUIDs sort as strings the way their bits sort as unsigned numbers. {@link Task}
+ * objects are only created when a task is read.
+ * <p>
+ * Ids that are not canonical UUIDs are kept as Task objects in a sorted map on the side and
+ * merged into pages by id, so any id works, only without the savings. Each tenant's tasks are
+ * guarded by one read-write lock: writers of a tenant serialize where {@link TaskRepository}
+ * only locks the task, which is what the layout costs. Listeners are called under the lock.
+ * There is no cold tier; completed tasks stay on the heap.
+ */
+public class CompactTaskStore implements TaskStore {
+
+    private static final Partition EMPTY = new Partition(null);
+
+    private final ConcurrentMap<String, Partition> partitions = new ConcurrentHashMap<>();
+    private final List<TaskChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    private final long maxTasksPerTenant;
+    private final long maxTasks;
+    private final AtomicLong totalSize = new AtomicLong();
+
+    public CompactTaskStore() {
+        this(0, 0);
+    }
+
+    // maxTasksPerTenant and maxTasks, the limit over all tenants, of 0 mean no limit.
+    public CompactTaskStore(long maxTasksPerTenant, long maxTasks) {
+        this.maxTasksPerTenant = maxTasksPerTenant;
+        this.maxTasks = maxTasks;
+    }
+
+    private Partition readPartition() {
+        return partitions.getOrDefault(TenantContext.current(), EMPTY);
+    }
+
+    private Partition writePartition(String tenant) {
+        return partitions.computeIfAbsent(tenant, Partition::new);
+    }
+
+    @Override
+    public void addListener(TaskChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeListener(TaskChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public Set<String> tenants() {
+        return new TreeSet<>(partitions.keySet());
+    }
+
+    // In id order.
+    @Override
+    public List<Task> findAll() {
+        Partition partition = readPartition();
+        partition.lock.readLock().lock();
+        try {
+            return partition.tasksAfter(null, Integer.MAX_VALUE, null).getTasks();
+        } finally {
+            partition.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public TaskPage findPage(String cursor, int size) {
+        Partition partition = readPartition();
+        partition.lock.readLock().lock();
+        try {
+            return partition.tasksAfter(cursor, size, null);
+        } finally {
+            partition.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public TaskPage findByCompleted(boolean completed, String cursor, int size) {
+        Partition partition = readPartition();
+        partition.lock.readLock().lock();
+        try {
+            return partition.tasksAfter(cursor, size, completed);
+        } finally {
+            partition.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long countByCompleted(boolean completed) {
+        Partition partition = readPartition();
+        partition.lock.readLock().lock();
+        try {
+            return completed ? partition.completedOrder.size() + partition.otherCompleted
+                    : partition.pendingOrder.size() + partition.otherTasks.size() - partition.otherCompleted;
+        } finally {
+            partition.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<Task> findById(String id) {
+        Partition partition = readPartition();
+        partition.lock.readLock().lock();
+        try {
+            return Optional.ofNullable(partition.find(id));
+        } finally {
+            partition.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long count() {
+        return readPartition().size.get();
+    }
+
+    @Override
+    public long countAllTenants() {
+        return totalSize.get();
+    }
+
+    @Override
+    public long version() {
+        return readPartition().version.get();
+    }
+
+    @Override
+    public Task saveTask(Task task) {
+        Partition partition = writePartition(TenantContext.current());
+        partition.lock.writeLock().lock();
+        try {
+            store(partition, task, task.getVersion(), false, null);
+        } finally {
+            partition.lock.writeLock().unlock();
+        }
+        partition.version.incrementAndGet();
+        return task;
+    }
+
+    // The tenant's lock is held for the whole batch, so the checks up front are exact: a batch
+    // that does not fit or would overwrite a task at NEW_TASK is rejected before anything is
+    // written.
+    @Override
+    public List<Task> saveAll(Collection<Task> batch) {
+        Partition partition = writePartition(TenantContext.current());
+        List<Task> saved = new ArrayList<>(batch.size());
+        partition.lock.writeLock().lock();
+        try {
+            int fresh = 0;
+            Set<String> seen = new HashSet<>();
+            for (Task task : batch) {
+                if (task.getId() == null) {
+                    fresh++;
+                    continue;
+                }
+                Task current = seen.add(task.getId()) ? partition.find(task.getId()) : task;
+                if (task.getVersion() == NEW_TASK) {
+                    TaskRepository.checkVersion(task.getId(), NEW_TASK, current);
+                }
+                if (current == null) {
+                    fresh++;
+                }
+            }
+            reserve(partition, fresh);
+            int[] reserved = {fresh};
+            try {
+                for (Task task : batch) {
+                    saved.add(store(partition, task, task.getVersion() == NEW_TASK ? NEW_TASK : ANY_VERSION, false,
+                            reserved));
+                }
+            } finally {
+                release(partition, reserved[0]);
+            }
+        } finally {
+            partition.lock.writeLock().unlock();
+        }
+        if (!saved.isEmpty()) {
+            partition.version.incrementAndGet();
+        }
+        return saved;
+    }
+
+    // Recovery must not lose tasks, so neither the tenant's limit nor the store's is applied.
+    @Override
+    public Task restore(Task task) {
+        String tenant = task.getTenant() == null ? TenantContext.DEFAULT_TENANT : task.getTenant();
+        Partition partition = writePartition(tenant);
+        partition.lock.writeLock().lock();
+        try {
+            store(partition, task, ANY_VERSION, true, null);
+        } finally {
+            partition.lock.writeLock().unlock();
+        }
+        partition.version.incrementAndGet();
+        return task;
+    }
+
+    @Override
+    public void deleteById(String id) {
+        Partition partition = readPartition();
+        if (partition == EMPTY) {
+            return;
+        }
+        boolean deleted;
+        partition.lock.writeLock().lock();
+        try {
+            deleted = delete(partition, id, false) != null;
+        } finally {
+            partition.lock.writeLock().unlock();
+        }
+        if (deleted) {
+            partition.version.incrementAndGet();
+        }
+    }
+
+    @Override
+    public Optional<Task> toggleById(String id) {
+        return toggleById(id, ANY_VERSION);
+    }
+
+    @Override
+    public Optional<Task> toggleById(String id, long expectedVersion) {
+        Partition partition = readPartition();
+        if (partition == EMPTY) {
+            return Optional.empty();
+        }
+        Task toggled;
+        partition.lock.writeLock().lock();
+        try {
+            toggled = toggle(partition, id, expectedVersion);
+        } finally {
+            partition.lock.writeLock().unlock();
+        }
+        if (toggled != null) {
+            partition.version.incrementAndGet();
+        }
+        return Optional.ofNullable(toggled);
+    }
+
+    @Override
+    public Map<String, Task> toggleAll(Collection<String> batch) {
+        Partition partition = readPartition();
+        Map<String, Task> toggled = new LinkedHashMap<>();
+        if (partition == EMPTY) {
+            return toggled;
+        }
+        partition.lock.writeLock().lock();
+        try {
+            for (String id : batch) {
+                Task task = toggle(partition, id, ANY_VERSION);
+                if (task != null) {
+                    toggled.put(id, task);
+                }
+            }
+        } finally {
+            partition.lock.writeLock().unlock();
+        }
+        if (!toggled.isEmpty()) {
+            partition.version.incrementAndGet();
+        }
+        return toggled;
+    }
+
+    @Override
+    public Optional<Task> deleteByIdIfCompleted(String id) {
+        Partition partition = readPartition();
+        if (partition == EMPTY) {
+            return Optional.empty();
+        }
+        Task task;
+        partition.lock.writeLock().lock();
+        try {
+            task = partition.find(id);
+            if (task != null && task.isCompleted()) {
+                delete(partition, id, true);
+            }
+        } finally {
+            partition.lock.writeLock().unlock();
+        }
+        if (task != null && task.isCompleted()) {
+            partition.version.incrementAndGet();
+        }
+        return Optional.ofNullable(task);
+    }
+
+    @Override
+    public int deleteCompleted() {
+        Partition partition = readPartition();
+        if (partition == EMPTY) {
+            return 0;
+        }
+        int deleted = 0;
+        partition.lock.writeLock().lock();
+        try {
+            for (Task task : partition.tasksAfter(null, Integer.MAX_VALUE, true).getTasks()) {
+                if (delete(partition, task.getId(), true) != null) {
+                    deleted++;
+                }
+            }
+        } finally {
+            partition.lock.writeLock().unlock();
+        }
+        if (deleted > 0) {
+            partition.version.incrementAndGet();
+        }
+        return deleted;
+    }
+
+    // Called under the partition's write lock. New tasks take room in the tenant and the store
+    // unless the batch reserved it for them; restored tasks are not held to the limits.
+    private Task store(Partition partition, Task task, long expectedVersion, boolean restoring, int[] reserved) {
+        if (task.getId() == null) {
+            task.setId(UUID.randomUUID().toString());
+        }
+        Task previous = partition.find(task.getId());
+        TaskRepository.checkVersion(task.getId(), expectedVersion, previous);
+        if (previous == null) {
+            if (restoring) {
+                partition.size.incrementAndGet();
+                totalSize.incrementAndGet();
+            } else if (reserved != null && reserved[0] > 0) {
+                reserved[0]--;
+            } else {
+                reserve(partition, 1);
+            }
+        }
+        if (!restoring || task.getVersion() == ANY_VERSION) {
+            task.setVersion(previous == null ? 1 : previous.getVersion() + 1);
+        }
+        task.setTenant(partition.tenant);
+        partition.put(task);
+        listeners.forEach(listener -> listener.taskSaved(previous, task));
+        return task;
+    }
+
+    // Called under the partition's write lock.
+    private Task toggle(Partition partition, String id, long expectedVersion) {
+        Task task = partition.find(id);
+        if (task == null) {
+            return null;
+        }
+        TaskRepository.checkVersion(id, expectedVersion, task);
+        Task next = new Task(id, task.getDescription(), !task.isCompleted(), task.getVersion() + 1, partition.tenant);
+        partition.put(next);
+        listeners.forEach(listener -> listener.taskSaved(task, next));
+        return next;
+    }
+
+    // Called under the partition's write lock; returns the deleted task.
+    private Task delete(Partition partition, String id, boolean onlyCompleted) {
+        Task task = partition.find(id);
+        if (task == null || (onlyCompleted && !task.isCompleted())) {
+            return null;
+        }
+        partition.remove(id);
+        release(partition, 1);
+        listeners.forEach(listener -> listener.taskDeleted(id, task));
+        return task;
+    }
+
+    // Takes room for new tasks in the partition and in the store, or throws if the tenant or the
+    // store has reached its limit.
+    private void reserve(Partition partition, long count) {
+        if (!TaskRepository.tryReserve(partition.size, count, maxTasksPerTenant)) {
+            throw new TaskQuotaExceededException(partition.tenant, maxTasksPerTenant);
+        }
+        if (!TaskRepository.tryReserve(totalSize, count, maxTasks)) {
+            partition.size.addAndGet(-count);
+            throw new TaskCapacityExceededException(maxTasks);
+        }
+    }
+
+    private void release(Partition partition, long count) {
+        partition.size.addAndGet(-count);
+        totalSize.addAndGet(-count);
+    }
+
+    // One tenant's tasks. Everything but the counters is only touched under the lock.
+    private static final class Partition {
+
+        private static final int INITIAL_SLOTS = 16;
+        private static final int NO_DESCRIPTION = -1;
+        // Entries of the id table: slot + 1, or one of these.
+        private static final int FREE = 0;
+        private static final int DELETED = -1;
+
+        final String tenant;
+        final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+        // Number of tasks, reserved before a task is created so the limits hold.
+        final AtomicLong size = new AtomicLong();
+        // Bumped after every mutation is visible.
+        final AtomicLong version = new AtomicLong();
+
+        long[] mostSignificantBits = new long[INITIAL_SLOTS];
+        long[] leastSignificantBits = new long[INITIAL_SLOTS];
+        long[] versions = new long[INITIAL_SLOTS];
+        int[] descriptionOffsets = new int[INITIAL_SLOTS];
+        int[] descriptionLengths = new int[INITIAL_SLOTS];
+        final BitSet completed = new BitSet();
+        int slotCount;
+        int[] freeSlots = new int[INITIAL_SLOTS];
+        int freeSlotCount;
+
+        int[] table = new int[2 * INITIAL_SLOTS];
+        // Entries of the table that are not FREE, tombstones included.
+        int tableUsed;
+
+        byte[] arena = new byte[16 * INITIAL_SLOTS];
+        int arenaSize;
+        int arenaGarbage;
+
+        final SlotOrder completedOrder = new SlotOrder(this);
+        final SlotOrder pendingOrder = new SlotOrder(this);
+
+        // Tasks whose ids are not canonical UUIDs, and how many of them are completed.
+        final NavigableMap<String, Task> otherTasks = new TreeMap<>();
+        int otherCompleted;
+
+        Partition(String tenant) {
+            this.tenant = tenant;
+        }
+
+        Task find(String id) {
+            UUID uuid = parseCanonical(id);
+            if (uuid == null) {
+                Task task = otherTasks.get(id);
+                return task == null ? null : copy(task);
+            }
+            int slot = findSlot(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+            return slot < 0 ? null : view(slot, id);
+        }
+
+        void put(Task task) {
+            UUID uuid = parseCanonical(task.getId());
+            if (uuid == null) {
+                Task previous = otherTasks.put(task.getId(), copy(task));
+                otherCompleted += (task.isCompleted() ? 1 : 0) - (previous != null && previous.isCompleted() ? 1 : 0);
+                return;
+            }
+            long msb = uuid.getMostSignificantBits();
+            long lsb = uuid.getLeastSignificantBits();
+            int slot = findSlot(msb, lsb);
+            if (slot < 0) {
+                slot = allocateSlot();
+                mostSignificantBits[slot] = msb;
+                leastSignificantBits[slot] = lsb;
+                insertIntoTable(msb, lsb, slot);
+                order(task.isCompleted()).insert(slot);
+            } else {
+                releaseDescription(slot);
+                if (completed.get(slot) != task.isCompleted()) {
+                    order(completed.get(slot)).remove(slot);
+                    order(task.isCompleted()).insert(slot);
+                }
+            }
+            completed.set(slot, task.isCompleted());
+            versions[slot] = task.getVersion();
+            storeDescription(slot, task.getDescription());
+        }
+
+        void remove(String id) {
+            UUID uuid = parseCanonical(id);
+            if (uuid == null) {
+                Task previous = otherTasks.remove(id);
+                if (previous != null && previous.isCompleted()) {
+                    otherCompleted--;
+                }
+                return;
+            }
+            int position = findPosition(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+            if (position < 0) {
+                return;
+            }
+            int slot = table[position] - 1;
+            table[position] = DELETED;
+            order(completed.get(slot)).remove(slot);
+            completed.clear(slot);
+            releaseDescription(slot);
+            if (freeSlotCount == freeSlots.length) {
+                freeSlots = Arrays.copyOf(freeSlots, 2 * freeSlotCount);
+            }
+            freeSlots[freeSlotCount++] = slot;
+        }
+
+        SlotOrder order(boolean completed) {
+            return completed ? completedOrder : pendingOrder;
+        }
+
+        // Up to size tasks with ids after the cursor in id order, all of them or only those with
+        // the given completed flag, merged from the slot orders and the other ids.
+        TaskPage tasksAfter(String cursor, int size, Boolean completed) {
+            List<Iterator<Task>> sources = new ArrayList<>(3);
+            if (completed == null || completed) {
+                sources.add(completedOrder.tasksAfter(cursor));
+            }
+            if (completed == null || !completed) {
+                sources.add(pendingOrder.tasksAfter(cursor));
+            }
+            Collection<Task> others = cursor == null ? otherTasks.values() : otherTasks.tailMap(cursor, false).values();
+            sources.add(others.stream()
+                    .filter(task -> completed == null || task.isCompleted() == completed)
+                    .map(Partition::copy)
+                    .iterator());
+
+            Task[] heads = new Task[sources.size()];
+            for (int i = 0; i < heads.length; i++) {
+                heads[i] = sources.get(i).hasNext() ? sources.get(i).next() : null;
+            }
+            List<Task> page = new ArrayList<>((int) Math.min(size, this.size.get()));
+            while (true) {
+                int next = -1;
+                for (int i = 0; i < heads.length; i++) {
+                    if (heads[i] != null && (next < 0 || heads[i].getId().compareTo(heads[next].getId()) < 0)) {
+                        next = i;
+                    }
+                }
+                if (next < 0) {
+                    return new TaskPage(page, null);
+                }
+                if (page.size() == size) {
+                    return new TaskPage(page, page.get(page.size() - 1).getId());
+                }
+                page.add(heads[next]);
+                heads[next] = sources.get(next).hasNext() ? sources.get(next).next() : null;
+            }
+        }
+
+        Task view(int slot, String id) {
+            int length = descriptionLengths[slot];
+            String description = length == NO_DESCRIPTION
+                    ? null : new String(arena, descriptionOffsets[slot], length, StandardCharsets.UTF_8);
+            return new Task(id, description, completed.get(slot), versions[slot], tenant);
+        }
+
+        Task view(int slot) {
+            return view(slot, id(slot));
+        }
+
+        String id(int slot) {
+            return new UUID(mostSignificantBits[slot], leastSignificantBits[slot]).toString();
+        }
+
+        int compareSlots(int a, int b) {
+            int order = Long.compareUnsigned(mostSignificantBits[a], mostSignificantBits[b]);
+            return order != 0 ? order : Long.compareUnsigned(leastSignificantBits[a], leastSignificantBits[b]);
+        }
+
+        private int allocateSlot() {
+            if (freeSlotCount > 0) {
+                return freeSlots[--freeSlotCount];
+            }
+            if (slotCount == mostSignificantBits.length) {
+                int capacity = 2 * slotCount;
+                mostSignificantBits = Arrays.copyOf(mostSignificantBits, capacity);
+                leastSignificantBits = Arrays.copyOf(leastSignificantBits, capacity);
+                versions = Arrays.copyOf(versions, capacity);
+                descriptionOffsets = Arrays.copyOf(descriptionOffsets, capacity);
+                descriptionLengths = Arrays.copyOf(descriptionLengths, capacity);
+            }
+            return slotCount++;
+        }
+
+        private void storeDescription(int slot, String description) {
+            if (description == null) {
+                descriptionLengths[slot] = NO_DESCRIPTION;
+                return;
+            }
+            byte[] bytes = description.getBytes(StandardCharsets.UTF_8);
+            if (arena.length - arenaSize < bytes.length) {
+                if (arenaGarbage > arenaSize / 2) {
+                    compactArena();
+                }
+                if (arena.length - arenaSize < bytes.length) {
+                    long needed = (long) arenaSize + bytes.length;
+                    if (needed > Integer.MAX_VALUE - 8) {
+                        throw new IllegalStateException("Descriptions of tenant " + tenant
+                                + " do not fit in a single arena");
+                    }
+                    arena = Arrays.copyOf(arena, (int) Math.min(Integer.MAX_VALUE - 8,
+                            Math.max(2L * arena.length, needed)));
+                }
+            }
+            System.arraycopy(bytes, 0, arena, arenaSize, bytes.length);
+            descriptionOffsets[slot] = arenaSize;
+            descriptionLengths[slot] = bytes.length;
+            arenaSize += bytes.length;
+        }
+
+        private void releaseDescription(int slot) {
+            if (descriptionLengths[slot] != NO_DESCRIPTION) {
+                arenaGarbage += descriptionLengths[slot];
+                descriptionLengths[slot] = NO_DESCRIPTION;
+            }
+        }
+
+        // Moves the live descriptions to the front of the arena, dropping overwritten ones. Free
+        // slots have no description, so every slot can be walked.
+        private void compactArena() {
+            byte[] compacted = new byte[arena.length];
+            int compactedSize = 0;
+            for (int slot = 0; slot < slotCount; slot++) {
+                int length = descriptionLengths[slot];
+                if (length != NO_DESCRIPTION) {
+                    System.arraycopy(arena, descriptionOffsets[slot], compacted, compactedSize, length);
+                    descriptionOffsets[slot] = compactedSize;
+                    compactedSize += length;
+                }
+            }
+            arena = compacted;
+            arenaSize = compactedSize;
+            arenaGarbage = 0;
+        }
+
+        private int findSlot(long msb, long lsb) {
+            int position = findPosition(msb, lsb);
+            return position < 0 ? -1 : table[position] - 1;
+        }
+
+        private int findPosition(long msb, long lsb) {
+            int mask = table.length - 1;
+            for (int position = hash(msb, lsb) & mask; ; position = (position + 1) & mask) {
+                int entry = table[position];
+                if (entry == FREE) {
+                    return -1;
+                }
+                if (entry != DELETED && mostSignificantBits[entry - 1] == msb
+                        && leastSignificantBits[entry - 1] == lsb) {
+                    return position;
+                }
+            }
+        }
+
+        private void insertIntoTable(long msb, long lsb, int slot) {
+            if (4 * (tableUsed + 1) > 3 * table.length) {
+                rebuildTable();
+            }
+            int mask = table.length - 1;
+            int position = hash(msb, lsb) & mask;
+            while (table[position] != FREE && table[position] != DELETED) {
+                position = (position + 1) & mask;
+            }
+            if (table[position] == FREE) {
+                tableUsed++;
+            }
+            table[position] = slot + 1;
+        }
+
+        // Sized for twice the live tasks, so a table full of tombstones is cleaned up in place
+        // rather than grown.
+        private void rebuildTable() {
+            int[] old = table;
+            table = new int[tableSizeFor(2 * (slotCount - freeSlotCount + 1))];
+            tableUsed = 0;
+            int mask = table.length - 1;
+            for (int entry : old) {
+                if (entry != FREE && entry != DELETED) {
+                    int slot = entry - 1;
+                    int position = hash(mostSignificantBits[slot], leastSignificantBits[slot]) & mask;
+                    while (table[position] != FREE) {
+                        position = (position + 1) & mask;
+                    }
+                    table[position] = entry;
+                    tableUsed++;
+                }
+            }
+        }
+
+        private static int hash(long msb, long lsb) {
+            long h = msb ^ (lsb * 0x9E3779B97F4A7C15L);
+            return (int) (h ^ (h >>> 32));
+        }
+
+        private static int tableSizeFor(int size) {
+            return Integer.highestOneBit(Math.max(16, size - 1)) << 1;
+        }
+
+        private static Task copy(Task task) {
+            return new Task(task.getId(), task.getDescription(), task.isCompleted(), task.getVersion(),
+                    task.getTenant());
+        }
+    }
+
+    // Slots in id order, in chunks of at most CHUNK_SIZE, so an insert or a removal only shifts
+    // the entries of one chunk. An int per task, where a sorted set needs a node per task.
+    private static final class SlotOrder {
+
+        private static final int CHUNK_SIZE = 512;
+
+        private final Partition partition;
+        private int[][] chunks = new int[0][];
+        private int[] chunkSizes = new int[0];
+        private int chunkCount;
+        private int size;
+
+        SlotOrder(Partition partition) {
+            this.partition = partition;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void insert(int slot) {
+            int chunk;
+            if (chunkCount == 0) {
+                addChunk(0, new int[CHUNK_SIZE], 0);
+                chunk = 0;
+            } else {
+                chunk = Math.min(chunkContaining(slot), chunkCount - 1);
+            }
+            if (chunkSizes[chunk] == CHUNK_SIZE) {
+                int[] upper = new int[CHUNK_SIZE];
+                int half = CHUNK_SIZE / 2;
+                System.arraycopy(chunks[chunk], half, upper, 0, CHUNK_SIZE - half);
+                chunkSizes[chunk] = half;
+                addChunk(chunk + 1, upper, CHUNK_SIZE - half);
+                if (partition.compareSlots(slot, chunks[chunk][half - 1]) > 0) {
+                    chunk++;
+                }
+            }
+            int[] entries = chunks[chunk];
+            int position = positionIn(chunk, slot);
+            System.arraycopy(entries, position, entries, position + 1, chunkSizes[chunk] - position);
+            entries[position] = slot;
+            chunkSizes[chunk]++;
+            size++;
+        }
+
+        void remove(int slot) {
+            int chunk = chunkContaining(slot);
+            int position = positionIn(chunk, slot);
+            int[] entries = chunks[chunk];
+            System.arraycopy(entries, position + 1, entries, position, chunkSizes[chunk] - position - 1);
+            chunkSizes[chunk]--;
+            size--;
+            if (chunkSizes[chunk] == 0) {
+                System.arraycopy(chunks, chunk + 1, chunks, chunk, chunkCount - chunk - 1);
+                System.arraycopy(chunkSizes, chunk + 1, chunkSizes, chunk, chunkCount - chunk - 1);
+                chunks[--chunkCount] = null;
+            }
+        }
+
+        // The tasks with ids after the cursor, in id order, created as they are iterated.
+        Iterator<Task> tasksAfter(String cursor) {
+            UUID canonical = parseCanonical(cursor);
+            int chunk = 0;
+            int position = 0;
+            if (cursor != null) {
+                // First chunk whose last id is after the cursor, then the first id after it there.
+                int low = 0;
+                int high = chunkCount;
+                while (low < high) {
+                    int middle = (low + high) >>> 1;
+                    if (isAfter(chunks[middle][chunkSizes[middle] - 1], cursor, canonical)) {
+                        high = middle;
+                    } else {
+                        low = middle + 1;
+                    }
+                }
+                chunk = low;
+                if (chunk < chunkCount) {
+                    low = 0;
+                    high = chunkSizes[chunk];
+                    while (low < high) {
+                        int middle = (low + high) >>> 1;
+                        if (isAfter(chunks[chunk][middle], cursor, canonical)) {
+                            high = middle;
+                        } else {
+                            low = middle + 1;
+                        }
+                    }
+                    position = low;
+                }
+            }
+            int firstChunk = chunk;
+            int firstPosition = position;
+            return new Iterator<>() {
+                private int chunk = firstChunk;
+                private int position = firstPosition;
+
+                @Override
+                public boolean hasNext() {
+                    return chunk < chunkCount;
+                }
+
+                @Override
+                public Task next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    Task task = partition.view(chunks[chunk][position]);
+                    if (++position == chunkSizes[chunk]) {
+                        chunk++;
+                        position = 0;
+                    }
+                    return task;
+                }
+            };
+        }
+
+        private boolean isAfter(int slot, String cursor, UUID canonical) {
+            if (canonical == null) {
+                return partition.id(slot).compareTo(cursor) > 0;
+            }
+            int order = Long.compareUnsigned(partition.mostSignificantBits[slot], canonical.getMostSignificantBits());
+            return order != 0 ? order > 0
+                    : Long.compareUnsigned(partition.leastSignificantBits[slot], canonical.getLeastSignificantBits()) > 0;
+        }
+
+        // First chunk whose last slot is not before the given one; chunkCount when there is none.
+        private int chunkContaining(int slot) {
+            int low = 0;
+            int high = chunkCount;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (partition.compareSlots(chunks[middle][chunkSizes[middle] - 1], slot) < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        // Position of the slot in the chunk, or where it would be inserted.
+        private int positionIn(int chunk, int slot) {
+            int low = 0;
+            int high = chunkSizes[chunk];
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (partition.compareSlots(chunks[chunk][middle], slot) < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        private void addChunk(int at, int[] entries, int entryCount) {
+            if (chunkCount == chunks.length) {
+                int capacity = Math.max(4, 2 * chunkCount);
+                chunks = Arrays.copyOf(chunks, capacity);
+                chunkSizes = Arrays.copyOf(chunkSizes, capacity);
+            }
+            System.arraycopy(chunks, at, chunks, at + 1, chunkCount - at);
+            System.arraycopy(chunkSizes, at, chunkSizes, at + 1, chunkCount - at);
+            chunks[at] = entries;
+            chunkSizes[at] = entryCount;
+            chunkCount++;
+        }
+    }
+
+    // Only lower-case canonical UUIDs round-trip through two longs unchanged.
+    private static UUID parseCanonical(String id) {
+        if (id == null || id.length() != 36) {
+            return null;
+        }
+        try {
+            UUID uuid = UUID.fromString(id);
+            return uuid.toString().equals(id) ? uuid : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,522 @@
+package com.example.todo.repository;
+
+import com.example.todo.model.Task;
+import com.example.todo.model.TaskPage;
+import com.example.todo.tenant.TenantContext;
+import org.h2.jdbcx.JdbcConnectionPool;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * TaskStore in an embedded H2 database, for stores that should live on disk rather than
+ * in the heap. This process is assumed to be the only writer: writes to a task are
+ * serialized by a striped lock that is held across reading the previous state, writing the
+ * row and notifying listeners, which gives the same per-task atomicity and listener order as
+ * the in-memory store. Batch operations take the stripes of all their tasks in a fixed order
+ * and are written as one JDBC batch in one transaction, reusing a single prepared statement
+ * per kind of row operation. Rows are keyed by tenant and id, and every query is confined to
+ * the current tenant through the leading tenant column of the key and index. Counts by status
+ * are kept in memory per tenant and loaded at startup.
+ */
+public class JdbcTaskStore implements TaskStore, AutoCloseable {
+
+    private static final int LOCK_STRIPES = 64;
+
+    private static final String COLUMNS = "tenant, id, description, completed, version";
+    private static final String SELECT_BY_ID = "SELECT " + COLUMNS + " FROM tasks WHERE tenant = ? AND id = ?";
+    private static final String UPSERT = "MERGE INTO tasks (" + COLUMNS + ") KEY (tenant, id) VALUES (?, ?, ?, ?, ?)";
+    private static final String UPDATE_COMPLETED = "UPDATE tasks SET completed = ?, version = ? WHERE tenant = ? AND id = ?";
+    private static final String DELETE = "DELETE FROM tasks WHERE tenant = ? AND id = ?";
+
+    private final JdbcConnectionPool pool;
+    private final long maxTasksPerTenant;
+    private final long maxTasks;
+    // Rows over all tenants, reserved together with the tenant's size.
+    private final AtomicLong totalSize = new AtomicLong();
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+    private final ConcurrentMap<String, Tenant> tenants = new ConcurrentHashMap<>();
+    private final List<TaskChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    // Counters of one tenant's rows.
+    private static final class Tenant {
+
+        final String name;
+        final LongAdder completedCount = new LongAdder();
+        final LongAdder pendingCount = new LongAdder();
+        // Rows are reserved here before they are inserted, so the limit holds under concurrent
+        // creations.
+        final AtomicLong size = new AtomicLong();
+        // Bumped after every change is committed, like the in-memory store's version.
+        final AtomicLong version = new AtomicLong();
+
+        Tenant(String name) {
+            this.name = name;
+        }
+    }
+
+    public JdbcTaskStore(String url, String user, String password, int maxConnections) {
+        this(url, user, password, maxConnections, 0);
+    }
+
+    public JdbcTaskStore(String url, String user, String password, int maxConnections, long maxTasksPerTenant) {
+        this(url, user, password, maxConnections, maxTasksPerTenant, 0);
+    }
+
+    // A maxTasksPerTenant, or maxTasks over all tenants, of 0 means no limit.
+    public JdbcTaskStore(String url, String user, String password, int maxConnections, long maxTasksPerTenant,
+                         long maxTasks) {
+        this.pool = JdbcConnectionPool.create(url, user, password);
+        this.pool.setMaxConnections(maxConnections);
+        this.maxTasksPerTenant = maxTasksPerTenant;
+        this.maxTasks = maxTasks;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        try (Connection connection = pool.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS tasks (tenant VARCHAR NOT NULL, id VARCHAR NOT NULL,"
+                    + " description VARCHAR, completed BOOLEAN NOT NULL, version BIGINT NOT NULL,"
+                    + " PRIMARY KEY (tenant, id))");
+            statement.execute("CREATE INDEX IF NOT EXISTS tasks_completed_id ON tasks (tenant, completed, id)");
+            try (ResultSet counts = statement.executeQuery(
+                    "SELECT tenant, completed, COUNT(*) FROM tasks GROUP BY tenant, completed")) {
+                while (counts.next()) {
+                    Tenant tenant = writeTenant(counts.getString(1));
+                    (counts.getBoolean(2) ? tenant.completedCount : tenant.pendingCount).add(counts.getLong(3));
+                    tenant.size.addAndGet(counts.getLong(3));
+                    totalSize.addAndGet(counts.getLong(3));
+                }
+            }
+        } catch (SQLException e) {
+            pool.dispose();
+            throw new IllegalStateException("Cannot open task store " + url, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.dispose();
+    }
+
+    // Reads of a tenant without tasks see empty counters without registering the tenant.
+    private Tenant readTenant() {
+        String name = TenantContext.current();
+        Tenant tenant = tenants.get(name);
+        return tenant != null ? tenant : new Tenant(name);
+    }
+
+    private Tenant writeTenant(String name) {
+        return tenants.computeIfAbsent(name, Tenant::new);
+    }
+
+    @Override
+    public void addListener(TaskChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeListener(TaskChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public Set<String> tenants() {
+        return new TreeSet<>(tenants.keySet());
+    }
+
+    @Override
+    public List<Task> findAll() {
+        String tenant = TenantContext.current();
+        return query("SELECT " + COLUMNS + " FROM tasks WHERE tenant = ? ORDER BY id",
+                statement -> statement.setString(1, tenant));
+    }
+
+    @Override
+    public TaskPage findPage(String cursor, int size) {
+        return page(cursor == null
+                ? "SELECT " + COLUMNS + " FROM tasks WHERE tenant = ? ORDER BY id LIMIT ?"
+                : "SELECT " + COLUMNS + " FROM tasks WHERE tenant = ? AND id > ? ORDER BY id LIMIT ?", null, cursor, size);
+    }
+
+    @Override
+    public TaskPage findByCompleted(boolean completed, String cursor, int size) {
+        return page(cursor == null
+                ? "SELECT " + COLUMNS + " FROM tasks WHERE tenant = ? AND completed = ? ORDER BY id LIMIT ?"
+                : "SELECT " + COLUMNS + " FROM tasks WHERE tenant = ? AND completed = ? AND id > ? ORDER BY id LIMIT ?",
+                completed, cursor, size);
+    }
+
+    // Reads one row past the page to know whether there is a next one.
+    private TaskPage page(String sql, Boolean completed, String cursor, int size) {
+        String tenant = TenantContext.current();
+        List<Task> rows = query(sql, statement -> {
+            int parameter = 1;
+            statement.setString(parameter++, tenant);
+            if (completed != null) {
+                statement.setBoolean(parameter++, completed);
+            }
+            if (cursor != null) {
+                statement.setString(parameter++, cursor);
+            }
+            statement.setInt(parameter, size + 1);
+        });
+        if (rows.size() <= size) {
+            return new TaskPage(rows, null);
+        }
+        List<Task> page = new ArrayList<>(rows.subList(0, size));
+        return new TaskPage(page, page.get(size - 1).getId());
+    }
+
+    @Override
+    public long countByCompleted(boolean completed) {
+        Tenant tenant = readTenant();
+        return (completed ? tenant.completedCount : tenant.pendingCount).sum();
+    }
+
+    @Override
+    public Optional<Task> findById(String id) {
+        String tenant = TenantContext.current();
+        return query(SELECT_BY_ID, statement -> {
+            statement.setString(1, tenant);
+            statement.setString(2, id);
+        }).stream().findFirst();
+    }
+
+    @Override
+    public long count() {
+        return readTenant().size.get();
+    }
+
+    @Override
+    public long countAllTenants() {
+        return totalSize.get();
+    }
+
+    @Override
+    public long version() {
+        return readTenant().version.get();
+    }
+
+    @Override
+    public Task saveTask(Task task) {
+        Tenant tenant = writeTenant(TenantContext.current());
+        store(tenant, List.of(task), task.getVersion(), false);
+        tenant.version.incrementAndGet();
+        return task;
+    }
+
+    @Override
+    public List<Task> saveAll(Collection<Task> batch) {
+        List<Task> saved = new ArrayList<>(batch);
+        if (!saved.isEmpty()) {
+            Tenant tenant = writeTenant(TenantContext.current());
+            store(tenant, saved, ANY_VERSION, false);
+            tenant.version.incrementAndGet();
+        }
+        return saved;
+    }
+
+    // Recovery must not lose tasks, so the tenant's limit does not apply.
+    @Override
+    public Task restore(Task task) {
+        Tenant tenant = writeTenant(task.getTenant() != null ? task.getTenant() : TenantContext.DEFAULT_TENANT);
+        store(tenant, List.of(task), ANY_VERSION, true);
+        tenant.version.incrementAndGet();
+        return task;
+    }
+
+    @Override
+    public void deleteById(String id) {
+        Tenant tenant = readTenant();
+        if (!delete(tenant, List.of(id), false).isEmpty()) {
+            tenant.version.incrementAndGet();
+        }
+    }
+
+    @Override
+    public Optional<Task> toggleById(String id) {
+        return toggleById(id, ANY_VERSION);
+    }
+
+    @Override
+    public Optional<Task> toggleById(String id, long expectedVersion) {
+        Tenant tenant = readTenant();
+        Map<String, Task> toggled = toggle(tenant, List.of(id), expectedVersion);
+        if (!toggled.isEmpty()) {
+            tenant.version.incrementAndGet();
+        }
+        return Optional.ofNullable(toggled.get(id));
+    }
+
+    @Override
+    public Map<String, Task> toggleAll(Collection<String> batch) {
+        Tenant tenant = readTenant();
+        Map<String, Task> toggled = toggle(tenant, batch, ANY_VERSION);
+        if (!toggled.isEmpty()) {
+            tenant.version.incrementAndGet();
+        }
+        return toggled;
+    }
+
+    @Override
+    public Optional<Task> deleteByIdIfCompleted(String id) {
+        Tenant tenant = readTenant();
+        Task[] seen = new Task[1];
+        boolean deleted = locked(tenant, List.of(id), () -> {
+            seen[0] = findById(id).orElse(null);
+            return seen[0] != null && seen[0].isCompleted() && !delete(tenant, List.of(id), true).isEmpty();
+        });
+        if (deleted) {
+            tenant.version.incrementAndGet();
+        }
+        return Optional.ofNullable(seen[0]);
+    }
+
+    // Tasks toggled back to pending between the query and the delete are kept.
+    @Override
+    public int deleteCompleted() {
+        Tenant tenant = readTenant();
+        List<String> ids = new ArrayList<>();
+        for (Task task : query("SELECT " + COLUMNS + " FROM tasks WHERE tenant = ? AND completed = TRUE",
+                statement -> statement.setString(1, tenant.name))) {
+            ids.add(task.getId());
+        }
+        int deleted = delete(tenant, ids, true).size();
+        if (deleted > 0) {
+            tenant.version.incrementAndGet();
+        }
+        return deleted;
+    }
+
+    // Takes room for new rows in the tenant and in the store, or throws when either has reached
+    // its limit. Restored rows are not held to the limits.
+    private void reserve(Tenant tenant, long count, boolean restoring) {
+        if (!TaskRepository.tryReserve(tenant.size, count, restoring ? 0 : maxTasksPerTenant)) {
+            throw new TaskQuotaExceededException(tenant.name, maxTasksPerTenant);
+        }
+        if (!TaskRepository.tryReserve(totalSize, count, restoring ? 0 : maxTasks)) {
+            tenant.size.addAndGet(-count);
+            throw new TaskCapacityExceededException(maxTasks);
+        }
+    }
+
+    private void release(Tenant tenant, long count) {
+        tenant.size.addAndGet(-count);
+        totalSize.addAndGet(-count);
+    }
+
+    // Writes the tasks in one transaction. Later tasks in the batch see earlier ones with the
+    // same id as their previous state. Versions, counts and listeners are only updated once the
+    // transaction has committed, so a failed or rejected write changes nothing. Room for the new
+    // rows is reserved just before the commit and given back if it fails.
+    private void store(Tenant tenant, List<Task> batch, long expectedVersion, boolean restoring) {
+        for (Task task : batch) {
+            if (task.getId() == null) {
+                task.setId(UUID.randomUUID().toString());
+            }
+        }
+        List<String> ids = new ArrayList<>(batch.size());
+        batch.forEach(task -> ids.add(task.getId()));
+        locked(tenant, ids, () -> transaction(connection -> {
+            Map<String, Task> current = new HashMap<>();
+            List<Task> previous = new ArrayList<>(batch.size());
+            List<Long> versions = new ArrayList<>(batch.size());
+            int created = 0;
+            try (PreparedStatement select = connection.prepareStatement(SELECT_BY_ID);
+                 PreparedStatement upsert = connection.prepareStatement(UPSERT)) {
+                for (Task task : batch) {
+                    Task before = current.containsKey(task.getId())
+                            ? current.get(task.getId()) : select(select, tenant.name, task.getId());
+                    TaskRepository.checkVersion(task.getId(),
+                            task.getVersion() == NEW_TASK ? NEW_TASK : expectedVersion, before);
+                    long next = restoring && task.getVersion() != ANY_VERSION ? task.getVersion()
+                            : before == null ? 1 : before.getVersion() + 1;
+                    upsert.setString(1, tenant.name);
+                    upsert.setString(2, task.getId());
+                    upsert.setString(3, task.getDescription());
+                    upsert.setBoolean(4, task.isCompleted());
+                    upsert.setLong(5, next);
+                    upsert.addBatch();
+                    if (before == null) {
+                        created++;
+                    }
+                    previous.add(before);
+                    versions.add(next);
+                    current.put(task.getId(), new Task(task.getId(), task.getDescription(), task.isCompleted(), next,
+                            tenant.name));
+                }
+                upsert.executeBatch();
+            }
+            reserve(tenant, created, restoring);
+            try {
+                connection.commit();
+            } catch (SQLException e) {
+                release(tenant, created);
+                throw e;
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                Task task = batch.get(i);
+                task.setVersion(versions.get(i));
+                task.setTenant(tenant.name);
+                Task before = previous.get(i);
+                if (before != null) {
+                    (before.isCompleted() ? tenant.completedCount : tenant.pendingCount).decrement();
+                }
+                (task.isCompleted() ? tenant.completedCount : tenant.pendingCount).increment();
+                listeners.forEach(listener -> listener.taskSaved(before, task));
+            }
+            return null;
+        }));
+    }
+
+    private Map<String, Task> toggle(Tenant tenant, Collection<String> ids, long expectedVersion) {
+        return locked(tenant, ids, () -> transaction(connection -> {
+            Map<String, Task> previous = new LinkedHashMap<>();
+            Map<String, Task> toggled = new LinkedHashMap<>();
+            try (PreparedStatement select = connection.prepareStatement(SELECT_BY_ID);
+                 PreparedStatement update = connection.prepareStatement(UPDATE_COMPLETED)) {
+                for (String id : ids) {
+                    Task before = toggled.containsKey(id) ? toggled.get(id) : select(select, tenant.name, id);
+                    if (before == null) {
+                        continue;
+                    }
+                    TaskRepository.checkVersion(id, expectedVersion, before);
+                    Task next = new Task(id, before.getDescription(), !before.isCompleted(), before.getVersion() + 1,
+                            tenant.name);
+                    update.setBoolean(1, next.isCompleted());
+                    update.setLong(2, next.getVersion());
+                    update.setString(3, tenant.name);
+                    update.setString(4, id);
+                    update.addBatch();
+                    previous.putIfAbsent(id, before);
+                    toggled.put(id, next);
+                }
+                update.executeBatch();
+            }
+            connection.commit();
+            for (Task next : toggled.values()) {
+                Task before = previous.get(next.getId());
+                if (before.isCompleted() != next.isCompleted()) {
+                    (before.isCompleted() ? tenant.completedCount : tenant.pendingCount).decrement();
+                    (next.isCompleted() ? tenant.completedCount : tenant.pendingCount).increment();
+                }
+                listeners.forEach(listener -> listener.taskSaved(before, next));
+            }
+            return toggled;
+        }));
+    }
+
+    // Returns the tasks that were deleted, as they were.
+    private List<Task> delete(Tenant tenant, Collection<String> ids, boolean onlyCompleted) {
+        return locked(tenant, ids, () -> transaction(connection -> {
+            Map<String, Task> deleted = new LinkedHashMap<>();
+            try (PreparedStatement select = connection.prepareStatement(SELECT_BY_ID);
+                 PreparedStatement delete = connection.prepareStatement(DELETE)) {
+                for (String id : ids) {
+                    Task task = deleted.containsKey(id) ? null : select(select, tenant.name, id);
+                    if (task == null || (onlyCompleted && !task.isCompleted())) {
+                        continue;
+                    }
+                    delete.setString(1, tenant.name);
+                    delete.setString(2, id);
+                    delete.addBatch();
+                    deleted.put(id, task);
+                }
+                delete.executeBatch();
+            }
+            connection.commit();
+            for (Task task : deleted.values()) {
+                (task.isCompleted() ? tenant.completedCount : tenant.pendingCount).decrement();
+                release(tenant, 1);
+                listeners.forEach(listener -> listener.taskDeleted(task.getId(), task));
+            }
+            return new ArrayList<>(deleted.values());
+        }));
+    }
+
+    // Takes the stripes of all ids in index order, so batches never deadlock each other.
+    // The locks are reentrant, so an operation can call another one on the same ids.
+    private <T> T locked(Tenant tenant, Collection<String> ids, SqlSupplier<T> action) {
+        BitSet stripes = new BitSet(LOCK_STRIPES);
+        ids.forEach(id -> stripes.set(Math.floorMod(31 * tenant.name.hashCode() + id.hashCode(), LOCK_STRIPES)));
+        for (int stripe = stripes.nextSetBit(0); stripe >= 0; stripe = stripes.nextSetBit(stripe + 1)) {
+            locks[stripe].lock();
+        }
+        try {
+            return action.get();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Task store update failed", e);
+        } finally {
+            for (int stripe = stripes.nextSetBit(0); stripe >= 0; stripe = stripes.nextSetBit(stripe + 1)) {
+                locks[stripe].unlock();
+            }
+        }
+    }
+
+    private <T> T transaction(SqlFunction<Connection, T> work) throws SQLException {
+        try (Connection connection = pool.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                return work.apply(connection);
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    private List<Task> query(String sql, SqlConsumer<PreparedStatement> parameters) {
+        try (Connection connection = pool.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            parameters.accept(statement);
+            List<Task> tasks = new ArrayList<>();
+            try (ResultSet rows = statement.executeQuery()) {
+                while (rows.next()) {
+                    tasks.add(task(rows));
+                }
+            }
+            return tasks;
+        } catch (SQLException e) {
+            throw new IllegalStateException("Task store query failed", e);
+        }
+    }
+
+    private static Task select(PreparedStatement select, String tenant, String id) throws SQLException {
+        select.setString(1, tenant);
+        select.setString(2, id);
+        try (ResultSet rows = select.executeQuery()) {
+            return rows.next() ? task(rows) : null;
+        }
+    }
+
+    private static Task task(ResultSet rows) throws SQLException {
+        return new Task(rows.getString(2), rows.getString(3), rows.getBoolean(4), rows.getLong(5), rows.getString(1));
+    }
+
+    @FunctionalInterface
+    private interface SqlSupplier<T> {
+        T get() throws SQLException;
+    }
+
+    @FunctionalInterface
+    private interface SqlFunction<A, T> {
+        T apply(A argument) throws SQLException;
+    }
+
+    @FunctionalInterface
+    private interface SqlConsumer<A> {
+        void accept(A argument) throws SQLException;
+    }
+}
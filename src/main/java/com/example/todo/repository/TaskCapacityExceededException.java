@@ -0,0 +1,21 @@
+package com.example.todo.repository;
+
+/**
+ * Thrown when creating tasks would take the store as a whole, over all tenants, past its task
+ * limit. Unlike a tenant's quota this protects the server itself, so the rejection is meant to
+ * be temporary: it lasts until tasks are removed. As with the quota, nothing is written for the
+ * rejected tasks.
+ */
+public class TaskCapacityExceededException extends RuntimeException {
+
+    private final long limit;
+
+    public TaskCapacityExceededException(long limit) {
+        super("The store already holds the maximum of " + limit + " tasks");
+        this.limit = limit;
+    }
+
+    public long getLimit() {
+        return limit;
+    }
+}
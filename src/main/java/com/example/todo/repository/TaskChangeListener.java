@@ -0,0 +1,29 @@
+package com.example.todo.repository;
+
+import com.example.todo.model.Task;
+
+/**
+ * Receives every mutation applied by a {@link TaskStore}. Callbacks run while the
+ * store still holds the lock for the affected task, so they observe changes to a
+ * given task in the order they were applied and must return quickly without calling
+ * back into the store.
+ * <p>
+ * The store calls the two-argument forms, which also pass the task as it was before
+ * the change ({@code null} when it was created) and default to the id-only forms.
+ */
+public interface TaskChangeListener {
+
+    default void taskSaved(Task task) {
+    }
+
+    default void taskDeleted(String id) {
+    }
+
+    default void taskSaved(Task previous, Task task) {
+        taskSaved(task);
+    }
+
+    default void taskDeleted(String id, Task previous) {
+        taskDeleted(id);
+    }
+}
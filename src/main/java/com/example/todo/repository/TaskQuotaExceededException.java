@@ -0,0 +1,25 @@
+package com.example.todo.repository;
+
+/**
+ * Thrown when creating tasks would take a tenant past its task limit. Updates to existing
+ * tasks are never refused, and nothing is written for the rejected tasks.
+ */
+public class TaskQuotaExceededException extends RuntimeException {
+
+    private final String tenant;
+    private final long limit;
+
+    public TaskQuotaExceededException(String tenant, long limit) {
+        super("Tenant " + tenant + " already has the maximum of " + limit + " tasks");
+        this.tenant = tenant;
+        this.limit = limit;
+    }
+
+    public String getTenant() {
+        return tenant;
+    }
+
+    public long getLimit() {
+        return limit;
+    }
+}
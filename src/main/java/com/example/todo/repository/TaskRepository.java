@@ -1,36 +1,666 @@
 package com.example.todo.repository;
 
 import com.example.todo.model.Task;
+import com.example.todo.model.TaskPage;
+import com.example.todo.tenant.TenantContext;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Repository;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
 
+// In-memory TaskStore, the default backend. Each tenant has its own partition of maps and
+// indexes, so tenants never contend with each other. With a ColdTaskSegment configured,
+// completed tasks that have not been written for a while are moved to disk and read back from
+// there; their ids stay in the indexes, so counts, pages and lookups do not change.
 @Repository
-public class TaskRepository {
+@ConditionalOnProperty(name = "todo.store.type", havingValue = "memory", matchIfMissing = true)
+public class TaskRepository implements TaskStore {
 
-    private static final Map<String, Task> tasks = new HashMap<>();
+    private static final Logger log = LoggerFactory.getLogger(TaskRepository.class);
 
+    static final long SPILL_INTERVAL_MILLIS = 1000;
+
+    private final ConcurrentMap<String, Partition> partitions = new ConcurrentHashMap<>();
+
+    // Read by tenants without a partition yet, so reads never create one. Never written.
+    private static final Partition EMPTY = new Partition(null);
+
+    private final List<TaskChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    private final long maxTasksPerTenant;
+    private final long maxTasks;
+    // Number of tasks over all partitions, reserved together with the partition's size.
+    private final AtomicLong totalSize = new AtomicLong();
+    private final ColdTaskSegment coldTasks;
+    private final ScheduledExecutorService spiller;
+    private final ReentrantLock spillLock = new ReentrantLock();
+
+    // Completed tasks on the heap over all partitions, the sizes of their completedSince maps,
+    // so writers check the spill limit without walking every tenant.
+    private final LongAdder hotCompleted = new LongAdder();
+
+    public TaskRepository() {
+        this(null, 0);
+    }
+
+    public TaskRepository(ColdTaskSegment coldTasks) {
+        this(coldTasks, 0);
+    }
+
+    public TaskRepository(ColdTaskSegment coldTasks, long maxTasksPerTenant) {
+        this(coldTasks, maxTasksPerTenant, 0);
+    }
+
+    // maxTasksPerTenant and maxTasks, the limit over all tenants, of 0 mean no limit.
+    @Autowired
+    public TaskRepository(@Nullable ColdTaskSegment coldTasks,
+                          @Value("${todo.tenants.max-tasks:0}") long maxTasksPerTenant,
+                          @Value("${todo.store.max-tasks:0}") long maxTasks) {
+        this.maxTasksPerTenant = maxTasksPerTenant;
+        this.maxTasks = maxTasks;
+        this.coldTasks = coldTasks;
+        if (coldTasks == null) {
+            this.spiller = null;
+            return;
+        }
+        this.spiller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "task-spill");
+            thread.setDaemon(true);
+            return thread;
+        });
+        spiller.scheduleWithFixedDelay(() -> {
+            spillCompleted();
+            compactColdTasks();
+        }, SPILL_INTERVAL_MILLIS, SPILL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void close() {
+        if (spiller != null) {
+            spiller.shutdownNow();
+        }
+    }
+
+    // One tenant's tasks and indexes.
+    private static final class Partition {
+
+        final String tenant;
+
+        // ConcurrentHashMap locks per bin on writes and never on reads, so writers to
+        // different tasks do not serialize and every single-key operation is linearizable.
+        final ConcurrentMap<String, Task> tasks = new ConcurrentHashMap<>();
+
+        // Sorted view of the ids used as the keyset for cursor pagination. It is only
+        // updated inside compute on the owning key, so it never disagrees with the map
+        // for longer than a single write.
+        final ConcurrentSkipListSet<String> ids = new ConcurrentSkipListSet<>();
+
+        // Secondary indexes on the completed flag, maintained the same way as the id keyset,
+        // so filtered pages and counts never scan the whole partition.
+        final ConcurrentSkipListSet<String> completedIds = new ConcurrentSkipListSet<>();
+        final ConcurrentSkipListSet<String> pendingIds = new ConcurrentSkipListSet<>();
+        final LongAdder completedCount = new LongAdder();
+        final LongAdder pendingCount = new LongAdder();
+
+        // Number of tasks, reserved before a task is created so the limit holds under concurrent
+        // creations.
+        final AtomicLong size = new AtomicLong();
+
+        // Bumped after every mutation is visible in the map, so a reader that captures it
+        // before reading never pairs a version with data older than that version.
+        final AtomicLong version = new AtomicLong();
+
+        // When each completed task on the heap was last written (System.nanoTime), the
+        // candidates for spilling. Only tracked while a cold segment is configured.
+        final ConcurrentMap<String, Long> completedSince = new ConcurrentHashMap<>();
+
+        Partition(String tenant) {
+            this.tenant = tenant;
+        }
+    }
+
+    private Partition readPartition() {
+        return partitions.getOrDefault(TenantContext.current(), EMPTY);
+    }
+
+    private Partition writePartition(String tenant) {
+        return partitions.computeIfAbsent(tenant, Partition::new);
+    }
+
+    @Override
+    public void addListener(TaskChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeListener(TaskChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public Set<String> tenants() {
+        return new TreeSet<>(partitions.keySet());
+    }
+
+    // Like the map's own iteration, this is not a snapshot: a task spilled or written back
+    // while the store is being read may be missed.
+    @Override
     public List<Task> findAll() {
-        return new ArrayList<>(tasks.values());
+        Partition partition = readPartition();
+        List<Task> all = new ArrayList<>(partition.tasks.values());
+        if (coldTasks != null && partition != EMPTY) {
+            coldTasks.forEach(partition.tenant, task -> {
+                if (!partition.tasks.containsKey(task.getId())) {
+                    all.add(task);
+                }
+            });
+        }
+        return all;
+    }
+
+    // In tenant and id order, the order snapshots are written in: recovery then appends to the
+    // sorted indexes instead of inserting all over them, which is several times faster.
+    @Override
+    public List<Task> findAllTenants() {
+        List<Task> all = new ArrayList<>();
+        for (String tenant : tenants()) {
+            Partition partition = partitions.get(tenant);
+            for (String id : partition.ids) {
+                Task task = get(partition, id);
+                if (task != null) {
+                    all.add(task);
+                }
+            }
+        }
+        return all;
+    }
+
+    // Returns up to size tasks with ids strictly after the cursor (or from the start when
+    // the cursor is null), in id order, without copying the rest of the store.
+    @Override
+    public TaskPage findPage(String cursor, int size) {
+        Partition partition = readPartition();
+        return page(partition, partition.ids, cursor, size, null);
+    }
+
+    @Override
+    public TaskPage findByCompleted(boolean completed, String cursor, int size) {
+        Partition partition = readPartition();
+        return page(partition, completed ? partition.completedIds : partition.pendingIds, cursor, size, completed);
+    }
+
+    @Override
+    public long countByCompleted(boolean completed) {
+        Partition partition = readPartition();
+        return (completed ? partition.completedCount : partition.pendingCount).sum();
+    }
+
+    private TaskPage page(Partition partition, NavigableSet<String> index, String cursor, int size, Boolean completed) {
+        NavigableSet<String> keys = cursor == null ? index : index.tailSet(cursor, false);
+        List<Task> page = new ArrayList<>(size);
+        String lastId = null;
+        for (String id : keys) {
+            if (page.size() == size) {
+                return new TaskPage(page, lastId);
+            }
+            Task task = get(partition, id);
+            if (task != null && (completed == null || task.isCompleted() == completed)) {
+                page.add(task);
+                lastId = id;
+            }
+        }
+        return new TaskPage(page, null);
+    }
+
+    // Called inside compute for the key, so index updates for one task never interleave.
+    private void index(Partition partition, String id, Task task) {
+        partition.ids.add(id);
+        if (task.isCompleted()) {
+            if (partition.completedIds.add(id)) {
+                partition.completedCount.increment();
+            }
+            if (partition.pendingIds.remove(id)) {
+                partition.pendingCount.decrement();
+            }
+            if (coldTasks != null && partition.completedSince.put(id, System.nanoTime()) == null) {
+                hotCompleted.increment();
+            }
+        } else {
+            forgetCompleted(partition, id);
+            if (partition.pendingIds.add(id)) {
+                partition.pendingCount.increment();
+            }
+            if (partition.completedIds.remove(id)) {
+                partition.completedCount.decrement();
+            }
+        }
+    }
+
+    private void unindex(Partition partition, String id) {
+        partition.ids.remove(id);
+        forgetCompleted(partition, id);
+        release(partition, 1);
+        if (partition.completedIds.remove(id)) {
+            partition.completedCount.decrement();
+        }
+        if (partition.pendingIds.remove(id)) {
+            partition.pendingCount.decrement();
+        }
+    }
+
+    private void forgetCompleted(Partition partition, String id) {
+        if (partition.completedSince.remove(id) != null) {
+            hotCompleted.decrement();
+        }
+    }
+
+    // Takes room for new tasks in the partition and in the store, or throws if the tenant or the
+    // store has reached its limit.
+    private void reserve(Partition partition, long count) {
+        if (!tryReserve(partition.size, count, maxTasksPerTenant)) {
+            throw new TaskQuotaExceededException(partition.tenant, maxTasksPerTenant);
+        }
+        if (!tryReserve(totalSize, count, maxTasks)) {
+            partition.size.addAndGet(-count);
+            throw new TaskCapacityExceededException(maxTasks);
+        }
+    }
+
+    // Adds count to the size unless that would take it past the limit, 0 meaning none.
+    static boolean tryReserve(AtomicLong size, long count, long limit) {
+        if (limit <= 0) {
+            size.addAndGet(count);
+            return true;
+        }
+        long current;
+        do {
+            current = size.get();
+            if (current + count > limit) {
+                return false;
+            }
+        } while (!size.compareAndSet(current, current + count));
+        return true;
     }
 
+    private void release(Partition partition, long count) {
+        partition.size.addAndGet(-count);
+        totalSize.addAndGet(-count);
+    }
+
+    @Override
     public void deleteById(String id) {
-        tasks.remove(id);
+        Partition partition = readPartition();
+        if (partition != EMPTY && delete(partition, id, false)) {
+            partition.version.incrementAndGet();
+        }
     }
 
+    @Override
     public Task saveTask(Task task) {
+        Partition partition = writePartition(TenantContext.current());
+        store(partition, task, task.getVersion(), false, null);
+        partition.version.incrementAndGet();
+        spillIfOverCapacity();
+        return task;
+    }
+
+    // Room for the tasks that look new is reserved up front, so a batch that does not fit is
+    // rejected before anything is written. Creations are checked up front too; one that races
+    // with another creation of the same id still fails, after the tasks before it are stored.
+    @Override
+    public List<Task> saveAll(Collection<Task> batch) {
+        Partition partition = writePartition(TenantContext.current());
+        int fresh = 0;
+        Set<String> created = new HashSet<>();
+        for (Task task : batch) {
+            Task current = task.getId() == null ? null : get(partition, task.getId());
+            if (task.getVersion() == NEW_TASK && task.getId() != null) {
+                checkVersion(task.getId(), NEW_TASK, created.add(task.getId()) ? current : task);
+            }
+            if (current == null) {
+                fresh++;
+            }
+        }
+        reserve(partition, fresh);
+        int[] reserved = {fresh};
+        List<Task> saved = new ArrayList<>(batch.size());
+        try {
+            for (Task task : batch) {
+                saved.add(store(partition, task, task.getVersion() == NEW_TASK ? NEW_TASK : ANY_VERSION, false,
+                        reserved));
+            }
+        } finally {
+            release(partition, reserved[0]);
+            if (!saved.isEmpty()) {
+                partition.version.incrementAndGet();
+            }
+        }
+        spillIfOverCapacity();
+        return saved;
+    }
+
+    // Recovery must not lose tasks, so neither the tenant's limit nor the store's is applied.
+    @Override
+    public Task restore(Task task) {
+        String tenant = task.getTenant() == null ? TenantContext.DEFAULT_TENANT : task.getTenant();
+        Partition partition = writePartition(tenant);
+        store(partition, task, ANY_VERSION, true, null);
+        partition.version.incrementAndGet();
+        spillIfOverCapacity();
+        return task;
+    }
+
+    @Override
+    public Optional<Task> findById(String id) {
+        return Optional.ofNullable(get(readPartition(), id));
+    }
+
+    // Tasks on the heap are read without locking. Otherwise the cold segment is read under the
+    // key's lock, so a spill or a write bringing the task back is seen either whole or not at all.
+    private Task get(Partition partition, String id) {
+        Task task = partition.tasks.get(id);
+        if (task != null || coldTasks == null || partition == EMPTY) {
+            return task;
+        }
+        Task[] found = new Task[1];
+        partition.tasks.compute(id, (key, hot) -> {
+            found[0] = hot != null ? hot : coldTasks.find(partition.tenant, key);
+            return hot;
+        });
+        return found[0];
+    }
+
+    // Only called inside compute for the key.
+    private Task cold(Partition partition, String id) {
+        return coldTasks == null ? null : coldTasks.find(partition.tenant, id);
+    }
+
+    @Override
+    public Optional<Task> toggleById(String id) {
+        return toggleById(id, ANY_VERSION);
+    }
+
+    @Override
+    public Optional<Task> toggleById(String id, long expectedVersion) {
+        Partition partition = readPartition();
+        if (partition == EMPTY) {
+            return Optional.empty();
+        }
+        Task toggled = toggle(partition, id, expectedVersion);
+        if (toggled != null) {
+            partition.version.incrementAndGet();
+            spillIfOverCapacity();
+        }
+        return Optional.ofNullable(toggled);
+    }
+
+    @Override
+    public Map<String, Task> toggleAll(Collection<String> batch) {
+        Partition partition = readPartition();
+        Map<String, Task> toggled = new LinkedHashMap<>();
+        if (partition == EMPTY) {
+            return toggled;
+        }
+        for (String id : batch) {
+            Task task = toggle(partition, id, ANY_VERSION);
+            if (task != null) {
+                toggled.put(id, task);
+            }
+        }
+        if (!toggled.isEmpty()) {
+            partition.version.incrementAndGet();
+            spillIfOverCapacity();
+        }
+        return toggled;
+    }
+
+    @Override
+    public Optional<Task> deleteByIdIfCompleted(String id) {
+        Partition partition = readPartition();
+        if (partition == EMPTY) {
+            return Optional.empty();
+        }
+        Task[] seen = new Task[1];
+        partition.tasks.compute(id, (key, hot) -> {
+            Task task = hot != null ? hot : cold(partition, key);
+            seen[0] = task;
+            if (task == null || !task.isCompleted()) {
+                return hot;
+            }
+            unindex(partition, key);
+            if (hot == null) {
+                coldTasks.remove(partition.tenant, key);
+            }
+            listeners.forEach(listener -> listener.taskDeleted(key, task));
+            return null;
+        });
+        if (seen[0] != null && seen[0].isCompleted()) {
+            partition.version.incrementAndGet();
+        }
+        return Optional.ofNullable(seen[0]);
+    }
+
+    // Walks the completed index only; tasks toggled back to pending meanwhile are kept.
+    @Override
+    public int deleteCompleted() {
+        Partition partition = readPartition();
+        int deleted = 0;
+        for (String id : partition.completedIds) {
+            if (delete(partition, id, true)) {
+                deleted++;
+            }
+        }
+        if (deleted > 0) {
+            partition.version.incrementAndGet();
+        }
+        return deleted;
+    }
+
+    // A remapping function that throws leaves the mapping as it was, so a rejected write
+    // changes neither the map, nor the indexes, nor the task's version. A write to a spilled
+    // task brings it back to the heap. New tasks use up one of the reserved slots, if any are
+    // left, and reserve their own otherwise. Restored tasks keep their persisted version and
+    // are not held to the limits.
+    private Task store(Partition partition, Task task, long expectedVersion, boolean restoring, int[] reserved) {
         if (task.getId() == null) {
             task.setId(UUID.randomUUID().toString());
         }
-        tasks.put(task.getId(), task);
+        task.setTenant(partition.tenant);
+        partition.tasks.compute(task.getId(), (key, hot) -> {
+            Task previous = hot != null ? hot : cold(partition, key);
+            checkVersion(key, expectedVersion, previous);
+            if (previous == null) {
+                if (restoring) {
+                    partition.size.incrementAndGet();
+                    totalSize.incrementAndGet();
+                } else if (reserved != null && reserved[0] > 0) {
+                    reserved[0]--;
+                } else {
+                    reserve(partition, 1);
+                }
+            }
+            if (!restoring || task.getVersion() == ANY_VERSION) {
+                task.setVersion(previous == null ? 1 : previous.getVersion() + 1);
+            }
+            index(partition, key, task);
+            if (hot == null && previous != null) {
+                coldTasks.remove(partition.tenant, key);
+            }
+            listeners.forEach(listener -> listener.taskSaved(previous, task));
+            return task;
+        });
         return task;
     }
 
-    public Optional<Task> findById(String id) {
-        return Optional.ofNullable(tasks.get(id));
+    private Task toggle(Partition partition, String id, long expectedVersion) {
+        return partition.tasks.compute(id, (key, hot) -> {
+            Task task = hot != null ? hot : cold(partition, key);
+            if (task == null) {
+                return null;
+            }
+            checkVersion(key, expectedVersion, task);
+            Task next = new Task(task.getId(), task.getDescription(), !task.isCompleted(), task.getVersion() + 1,
+                    partition.tenant);
+            index(partition, key, next);
+            if (hot == null) {
+                coldTasks.remove(partition.tenant, key);
+            }
+            listeners.forEach(listener -> listener.taskSaved(task, next));
+            return next;
+        });
+    }
+
+    static void checkVersion(String id, long expectedVersion, Task current) {
+        if (expectedVersion == NEW_TASK ? current != null
+                : expectedVersion != ANY_VERSION && (current == null || current.getVersion() != expectedVersion)) {
+            throw new TaskVersionConflictException(id, expectedVersion, current == null ? null
+                    : new Task(current.getId(), current.getDescription(), current.isCompleted(), current.getVersion(),
+                    current.getTenant()));
+        }
+    }
+
+    private boolean delete(Partition partition, String id, boolean onlyCompleted) {
+        boolean[] deleted = new boolean[1];
+        partition.tasks.compute(id, (key, hot) -> {
+            Task task = hot != null ? hot : cold(partition, key);
+            if (task == null || (onlyCompleted && !task.isCompleted())) {
+                return hot;
+            }
+            unindex(partition, key);
+            if (hot == null) {
+                coldTasks.remove(partition.tenant, key);
+            }
+            listeners.forEach(listener -> listener.taskDeleted(key, task));
+            deleted[0] = true;
+            return null;
+        });
+        return deleted[0];
+    }
+
+    // Writers that push the completed tasks on the heap past the limit spill them themselves,
+    // so the heap stays bounded however fast tasks are completed.
+    private void spillIfOverCapacity() {
+        if (coldTasks != null && hotCompleted.sum() > coldTasks.getMaxHotCompleted()) {
+            spillCompleted();
+        }
+    }
+
+    // Moves completed tasks of all tenants to the cold segment, least recently written first:
+    // every task not written for longer than the segment's spill-after, and then as many as it
+    // takes to get a tenth below the limit, so writers at the limit do not spill on every write.
+    int spillCompleted() {
+        if (coldTasks == null || !spillLock.tryLock()) {
+            return 0;
+        }
+        try {
+            long cutoff = System.nanoTime() - coldTasks.getSpillAfter().toNanos();
+            List<SpillCandidate> candidates = new ArrayList<>();
+            for (Partition partition : partitions.values()) {
+                partition.completedSince.forEach((id, since) -> candidates.add(new SpillCandidate(partition, id, since)));
+            }
+            int limit = coldTasks.getMaxHotCompleted();
+            int excess = candidates.size() > limit ? candidates.size() - limit + limit / 10 : 0;
+            candidates.sort(Comparator.comparingLong(candidate -> candidate.since));
+            int spilled = 0;
+            for (SpillCandidate candidate : candidates) {
+                if (spilled >= excess && candidate.since - cutoff > 0) {
+                    break;
+                }
+                if (spill(candidate)) {
+                    spilled++;
+                }
+            }
+            return spilled;
+        } catch (RuntimeException e) {
+            log.error("Failed to spill completed tasks", e);
+            return 0;
+        } finally {
+            spillLock.unlock();
+        }
     }
 
+    // Not a change to the task, so listeners are not told and the store version stays. The task
+    // is written to the segment before taking the key's lock, so its writers never wait for the
+    // disk, and only published there under the lock if nobody wrote it meanwhile. Until then
+    // readers keep finding it on the heap; a copy that went stale is never published.
+    private boolean spill(SpillCandidate candidate) {
+        Partition partition = candidate.partition;
+        Task task = partition.tasks.get(candidate.id);
+        if (task == null || !task.isCompleted()) {
+            return false;
+        }
+        ColdTaskSegment.Appended appended = coldTasks.append(task);
+        boolean[] spilled = new boolean[1];
+        partition.tasks.computeIfPresent(candidate.id, (key, hot) -> {
+            Long since = partition.completedSince.get(key);
+            if (hot != task || since == null || since != candidate.since || !coldTasks.publish(appended)) {
+                return hot;
+            }
+            forgetCompleted(partition, key);
+            spilled[0] = true;
+            return null;
+        });
+        return spilled[0];
+    }
+
+    // Rewrites the cold segment once removals and spills left it mostly superseded records. Runs
+    // on the spill thread rather than in the writes that remove tasks from the segment, so no
+    // key's lock is held while the file is copied.
+    void compactColdTasks() {
+        if (coldTasks == null) {
+            return;
+        }
+        spillLock.lock();
+        try {
+            coldTasks.compactIfNeeded();
+        } catch (RuntimeException e) {
+            log.error("Failed to compact cold tasks", e);
+        } finally {
+            spillLock.unlock();
+        }
+    }
+
+    private static final class SpillCandidate {
+
+        final Partition partition;
+        final String id;
+        final long since;
+
+        SpillCandidate(Partition partition, String id, long since) {
+            this.partition = partition;
+            this.id = id;
+            this.since = since;
+        }
+    }
+
+    @Override
+    public long version() {
+        return readPartition().version.get();
+    }
+
+    @Override
     public long count() {
-        return tasks.size();
+        return readPartition().size.get();
+    }
+
+    @Override
+    public long countAllTenants() {
+        return totalSize.get();
     }
-}
\ No newline at end of file
+}
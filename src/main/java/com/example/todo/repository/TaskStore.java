@@ -0,0 +1,108 @@
+package com.example.todo.repository;
+
+import com.example.todo.model.Task;
+import com.example.todo.model.TaskPage;
+import com.example.todo.tenant.TenantContext;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Storage of tasks. The backend is chosen with {@code todo.store.type}: {@code memory}
+ * ({@link TaskRepository}, the default), {@code compact} ({@link CompactTaskStore}) or
+ * {@code jdbc} ({@link JdbcTaskStore}).
+ * <p>
+ * Every implementation must behave the same way: single-task operations are atomic, pages
+ * are returned in id order after an exclusive cursor, every task carries a version that a
+ * save can be conditioned on, {@link #version()} only grows and is bumped after a change is
+ * visible, and listeners see each change to a task in the order it was applied.
+ * <p>
+ * Tasks are partitioned by tenant. Every operation works on the partition of
+ * {@link TenantContext#current()}, except {@link #restore(Task)}, which uses the task's own
+ * tenant; saved tasks get the tenant they were saved for. Ids only need to be unique within a
+ * tenant, versions and {@link #version()} are per tenant, and a store may limit the number of
+ * tasks a tenant has, rejecting creations past it with {@link TaskQuotaExceededException}.
+ * Listeners are shared and see the changes of every tenant.
+ */
+public interface TaskStore {
+
+    // Expected version that matches any stored task, or none.
+    long ANY_VERSION = 0;
+
+    // Expected version that matches no stored task: the save only creates.
+    long NEW_TASK = -1;
+
+    void addListener(TaskChangeListener listener);
+
+    void removeListener(TaskChangeListener listener);
+
+    // Tenants that have tasks, or had them since the store was opened.
+    Set<String> tenants();
+
+    // Every tenant's tasks, for consumers that follow the whole store rather than one tenant.
+    default List<Task> findAllTenants() {
+        List<Task> all = new ArrayList<>();
+        for (String tenant : tenants()) {
+            all.addAll(TenantContext.callAs(tenant, this::findAll));
+        }
+        return all;
+    }
+
+    // Number of tasks over all tenants.
+    default long countAllTenants() {
+        long count = 0;
+        for (String tenant : tenants()) {
+            count += TenantContext.callAs(tenant, this::count);
+        }
+        return count;
+    }
+
+    List<Task> findAll();
+
+    TaskPage findPage(String cursor, int size);
+
+    TaskPage findByCompleted(boolean completed, String cursor, int size);
+
+    long countByCompleted(boolean completed);
+
+    Optional<Task> findById(String id);
+
+    long count();
+
+    long version();
+
+    // Compare-and-swap when the task carries a version: it only replaces a stored task that is
+    // still at that version and otherwise throws TaskVersionConflictException. A task at
+    // NEW_TASK is only created, and conflicts with a stored task of the same id. A task without
+    // a version is written unconditionally. Either way the task gets its new version.
+    Task saveTask(Task task);
+
+    // Writes the batch and publishes a single version change. Tasks at NEW_TASK are only
+    // created; when one of them already exists, or appears twice, the batch is rejected with
+    // TaskVersionConflictException. The others are written unconditionally. When the tenant
+    // has no room for all the new tasks in it, nothing is written.
+    List<Task> saveAll(Collection<Task> batch);
+
+    // Stores a recovered task with the version it was persisted with.
+    Task restore(Task task);
+
+    void deleteById(String id);
+
+    Optional<Task> toggleById(String id);
+
+    // Throws TaskVersionConflictException when expectedVersion is set and the task is at another.
+    Optional<Task> toggleById(String id, long expectedVersion);
+
+    // Returns the toggled tasks by id; ids that were not found are absent from the result.
+    Map<String, Task> toggleAll(Collection<String> batch);
+
+    // Returns the task as it was when the decision was made: removed if it was completed,
+    // left in place otherwise. Empty when there was no such task.
+    Optional<Task> deleteByIdIfCompleted(String id);
+
+    int deleteCompleted();
+}
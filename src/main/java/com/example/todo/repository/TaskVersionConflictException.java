@@ -0,0 +1,28 @@
+package com.example.todo.repository;
+
+import com.example.todo.model.Task;
+
+import java.util.Optional;
+
+/**
+ * Thrown when a task is written with a version that no longer matches the stored task,
+ * because someone else changed or deleted it first, or is created with an id that is already
+ * taken. Nothing is written in that case.
+ */
+public class TaskVersionConflictException extends RuntimeException {
+
+    private final transient Task current;
+
+    public TaskVersionConflictException(String id, long expectedVersion, Task current) {
+        super(expectedVersion == TaskStore.NEW_TASK ? "Task " + id + " already exists"
+                : "Task " + id + " is not at version " + expectedVersion
+                + (current == null ? ", it was deleted" : ", it is at version " + current.getVersion()));
+        this.current = current;
+    }
+
+    // The task as stored when the write was rejected; empty when it no longer exists.
+    // For a creation it is the task that already had the id.
+    public Optional<Task> getCurrent() {
+        return Optional.ofNullable(current);
+    }
+}
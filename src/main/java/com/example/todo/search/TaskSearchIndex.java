@@ -0,0 +1,211 @@
+package com.example.todo.search;
+
+import com.example.todo.model.Task;
+import com.example.todo.model.TaskPage;
+import com.example.todo.repository.TaskChangeListener;
+import com.example.todo.repository.TaskStore;
+import com.example.todo.tenant.TenantContext;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory inverted index over task descriptions. Descriptions are split on anything that
+ * is not a letter or digit and lower-cased; each query term matches a token exactly or as a
+ * prefix. Results must match every query term and are ranked by how many terms matched
+ * exactly, then by id. The index follows the store through {@link TaskChangeListener},
+ * so it is updated in the same step as the task itself. Each tenant has its own index, so a
+ * search only sees, and only contends with writes to, the current tenant's tasks.
+ */
+@Component
+public class TaskSearchIndex implements TaskChangeListener {
+
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final int EXACT_SCORE = 2;
+    private static final int PREFIX_SCORE = 1;
+
+    private final TaskStore taskStore;
+
+    private final ConcurrentMap<String, Partition> partitions = new ConcurrentHashMap<>();
+
+    private static final class Partition {
+        // token -> ids of tasks containing it
+        final ConcurrentMap<String, Set<String>> postings = new ConcurrentHashMap<>();
+        // sorted tokens, for prefix lookups; only changed inside compute on the token's postings entry
+        final ConcurrentSkipListSet<String> vocabulary = new ConcurrentSkipListSet<>();
+        // id -> distinct tokens of the indexed description, to unindex on update or delete
+        final ConcurrentMap<String, String[]> documents = new ConcurrentHashMap<>();
+    }
+
+    public TaskSearchIndex(TaskStore taskStore) {
+        this.taskStore = taskStore;
+        taskStore.addListener(this);
+        taskStore.findAllTenants().forEach(this::taskSaved);
+    }
+
+    @Override
+    public void taskSaved(Task task) {
+        Partition partition = partitions.computeIfAbsent(tenant(task), tenant -> new Partition());
+        String[] tokens = tokenize(task.getDescription());
+        String[] previous = partition.documents.put(task.getId(), tokens);
+        if (previous != null) {
+            for (String token : previous) {
+                removePosting(partition, token, task.getId());
+            }
+        }
+        for (String token : tokens) {
+            addPosting(partition, token, task.getId());
+        }
+    }
+
+    @Override
+    public void taskDeleted(String id, Task previous) {
+        Partition partition = partitions.get(tenant(previous));
+        String[] tokens = partition == null ? null : partition.documents.remove(id);
+        if (tokens != null) {
+            for (String token : tokens) {
+                removePosting(partition, token, id);
+            }
+        }
+    }
+
+    private static String tenant(Task task) {
+        return task.getTenant() == null ? TenantContext.DEFAULT_TENANT : task.getTenant();
+    }
+
+    // The cursor of the returned page is the offset of the next result in the ranking.
+    public TaskPage search(String query, String cursor, int size) {
+        String[] terms = tokenize(query);
+        Partition partition = partitions.get(TenantContext.current());
+        if (terms.length == 0 || partition == null) {
+            return new TaskPage(List.of(), null);
+        }
+        Map<String, Integer> scores = score(partition, terms);
+        List<Map.Entry<String, Integer>> ranked = new ArrayList<>(scores.entrySet());
+        ranked.sort(Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+
+        int offset = parseOffset(cursor);
+        List<Task> page = new ArrayList<>(size);
+        int position = offset;
+        while (position < ranked.size() && page.size() < size) {
+            taskStore.findById(ranked.get(position++).getKey()).ifPresent(page::add);
+        }
+        return new TaskPage(page, position < ranked.size() ? String.valueOf(position) : null);
+    }
+
+    // Candidates come from the most selective term; the remaining terms are checked against
+    // each candidate's own tokens instead of intersecting large posting sets.
+    private Map<String, Integer> score(Partition partition, String[] terms) {
+        String[] byCost = terms.clone();
+        Map<String, Integer> costs = new HashMap<>();
+        for (String term : terms) {
+            costs.put(term, estimateMatches(partition, term));
+        }
+        Arrays.sort(byCost, Comparator.comparing(costs::get));
+
+        Map<String, Integer> scores = new HashMap<>();
+        for (String id : matchingIds(partition, byCost[0])) {
+            String[] tokens = partition.documents.get(id);
+            if (tokens == null) {
+                continue;
+            }
+            int score = 0;
+            for (String term : byCost) {
+                int termScore = termScore(tokens, term);
+                if (termScore == 0) {
+                    score = 0;
+                    break;
+                }
+                score += termScore;
+            }
+            if (score > 0) {
+                scores.put(id, score);
+            }
+        }
+        return scores;
+    }
+
+    private static int estimateMatches(Partition partition, String term) {
+        int matches = 0;
+        for (String token : prefixTokens(partition, term)) {
+            Set<String> ids = partition.postings.get(token);
+            matches += ids == null ? 0 : ids.size();
+        }
+        return matches;
+    }
+
+    private static Set<String> matchingIds(Partition partition, String term) {
+        Set<String> ids = new HashSet<>();
+        for (String token : prefixTokens(partition, term)) {
+            Set<String> tokenIds = partition.postings.get(token);
+            if (tokenIds != null) {
+                ids.addAll(tokenIds);
+            }
+        }
+        return ids;
+    }
+
+    private static NavigableSet<String> prefixTokens(Partition partition, String term) {
+        return partition.vocabulary.subSet(term, true, term + Character.MAX_VALUE, false);
+    }
+
+    private static int termScore(String[] tokens, String term) {
+        int best = 0;
+        for (String token : tokens) {
+            if (token.equals(term)) {
+                return EXACT_SCORE;
+            }
+            if (token.startsWith(term)) {
+                best = PREFIX_SCORE;
+            }
+        }
+        return best;
+    }
+
+    private static void addPosting(Partition partition, String token, String id) {
+        partition.postings.compute(token, (key, ids) -> {
+            if (ids == null) {
+                ids = ConcurrentHashMap.newKeySet();
+                partition.vocabulary.add(key);
+            }
+            ids.add(id);
+            return ids;
+        });
+    }
+
+    private static void removePosting(Partition partition, String token, String id) {
+        partition.postings.computeIfPresent(token, (key, ids) -> {
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                partition.vocabulary.remove(key);
+                return null;
+            }
+            return ids;
+        });
+    }
+
+    private static int parseOffset(String cursor) {
+        if (cursor == null) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Integer.parseInt(cursor));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    static String[] tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return new String[0];
+        }
+        return SEPARATORS.splitAsStream(text.toLowerCase(Locale.ROOT))
+                .filter(token -> !token.isEmpty())
+                .distinct()
+                .toArray(String[]::new);
+    }
+}
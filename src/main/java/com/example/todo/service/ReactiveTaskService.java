@@ -0,0 +1,110 @@
+package com.example.todo.service;
+
+import com.example.todo.model.Task;
+import com.example.todo.model.TaskPage;
+import com.example.todo.tenant.TenantContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.ContextView;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking facade over {@link TaskService} for the {@code reactive} profile. Every call into
+ * the service is moved to the bounded elastic scheduler: reads block on the JDBC store and on
+ * tasks spilled to the cold segment, and writes may wait for the journal, so none of them may
+ * run on an event loop thread. The tenant travels in the subscriber context and is made current
+ * for each call into the service, on whichever thread runs it.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveTaskService {
+
+    static final int STREAM_PAGE_SIZE = 256;
+
+    private final TaskService taskService;
+
+    public ReactiveTaskService(TaskService taskService) {
+        this.taskService = taskService;
+    }
+
+    public Mono<TaskPage> findPage(Optional<Boolean> completed, String cursor, int size) {
+        return asTenant(() -> page(completed, cursor, size));
+    }
+
+    // Pages are fetched one at a time, when the subscriber requests the first task of a page, so
+    // a slow client holds at most one page in memory instead of the whole store. Tasks are
+    // generated one per request rather than flattened from pages, which would prefetch a page.
+    public Flux<Task> streamAll(Optional<Boolean> completed) {
+        return Flux.deferContextual(context -> Flux.<Task, StreamPosition>generate(StreamPosition::new, (position, sink) -> {
+                    if (!position.tasks.hasNext()) {
+                        if (position.fetched && position.nextCursor == null) {
+                            sink.complete();
+                            return position;
+                        }
+                        TaskPage page = TenantContext.callAs(tenant(context),
+                                () -> page(completed, position.nextCursor, STREAM_PAGE_SIZE));
+                        position.tasks = page.getTasks().iterator();
+                        position.nextCursor = page.getNextCursor();
+                        position.fetched = true;
+                        if (!position.tasks.hasNext()) {
+                            sink.complete();
+                            return position;
+                        }
+                    }
+                    sink.next(position.tasks.next());
+                    return position;
+                }))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    // Where a stream is in the store: the rest of the current page and the cursor of the next.
+    private static final class StreamPosition {
+
+        Iterator<Task> tasks = Collections.emptyIterator();
+        String nextCursor;
+        boolean fetched;
+    }
+
+    public Mono<Task> findById(String id) {
+        return asTenant(() -> taskService.findById(id)).flatMap(Mono::justOrEmpty);
+    }
+
+    public Mono<Task> createTask(Task task) {
+        return asTenant(() -> taskService.createTask(task));
+    }
+
+    public Mono<Task> toggleTaskStatus(String id) {
+        return asTenant(() -> taskService.toggleTaskStatus(id));
+    }
+
+    public Mono<Task> toggleTaskStatus(String id, long expectedVersion) {
+        return asTenant(() -> taskService.toggleTaskStatus(id, expectedVersion));
+    }
+
+    // Emits the error message, or completes empty when the task was removed.
+    public Mono<String> removeTask(String id) {
+        return asTenant(() -> taskService.removeTask(id)).flatMap(Mono::justOrEmpty);
+    }
+
+    private static <T> Mono<T> asTenant(Supplier<T> call) {
+        return Mono.deferContextual(context -> Mono.fromSupplier(() -> TenantContext.callAs(tenant(context), call)))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private static String tenant(ContextView context) {
+        return context.getOrDefault(TenantContext.class, TenantContext.DEFAULT_TENANT);
+    }
+
+    private TaskPage page(Optional<Boolean> completed, String cursor, int size) {
+        return completed
+                .map(c -> taskService.findByCompleted(c, cursor, size))
+                .orElseGet(() -> taskService.findPage(cursor, size));
+    }
+}
@@ -1,58 +1,329 @@
 package com.example.todo.service;
 
 import com.example.todo.model.Task;
-import com.example.todo.repository.TaskRepository;
+import com.example.todo.model.TaskBatchResult;
+import com.example.todo.model.TaskPage;
+import com.example.todo.persistence.TaskJournal;
+import com.example.todo.repository.TaskCapacityExceededException;
+import com.example.todo.repository.TaskQuotaExceededException;
+import com.example.todo.repository.TaskStore;
+import com.example.todo.repository.TaskVersionConflictException;
+import com.example.todo.search.TaskSearchIndex;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
 
 @Service
 public class TaskService {
 
-    private final TaskRepository taskRepository;
+    public static final String TASK_NOT_FOUND = "Task is not found";
+    public static final String TASK_NOT_COMPLETED = "You cannot remove uncompleted task!";
+    public static final String TASK_VERSION_CONFLICT = "Task was changed by someone else, reload and try again";
+    public static final String TASK_ALREADY_EXISTS = "A task with this id already exists";
+    public static final String TASK_QUOTA_EXCEEDED = "You have reached the maximum number of tasks";
+    public static final String TASK_CAPACITY_EXCEEDED = "The task store is full, remove tasks or try again later";
+    public static final String TASK_DESCRIPTION_EMPTY = "Task description must not be empty";
+
+    // Keeps every task within what the journal, the cold segment and replication frame as one
+    // record; a description that does not fit is rejected before the store is touched.
+    public static final int MAX_DESCRIPTION_LENGTH = 1 << 20;
+    public static final String TASK_DESCRIPTION_TOO_LONG =
+            "Task description must not be longer than " + MAX_DESCRIPTION_LENGTH + " characters";
+
+    static final String OPERATION_TIMER = "tasks.operations";
+    static final String ERROR_COUNTER = "tasks.errors";
+
+    private final TaskStore taskStore;
+    private final TaskSearchIndex taskSearchIndex;
+    // Store versions restart with the process; tags built from them are qualified by this epoch.
+    private final String epoch = UUID.randomUUID().toString();
+    // Set when the journal is enabled; writes wait for room in its buffer before they start.
+    private final TaskJournal taskJournal;
+    // Whether writes are only acknowledged once the journal has made them durable.
+    private final boolean ackWrites;
+
+    private final Timer findAllTimer;
+    private final Timer findPageTimer;
+    private final Timer searchTimer;
+    private final Timer createTimer;
+    private final Timer updateTimer;
+    private final Timer toggleTimer;
+    private final Timer removeTimer;
+    private final Timer batchCreateTimer;
+    private final Timer batchToggleTimer;
+    private final Timer removeCompletedTimer;
+    private final Counter notFoundErrors;
+    private final Counter uncompletedRemovalErrors;
+    private final Counter versionConflictErrors;
+    private final Counter quotaExceededErrors;
+    private final Counter capacityExceededErrors;
+
+    public TaskService(TaskStore taskStore) {
+        this(taskStore, new TaskSearchIndex(taskStore), Metrics.globalRegistry);
+    }
+
+    public TaskService(TaskStore taskStore, TaskSearchIndex taskSearchIndex, MeterRegistry meterRegistry) {
+        this(taskStore, taskSearchIndex, meterRegistry, null);
+    }
 
     @Autowired
-    public TaskService(TaskRepository taskRepository) {
-        this.taskRepository = taskRepository;
+    public TaskService(TaskStore taskStore, TaskSearchIndex taskSearchIndex, MeterRegistry meterRegistry,
+                       ObjectProvider<TaskJournal> taskJournal,
+                       @Value("${todo.journal.ack-writes:false}") boolean ackWrites) {
+        this(taskStore, taskSearchIndex, meterRegistry, taskJournal.getIfAvailable(), ackWrites);
+    }
+
+    public TaskService(TaskStore taskStore, TaskSearchIndex taskSearchIndex, MeterRegistry meterRegistry,
+                       TaskJournal durableWrites) {
+        this(taskStore, taskSearchIndex, meterRegistry, durableWrites, durableWrites != null);
+    }
+
+    public TaskService(TaskStore taskStore, TaskSearchIndex taskSearchIndex, MeterRegistry meterRegistry,
+                       TaskJournal taskJournal, boolean ackWrites) {
+        this.taskStore = taskStore;
+        this.taskSearchIndex = taskSearchIndex;
+        this.taskJournal = taskJournal;
+        this.ackWrites = ackWrites && taskJournal != null;
+        this.findAllTimer = timer(meterRegistry, "findAll");
+        this.findPageTimer = timer(meterRegistry, "findPage");
+        this.searchTimer = timer(meterRegistry, "search");
+        this.createTimer = timer(meterRegistry, "create");
+        this.updateTimer = timer(meterRegistry, "update");
+        this.toggleTimer = timer(meterRegistry, "toggle");
+        this.removeTimer = timer(meterRegistry, "remove");
+        this.batchCreateTimer = timer(meterRegistry, "batchCreate");
+        this.batchToggleTimer = timer(meterRegistry, "batchToggle");
+        this.removeCompletedTimer = timer(meterRegistry, "removeCompleted");
+        this.notFoundErrors = errorCounter(meterRegistry, "not_found");
+        this.uncompletedRemovalErrors = errorCounter(meterRegistry, "uncompleted_removal");
+        this.versionConflictErrors = errorCounter(meterRegistry, "version_conflict");
+        this.quotaExceededErrors = errorCounter(meterRegistry, "quota_exceeded");
+        this.capacityExceededErrors = errorCounter(meterRegistry, "capacity_exceeded");
+    }
+
+    private static Timer timer(MeterRegistry meterRegistry, String operation) {
+        return Timer.builder(OPERATION_TIMER)
+                .description("Latency of task service operations")
+                .tag("operation", operation)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private static Counter errorCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder(ERROR_COUNTER)
+                .description("Task operations rejected by the service")
+                .tag("reason", reason)
+                .register(meterRegistry);
     }
 
     public List<Task> findAll() {
-        return taskRepository.findAll();
+        return findAllTimer.record(taskStore::findAll);
+    }
+
+    public TaskPage findPage(String cursor, int size) {
+        return findPageTimer.record(() -> taskStore.findPage(cursor, size));
+    }
+
+    public TaskPage findByCompleted(boolean completed, String cursor, int size) {
+        return findPageTimer.record(() -> taskStore.findByCompleted(completed, cursor, size));
+    }
+
+    public long countByCompleted(boolean completed) {
+        return taskStore.countByCompleted(completed);
+    }
+
+    public TaskPage search(String query, String cursor, int size) {
+        return searchTimer.record(() -> taskSearchIndex.search(query, cursor, size));
+    }
+
+    public long version() {
+        return taskStore.version();
+    }
+
+    public String epoch() {
+        return epoch;
     }
 
+    // Entity tag of the tenant's task list at the given version. A tag handed out by an earlier
+    // process never matches, even once the restarted store has counted up to its version again.
+    public String versionTag(long version) {
+        return "\"" + epoch + ":" + version + "\"";
+    }
+
+    // Throws TaskQuotaExceededException when the tenant has no room for the task, and
+    // TaskCapacityExceededException when the store has none. A version sent along with a new
+    // task is ignored, and an id that is already taken is rejected with
+    // TaskVersionConflictException instead of overwriting that task.
     public Task createTask(Task task) {
-        return taskRepository.saveTask(task);
+        checkDescription(task);
+        task.setVersion(TaskStore.NEW_TASK);
+        awaitJournal();
+        try {
+            return durable(createTimer.record(() -> taskStore.saveTask(task)));
+        } catch (TaskVersionConflictException e) {
+            versionConflictErrors.increment();
+            throw e;
+        } catch (TaskQuotaExceededException e) {
+            quotaExceededErrors.increment();
+            throw e;
+        } catch (TaskCapacityExceededException e) {
+            capacityExceededErrors.increment();
+            throw e;
+        }
+    }
+
+    public List<Task> createTasks(Collection<Task> tasks) {
+        tasks.forEach(TaskService::checkDescription);
+        tasks.forEach(task -> task.setVersion(TaskStore.NEW_TASK));
+        awaitJournal();
+        try {
+            return durable(batchCreateTimer.record(() -> taskStore.saveAll(tasks)));
+        } catch (TaskVersionConflictException e) {
+            versionConflictErrors.increment();
+            throw e;
+        } catch (TaskQuotaExceededException e) {
+            quotaExceededErrors.increment();
+            throw e;
+        } catch (TaskCapacityExceededException e) {
+            capacityExceededErrors.increment();
+            throw e;
+        }
     }
 
     public Optional<Task> findById(String id) {
-        return taskRepository.findById(id);
+        return taskStore.findById(id);
     }
 
+    // Throws TaskVersionConflictException when the task carries a version it no longer has.
     public Task updateTask(Task task) {
-        return taskRepository.saveTask(task);
+        checkDescription(task);
+        awaitJournal();
+        try {
+            return durable(updateTimer.record(() -> taskStore.saveTask(task)));
+        } catch (TaskVersionConflictException e) {
+            versionConflictErrors.increment();
+            throw e;
+        } catch (TaskQuotaExceededException e) {
+            quotaExceededErrors.increment();
+            throw e;
+        } catch (TaskCapacityExceededException e) {
+            capacityExceededErrors.increment();
+            throw e;
+        }
     }
 
     public Task toggleTaskStatus(String id) {
-        Optional<Task> taskOpt = taskRepository.findById(id);
-        if (taskOpt.isPresent()) {
-            Task task = taskOpt.get();
-            task.setCompleted(!task.isCompleted());
-            return taskRepository.saveTask(task);
+        return toggleTaskStatus(id, TaskStore.ANY_VERSION);
+    }
+
+    public Task toggleTaskStatus(String id, long expectedVersion) {
+        Optional<Task> toggled;
+        awaitJournal();
+        try {
+            toggled = durable(toggleTimer.record(() -> taskStore.toggleById(id, expectedVersion)));
+        } catch (TaskVersionConflictException e) {
+            versionConflictErrors.increment();
+            throw e;
         }
-        throw new IllegalArgumentException("Task not found with id: " + id);
+        return toggled.orElseThrow(() -> {
+            notFoundErrors.increment();
+            return new IllegalArgumentException("Task not found with id: " + id);
+        });
+    }
+
+    public List<TaskBatchResult> toggleAll(Collection<String> ids) {
+        awaitJournal();
+        Map<String, Task> toggled = durable(batchToggleTimer.record(() -> taskStore.toggleAll(ids)));
+        List<TaskBatchResult> results = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            Task task = toggled.get(id);
+            results.add(task != null
+                    ? TaskBatchResult.success(task)
+                    : TaskBatchResult.failure(id, "Task not found with id: " + id));
+        }
+        return results;
+    }
+
+    public int removeCompleted() {
+        awaitJournal();
+        int removed = removeCompletedTimer.record(taskStore::deleteCompleted);
+        return durable(removed);
     }
 
     public Optional<String> removeTask(String id) {
-        Optional<Task> taskOpt = taskRepository.findById(id);
+        awaitJournal();
+        Optional<Task> taskOpt = durable(removeTimer.record(() -> taskStore.deleteByIdIfCompleted(id)));
         if (taskOpt.isEmpty()) {
-            return Optional.of("Task is not found");
+            notFoundErrors.increment();
+            return Optional.of(TASK_NOT_FOUND);
         } else if (!taskOpt.get().isCompleted()) {
-            return Optional.of("You cannot remove uncompleted task!");
+            uncompletedRemovalErrors.increment();
+            return Optional.of(TASK_NOT_COMPLETED);
         } else {
-            taskRepository.deleteById(id);
             return Optional.empty();
         }
     }
-}
\ No newline at end of file
+
+    // The message for a description that cannot be saved, for callers that report it in place.
+    public static Optional<String> descriptionError(String description) {
+        if (description == null || description.isBlank()) {
+            return Optional.of(TASK_DESCRIPTION_EMPTY);
+        }
+        if (description.length() > MAX_DESCRIPTION_LENGTH) {
+            return Optional.of(TASK_DESCRIPTION_TOO_LONG);
+        }
+        return Optional.empty();
+    }
+
+    private static void checkDescription(Task task) {
+        if (task.getDescription() != null && task.getDescription().length() > MAX_DESCRIPTION_LENGTH) {
+            throw new IllegalArgumentException(TASK_DESCRIPTION_TOO_LONG);
+        }
+    }
+
+    // Waits for room in the journal's buffer before a write, while no task is locked yet, so a
+    // slow disk holds writers back without blocking anyone under the store's locks.
+    private void awaitJournal() {
+        if (taskJournal != null) {
+            try {
+                taskJournal.awaitRoom();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the task journal", e);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    // Waits for the journal to make the write durable, when writes are acknowledged that way.
+    // Other writes finishing meanwhile share the same fsync.
+    private <T> T durable(T result) {
+        if (ackWrites) {
+            try {
+                taskJournal.flush();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the task journal", e);
+            } catch (IOException e) {
+                // The change is in memory but may not survive a restart, so it is not acknowledged.
+                throw new UncheckedIOException(e);
+            }
+        }
+        return result;
+    }
+}
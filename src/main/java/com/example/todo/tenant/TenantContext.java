@@ -0,0 +1,61 @@
+package com.example.todo.tenant;
+
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * The tenant the current thread works for. Stores partition tasks by it, so every read and
+ * write only touches the current tenant's tasks. It is set per request by {@link TenantFilter}
+ * (or, in the reactive profile, carried in the Reactor context by {@link TenantWebFilter});
+ * code running outside a request works for {@link #DEFAULT_TENANT}.
+ */
+public final class TenantContext {
+
+    public static final String DEFAULT_TENANT = "default";
+
+    private static final Pattern VALID_TENANT = Pattern.compile("[A-Za-z0-9][A-Za-z0-9_.-]{0,63}");
+
+    private static final ThreadLocal<String> current = new ThreadLocal<>();
+
+    private TenantContext() {
+    }
+
+    public static String current() {
+        String tenant = current.get();
+        return tenant == null ? DEFAULT_TENANT : tenant;
+    }
+
+    public static boolean isValid(String tenant) {
+        return tenant != null && VALID_TENANT.matcher(tenant).matches();
+    }
+
+    // Makes the tenant current until the returned scope is closed.
+    public static Scope enter(String tenant) {
+        String previous = current.get();
+        current.set(tenant);
+        return () -> {
+            if (previous == null) {
+                current.remove();
+            } else {
+                current.set(previous);
+            }
+        };
+    }
+
+    public static <T> T callAs(String tenant, Supplier<T> action) {
+        try (Scope ignored = enter(tenant)) {
+            return action.get();
+        }
+    }
+
+    public static void runAs(String tenant, Runnable action) {
+        try (Scope ignored = enter(tenant)) {
+            action.run();
+        }
+    }
+
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
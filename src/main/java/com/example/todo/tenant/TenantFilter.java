@@ -0,0 +1,46 @@
+package com.example.todo.tenant;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+// Runs the request as the tenant named in the tenant header, or the default tenant without
+// one. The header is trusted as is: it is meant to be set by an authenticating proxy.
+// Ordered before the page cache, whose entries are per tenant.
+@Component
+@Profile("!reactive")
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class TenantFilter extends OncePerRequestFilter {
+
+    private final String header;
+
+    public TenantFilter(@Value("${todo.tenants.header:X-Tenant-Id}") String header) {
+        this.header = header;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String tenant = request.getHeader(header);
+        if (tenant == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        if (!TenantContext.isValid(tenant)) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid tenant");
+            return;
+        }
+        try (TenantContext.Scope ignored = TenantContext.enter(tenant)) {
+            chain.doFilter(request, response);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.todo.tenant;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+// Reactive counterpart of TenantFilter. A request may hop threads, so the tenant travels in
+// the Reactor context under TenantContext.class and is made current around each store call.
+@Component
+@Profile("reactive")
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class TenantWebFilter implements WebFilter {
+
+    private final String header;
+
+    public TenantWebFilter(@Value("${todo.tenants.header:X-Tenant-Id}") String header) {
+        this.header = header;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String tenant = exchange.getRequest().getHeaders().getFirst(header);
+        if (tenant == null) {
+            return chain.filter(exchange);
+        }
+        if (!TenantContext.isValid(tenant)) {
+            exchange.getResponse().setStatusCode(HttpStatus.BAD_REQUEST);
+            return exchange.getResponse().setComplete();
+        }
+        return chain.filter(exchange).contextWrite(Context.of(TenantContext.class, tenant));
+    }
+}
@@ -0,0 +1,104 @@
+// Toggle and delete go through the JSON API, and the page follows /tasks/events to apply
+// changes made here or by anyone else without reloading the list. The forms still work
+// as plain posts when scripts are disabled.
+(function () {
+    const list = document.getElementById('task-list');
+    const status = list.dataset.status || null;
+
+    function row(id) {
+        return list.querySelector('[data-task-id="' + CSS.escape(id) + '"]');
+    }
+
+    function addToCount(id, delta) {
+        const badge = document.getElementById(id);
+        badge.textContent = Number(badge.textContent) + delta;
+    }
+
+    function render(element, task) {
+        const done = task.completed;
+        element.dataset.version = task.version;
+        element.querySelector('input[name="version"]').value = task.version;
+        const title = element.querySelector('h5');
+        title.textContent = task.description;
+        title.classList.toggle('completed', done);
+        const badge = element.querySelector('.badge');
+        badge.classList.toggle('bg-success', done);
+        badge.classList.toggle('bg-warning', !done);
+        badge.textContent = done ? 'Completed' : 'Pending';
+        const button = element.querySelector('form[data-action="toggle"] button');
+        button.classList.toggle('btn-warning', done);
+        button.classList.toggle('btn-success', !done);
+        button.querySelector('i').classList.toggle('bi-arrow-counterclockwise', done);
+        button.querySelector('i').classList.toggle('bi-check-lg', !done);
+        button.querySelector('span').textContent = done ? 'Mark Incomplete' : 'Mark Complete';
+        if (status !== null && (status === 'completed') !== done) {
+            element.remove();
+        }
+    }
+
+    function showError(message) {
+        const alert = document.getElementById('live-error');
+        alert.querySelector('span').textContent = message;
+        alert.classList.remove('d-none');
+    }
+
+    list.addEventListener('submit', async function (event) {
+        const form = event.target;
+        const element = form.closest('[data-task-id]');
+        if (!form.dataset.action || !element) {
+            return;
+        }
+        event.preventDefault();
+        const id = element.dataset.taskId;
+        const toggle = form.dataset.action === 'toggle';
+        const response = await fetch(list.dataset.apiUrl + encodeURIComponent(id) + (toggle ? '/toggle' : ''),
+            toggle ? {method: 'POST', headers: {'If-Match': '"' + element.dataset.version + '"'}} : {method: 'DELETE'});
+        if (!response.ok) {
+            const body = await response.json().catch(() => ({}));
+            showError(body.error || response.statusText);
+        } else if (toggle) {
+            render(element, await response.json());
+        } else {
+            element.remove();
+        }
+    });
+
+    // Counts are kept up to date by deltas, so they are only applied to the events that follow
+    // the rendered page; for any other the server sends reset and the page is reloaded.
+    const events = new EventSource(list.dataset.eventsUrl + '?after=' + encodeURIComponent(list.dataset.eventsAfter));
+    events.addEventListener('created', function (message) {
+        const task = JSON.parse(message.data).task;
+        addToCount('count-all', 1);
+        addToCount(task.completed ? 'count-completed' : 'count-pending', 1);
+        document.getElementById('new-tasks').classList.remove('d-none');
+    });
+    events.addEventListener('toggled', function (message) {
+        const task = JSON.parse(message.data).task;
+        addToCount(task.completed ? 'count-completed' : 'count-pending', 1);
+        addToCount(task.completed ? 'count-pending' : 'count-completed', -1);
+        const element = row(task.id);
+        if (element) {
+            render(element, task);
+        }
+    });
+    events.addEventListener('updated', function (message) {
+        const task = JSON.parse(message.data).task;
+        const element = row(task.id);
+        if (element) {
+            render(element, task);
+        }
+    });
+    events.addEventListener('deleted', function (message) {
+        const task = JSON.parse(message.data).task;
+        addToCount('count-all', -1);
+        addToCount(task.completed ? 'count-completed' : 'count-pending', -1);
+        const element = row(task.id);
+        if (element) {
+            element.remove();
+        }
+    });
+    events.addEventListener('reset', function () {
+        events.close();
+        location.reload();
+    });
+})();
@@ -0,0 +1,80 @@
+package com.example.todo.admission;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrencyLimitFilterTest {
+
+    private static final long TARGET = TimeUnit.MILLISECONDS.toNanos(100);
+
+    @Test
+    void requestsBeyondTheLimit_shouldBeShedWhileOthersAreInFlight() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(1, 1, 1, Duration.ofMillis(100), 0.9, registry);
+        MockHttpServletResponse shed = new MockHttpServletResponse();
+        MockHttpServletResponse events = new MockHttpServletResponse();
+
+        // Второй запрос приходит, пока первый ещё обрабатывается
+        filter.doFilter(new MockHttpServletRequest("GET", "/tasks"), new MockHttpServletResponse(),
+                (request, response) -> {
+                    filter.doFilter(new MockHttpServletRequest("POST", "/task/save"), shed, new MockFilterChain());
+                    filter.doFilter(new MockHttpServletRequest("GET", "/tasks/events"), events, new MockFilterChain());
+                });
+
+        assertEquals(503, shed.getStatus());
+        assertEquals("1", shed.getHeader("Retry-After"));
+        assertEquals(200, events.getStatus());
+        assertEquals(1, registry.get(RateLimitFilter.REJECTED_COUNTER).tag("reason", "overloaded").counter().count());
+        assertEquals(0, registry.get("http.concurrency.in.flight").gauge().value());
+    }
+
+    @Test
+    void slowResponses_shouldShrinkTheLimitAndFastOnesGrowItBack() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(20, 10, 40, TARGET, 0.5);
+        long now = System.nanoTime();
+
+        // Медленные ответы в пределах одного окна снижают лимит один раз
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limit.tryAcquire());
+            limit.release(TARGET * 2, now);
+        }
+        assertEquals(10, limit.limit());
+        assertTrue(limit.tryAcquire());
+        limit.release(TARGET * 2, now + TARGET);
+        assertEquals(10, limit.limit());
+
+        // Под полной нагрузкой быстрые ответы постепенно поднимают лимит
+        for (int round = 0; round < 30; round++) {
+            int acquired = 0;
+            while (limit.tryAcquire()) {
+                acquired++;
+            }
+            for (int i = 0; i < acquired; i++) {
+                limit.release(TARGET / 2, now + TARGET);
+            }
+        }
+        assertTrue(limit.limit() > 10);
+        assertTrue(limit.limit() <= 40);
+        assertEquals(0, limit.inFlight());
+    }
+
+    @Test
+    void fastResponses_shouldNotGrowAnUnusedLimit() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(20, 10, 40, TARGET, 0.5);
+
+        for (int i = 0; i < 1_000; i++) {
+            assertTrue(limit.tryAcquire());
+            limit.release(TARGET / 2, System.nanoTime());
+        }
+
+        assertEquals(20, limit.limit());
+    }
+}
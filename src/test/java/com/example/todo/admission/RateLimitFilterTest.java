@@ -0,0 +1,70 @@
+package com.example.todo.admission;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitFilterTest {
+
+    private SimpleMeterRegistry registry;
+    private RateLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        // Одна новая заявка в минуту, чтобы бакет не успел пополниться во время теста
+        filter = new RateLimitFilter(1 / 60.0, 3, 2, registry);
+    }
+
+    @Test
+    void writes_shouldBeRejectedOnceTheBurstIsUsedUp() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            assertEquals(200, send("POST", "/task/save", "10.0.0.1").getStatus());
+        }
+
+        MockHttpServletResponse rejected = send("POST", "/task/toggle/1", "10.0.0.1");
+
+        assertEquals(429, rejected.getStatus());
+        assertEquals(RateLimitFilter.RATE_LIMITED_MESSAGE, rejected.getErrorMessage());
+        long retryAfter = Long.parseLong(rejected.getHeader("Retry-After"));
+        assertTrue(retryAfter > 0 && retryAfter <= 60);
+        assertEquals(1, registry.get(RateLimitFilter.REJECTED_COUNTER).tag("reason", "rate_limited").counter().count());
+    }
+
+    @Test
+    void limit_shouldApplyPerClientAndNotToReads() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            send("POST", "/task/delete/1", "10.0.0.1");
+        }
+
+        assertEquals(200, send("GET", "/tasks", "10.0.0.1").getStatus());
+        assertEquals(200, send("POST", "/task/delete/1", "10.0.0.2").getStatus());
+        assertEquals(429, send("POST", "/task/delete/1", "10.0.0.1").getStatus());
+    }
+
+    @Test
+    void buckets_shouldBeKeptOnlyForTheMostRecentClients() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            send("POST", "/task/save", "10.0.0.1");
+        }
+        send("POST", "/task/save", "10.0.0.2");
+        send("POST", "/task/save", "10.0.0.3");
+
+        assertEquals(2, filter.clients());
+        // Бакет первого клиента вытеснен, и он начинает с полным
+        assertEquals(200, send("POST", "/task/save", "10.0.0.1").getStatus());
+    }
+
+    private MockHttpServletResponse send(String method, String path, String address) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.setRemoteAddr(address);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.todo.cache;
+
+import com.example.todo.events.TaskEventBus;
+import com.example.todo.events.TaskEventLog;
+import com.example.todo.model.Task;
+import com.example.todo.repository.TaskRepository;
+import com.example.todo.tenant.TenantContext;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class RenderedPageCacheFilterTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @Autowired
+    private TaskEventBus taskEventBus;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private RenderedPageCacheFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        // Очищаем репозиторий и создаём тестовые задачи
+        for (Task task : taskRepository.findAll()) {
+            taskRepository.deleteById(task.getId());
+        }
+        taskRepository.saveTask(new Task("1", "Task 1", true));
+        taskRepository.saveTask(new Task("2", "Task 2", false));
+    }
+
+    @Test
+    void getTasks_shouldServeUnchangedStoreFromCache() throws Exception {
+        double hits = hits();
+        MvcResult rendered = mockMvc.perform(get("/tasks"))
+                .andExpect(status().isOk())
+                .andExpect(model().attributeExists("tasks"))
+                .andReturn();
+
+        MvcResult cached = mockMvc.perform(get("/tasks"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", rendered.getResponse().getHeader("ETag")))
+                .andReturn();
+
+        assertNull(cached.getModelAndView());
+        assertEquals(rendered.getResponse().getContentAsString(), cached.getResponse().getContentAsString());
+        assertEquals(hits + 1, hits());
+    }
+
+    @Test
+    void getTasks_shouldSendUncachedPageWhileItRenders() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/tasks");
+        request.setRequestURI("/tasks");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        boolean[] committedWhileRendering = new boolean[1];
+
+        // Страница уходит клиенту по мере отрисовки, а в кэш попадает её полная копия
+        filter.doFilter(request, response, (req, res) -> {
+            res.setContentType("text/html;charset=UTF-8");
+            res.getWriter().write("<p>Начало</p>");
+            res.flushBuffer();
+            committedWhileRendering[0] = res.isCommitted();
+            res.getWriter().write("<p>Конец</p>");
+        });
+
+        assertTrue(committedWhileRendering[0]);
+        assertEquals("<p>Начало</p><p>Конец</p>", response.getContentAsString());
+        assertNotNull(response.getHeader("ETag"));
+        MvcResult cached = mockMvc.perform(get("/tasks")).andExpect(status().isOk()).andReturn();
+        assertNull(cached.getModelAndView());
+        assertEquals("<p>Начало</p><p>Конец</p>", cached.getResponse().getContentAsString());
+    }
+
+    @Test
+    void getTasks_shouldRenderAgainAfterMutation() throws Exception {
+        mockMvc.perform(get("/tasks")).andExpect(content().string(containsString("Task 2")));
+        taskRepository.deleteById("2");
+
+        mockMvc.perform(get("/tasks"))
+                .andExpect(model().attributeExists("tasks"))
+                .andExpect(content().string(not(containsString("Task 2"))));
+    }
+
+    @Test
+    void getApiTasks_shouldCachePerQuery() throws Exception {
+        mockMvc.perform(get("/api/tasks").param("status", "pending"))
+                .andExpect(jsonPath("$.tasks.length()").value(1));
+
+        mockMvc.perform(get("/api/tasks"))
+                .andExpect(jsonPath("$.tasks.length()").value(2));
+        mockMvc.perform(get("/api/tasks").param("status", "pending"))
+                .andExpect(jsonPath("$.tasks.length()").value(1));
+    }
+
+    @Test
+    void getTasks_shouldAnswerMatchingIfNoneMatchWithNotModified() throws Exception {
+        String etag = mockMvc.perform(get("/tasks")).andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/tasks").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        taskRepository.toggleById("2");
+        mockMvc.perform(get("/tasks").header("If-None-Match", etag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void getTasks_shouldNotMatchTagOfAnEarlierProcess() throws Exception {
+        String etag = mockMvc.perform(get("/tasks")).andReturn().getResponse().getHeader("ETag");
+        String version = etag.substring(etag.lastIndexOf(':') + 1, etag.length() - 1);
+
+        // После перезапуска версия хранилища снова доходит до того же числа
+        mockMvc.perform(get("/tasks").header("If-None-Match", "\"" + UUID.randomUUID() + ":" + version + "\""))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/tasks").header("If-None-Match", "\"" + version + "\""))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/tasks").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void getTasks_shouldKeepPagesOfTenantsThatDidNotChange() throws Exception {
+        mockMvc.perform(get("/tasks")).andExpect(status().isOk());
+        double hits = hits();
+
+        mockMvc.perform(post("/api/tasks").header("X-Tenant-Id", "acme")
+                        .contentType("application/json").content("{\"description\":\"Acme's\"}"))
+                .andExpect(status().isCreated());
+        mockMvc.perform(get("/tasks").header("X-Tenant-Id", "acme")).andExpect(status().isOk());
+        mockMvc.perform(get("/tasks")).andExpect(status().isOk());
+
+        assertEquals(hits + 1, hits());
+        TenantContext.runAs("acme", () -> taskRepository.findAll()
+                .forEach(task -> taskRepository.deleteById(task.getId())));
+    }
+
+    @Test
+    void getTasks_shouldRenderAgainOncePageEventsAreNoLongerBuffered() throws Exception {
+        mockMvc.perform(get("/tasks")).andExpect(status().isOk());
+        double hits = hits();
+
+        // События без изменения версии хранилища: страница из кэша вела бы к бесконечной перезагрузке
+        TaskEventLog events = taskEventBus.log(TenantContext.DEFAULT_TENANT);
+        for (int i = 0; i < 5_000; i++) {
+            events.taskSaved(null, new Task("phantom", "Phantom", false, 1, TenantContext.DEFAULT_TENANT));
+        }
+
+        mockMvc.perform(get("/tasks"))
+                .andExpect(model().attributeExists("tasks"))
+                .andExpect(content().string(containsString("data-events-after=\"" + taskEventBus.eventId(events.lastSequence()) + "\"")));
+        assertEquals(hits, hits());
+    }
+
+    private double hits() {
+        return meterRegistry.get(RenderedPageCacheFilter.CACHE_COUNTER).tag("result", "hit").counter().count();
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.todo.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RenderedPageCacheTest {
+
+    private static RenderedPageCache.Page page(long version, String body) {
+        return new RenderedPageCache.Page(version, 0, "text/html", body.getBytes());
+    }
+
+    @Test
+    void get_shouldOnlyReturnPagesOfRequestedVersion() {
+        RenderedPageCache cache = new RenderedPageCache(10);
+        cache.put("/tasks", page(1, "v1"));
+
+        assertEquals("v1", new String(cache.get("/tasks", 1).getBody()));
+        assertNull(cache.get("/tasks", 2));
+        assertNull(cache.get("/api/tasks", 1));
+    }
+
+    @Test
+    void put_shouldKeepOnlyTheNewestVersionOfAPage() {
+        RenderedPageCache cache = new RenderedPageCache(10);
+        cache.put("/tasks", page(1, "v1"));
+        cache.put("/tasks", page(2, "v2"));
+
+        assertNull(cache.get("/tasks", 1));
+        assertEquals("v2", new String(cache.get("/tasks", 2).getBody()));
+
+        // Страница, отрисованная по устаревшей версии, не сохраняется
+        cache.put("/tasks", page(1, "late"));
+        assertEquals("v2", new String(cache.get("/tasks", 2).getBody()));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void get_shouldDropPagesOfOlderVersions() {
+        RenderedPageCache cache = new RenderedPageCache(10);
+        cache.put("default /tasks", page(1, "v1"));
+
+        assertNull(cache.get("default /tasks", 2));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void versions_shouldBeTrackedPerTenant() {
+        RenderedPageCache cache = new RenderedPageCache(10);
+        cache.put("default /tasks", page(7, "default"));
+        // Запись в другом тенанте не вытесняет страницы первого
+        cache.put("acme /tasks", page(1, "acme v1"));
+        cache.put("acme /tasks", page(2, "acme v2"));
+
+        assertEquals("default", new String(cache.get("default /tasks", 7).getBody()));
+        assertEquals("acme v2", new String(cache.get("acme /tasks", 2).getBody()));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void put_shouldEvictLeastRecentlyUsedPages() {
+        RenderedPageCache cache = new RenderedPageCache(2);
+        cache.put("a", page(1, "a"));
+        cache.put("b", page(1, "b"));
+        cache.get("a", 1);
+        cache.put("c", page(1, "c"));
+
+        assertNotNull(cache.get("a", 1));
+        assertNull(cache.get("b", 1));
+        assertNotNull(cache.get("c", 1));
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.todo.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+class MetricsConfigTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void prometheusEndpoint_shouldExposeTaskMetrics() throws Exception {
+        mockMvc.perform(post("/task/toggle/does-not-exist"));
+        mockMvc.perform(get("/tasks"));
+
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("tasks_stored ")))
+                .andExpect(content().string(containsString("tasks_stored_by_status{status=\"pending\"}")))
+                .andExpect(content().string(containsString("tasks_operations_seconds_bucket{operation=\"toggle\"")))
+                .andExpect(content().string(containsString("tasks_errors_total{reason=\"not_found\"}")))
+                .andExpect(content().string(containsString("http_server_requests_seconds_bucket")));
+    }
+}
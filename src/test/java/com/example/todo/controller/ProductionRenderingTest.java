@@ -0,0 +1,80 @@
+package com.example.todo.controller;
+
+import com.example.todo.model.Task;
+import com.example.todo.repository.TaskRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@ActiveProfiles("prod")
+@AutoConfigureMockMvc
+class ProductionRenderingTest {
+
+    private static final Pattern STYLESHEET = Pattern.compile("/css/tasks-[0-9a-f]{32}\\.css");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @BeforeEach
+    void setUp() {
+        for (Task task : taskRepository.findAll()) {
+            taskRepository.deleteById(task.getId());
+        }
+        taskRepository.saveTask(new Task("1", "Task 1", true));
+        taskRepository.saveTask(new Task("2", "Task 2", false));
+    }
+
+    @Test
+    void taskList_shouldRenderEveryRowAndLinkAssetsByContentHash() throws Exception {
+        String page = mockMvc.perform(get("/tasks"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertTrue(page.contains("data-task-id=\"1\""));
+        assertTrue(page.contains("data-task-id=\"2\""));
+        assertTrue(page.contains("action=\"/task/toggle/2\""));
+        assertTrue(page.matches("(?s).*/js/taskList-[0-9a-f]{32}\\.js.*"));
+        assertTrue(STYLESHEET.matcher(page).find());
+    }
+
+    @Test
+    void taskList_shouldLinkEverythingUnderTheContextPath() throws Exception {
+        String page = mockMvc.perform(get("/todo/tasks").contextPath("/todo"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertTrue(page.contains("action=\"/todo/task/toggle/2\""));
+        assertTrue(page.contains("action=\"/todo/task/delete/1\""));
+        assertTrue(page.contains("data-api-url=\"/todo/api/tasks/\""));
+        assertTrue(page.contains("data-events-url=\"/todo/tasks/events\""));
+        assertTrue(page.matches("(?s).*/todo/css/tasks-[0-9a-f]{32}\\.css.*"));
+    }
+
+    @Test
+    void hashedAsset_shouldBeCachedForAYear() throws Exception {
+        String page = mockMvc.perform(get("/tasks")).andReturn().getResponse().getContentAsString();
+        Matcher stylesheet = STYLESHEET.matcher(page);
+        assertTrue(stylesheet.find());
+
+        mockMvc.perform(get(stylesheet.group()))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "max-age=31536000, public"))
+                .andExpect(content().string(containsString(".completed")));
+    }
+}
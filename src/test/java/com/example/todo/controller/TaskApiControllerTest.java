@@ -0,0 +1,312 @@
+package com.example.todo.controller;
+
+import com.example.todo.model.Task;
+import com.example.todo.repository.TaskRepository;
+import com.example.todo.service.TaskService;
+import com.example.todo.tenant.TenantContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class TaskApiControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @BeforeEach
+    void setUp() {
+        // Очищаем репозиторий и создаём тестовые задачи
+        for (Task task : taskRepository.findAll()) {
+            taskRepository.deleteById(task.getId());
+        }
+        taskRepository.saveTask(new Task("1", "Task 1", true));
+        taskRepository.saveTask(new Task("2", "Task 2", false));
+    }
+
+    @Test
+    void getTasks_shouldReturnPageAsJson() throws Exception {
+        mockMvc.perform(get("/api/tasks"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andExpect(jsonPath("$.tasks", hasSize(2)))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    @Test
+    void getTasks_shouldFilterByStatus() throws Exception {
+        mockMvc.perform(get("/api/tasks").param("status", "completed"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.tasks", hasSize(1)))
+                .andExpect(jsonPath("$.tasks[0].id").value("1"));
+    }
+
+    @Test
+    void getTasks_shouldReturnNotModifiedUntilStoreChanges() throws Exception {
+        String etag = mockMvc.perform(get("/api/tasks"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/tasks").header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        taskRepository.toggleById("2");
+
+        mockMvc.perform(get("/api/tasks").header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.tasks", hasSize(2)));
+    }
+
+    @Test
+    void getTask_shouldReturnTaskOrNotFound() throws Exception {
+        mockMvc.perform(get("/api/tasks/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.description").value("Task 1"))
+                .andExpect(jsonPath("$.completed").value(true));
+
+        mockMvc.perform(get("/api/tasks/999"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.error").value("Task is not found"));
+    }
+
+    @Test
+    void getTasks_shouldNotMatchTagOfAnEarlierProcess() throws Exception {
+        String etag = mockMvc.perform(get("/api/tasks"))
+                .andReturn().getResponse().getHeader("ETag");
+        String version = etag.substring(etag.lastIndexOf(':') + 1, etag.length() - 1);
+
+        // Тот же номер версии, выданный до перезапуска, не должен давать 304
+        mockMvc.perform(get("/api/tasks").header("If-None-Match", "\"" + UUID.randomUUID() + ":" + version + "\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", etag));
+    }
+
+    @Test
+    void createTask_shouldReturnCreatedTask() throws Exception {
+        String location = mockMvc.perform(post("/api/tasks")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"description\":\"API Task\",\"completed\":false}"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.id").exists())
+                .andExpect(jsonPath("$.description").value("API Task"))
+                .andReturn().getResponse().getHeader("Location");
+
+        assertNotNull(location);
+        mockMvc.perform(get(location))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.description").value("API Task"));
+    }
+
+    @Test
+    void createTask_shouldIgnoreVersionInBody() throws Exception {
+        // Версия новой задачи не с чем сравнивать, она назначается хранилищем
+        mockMvc.perform(post("/api/tasks")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"description\":\"Versioned\",\"version\":5}"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.version").value(1));
+    }
+
+    @Test
+    void createTask_shouldRejectAnIdThatIsAlreadyTaken() throws Exception {
+        mockMvc.perform(post("/api/tasks")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"id\":\"1\",\"description\":\"Overwritten\"}"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.error").value(TaskService.TASK_ALREADY_EXISTS))
+                .andExpect(jsonPath("$.task.id").value("1"));
+
+        mockMvc.perform(get("/api/tasks/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.description").value("Task 1"));
+    }
+
+    @Test
+    void createTask_shouldRejectDescriptionTooLongToStore() throws Exception {
+        String description = "x".repeat(TaskService.MAX_DESCRIPTION_LENGTH + 1);
+        mockMvc.perform(post("/api/tasks")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"description\":\"" + description + "\"}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value(TaskService.TASK_DESCRIPTION_TOO_LONG));
+    }
+
+    @Test
+    void createTask_shouldRejectEmptyDescription() throws Exception {
+        mockMvc.perform(post("/api/tasks")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"description\":\" \"}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void updateTask_shouldReplaceTask() throws Exception {
+        mockMvc.perform(put("/api/tasks/2")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"description\":\"Renamed\",\"completed\":true}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value("2"))
+                .andExpect(jsonPath("$.description").value("Renamed"));
+
+        assertEquals("Renamed", taskRepository.findById("2").get().getDescription());
+    }
+
+    @Test
+    void toggleTask_shouldReturnToggledTask() throws Exception {
+        mockMvc.perform(post("/api/tasks/2/toggle"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.completed").value(true));
+
+        mockMvc.perform(post("/api/tasks/999/toggle"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void deleteTask_shouldMapOutcomesToStatusCodes() throws Exception {
+        mockMvc.perform(delete("/api/tasks/1"))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(delete("/api/tasks/2"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.error").value("You cannot remove uncompleted task!"));
+        mockMvc.perform(delete("/api/tasks/999"))
+                .andExpect(status().isNotFound());
+
+        assertFalse(taskRepository.findById("1").isPresent());
+        assertTrue(taskRepository.findById("2").isPresent());
+    }
+
+    @Test
+    void createTasks_shouldReturnResultPerItem() throws Exception {
+        mockMvc.perform(post("/api/tasks/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"description\":\"Bulk 1\"},{\"description\":\"\"},{\"description\":\"Bulk 2\"}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(3)))
+                .andExpect(jsonPath("$[0].success").value(true))
+                .andExpect(jsonPath("$[0].task.description").value("Bulk 1"))
+                .andExpect(jsonPath("$[1].success").value(false))
+                .andExpect(jsonPath("$[2].success").value(true));
+
+        assertEquals(4, taskRepository.count());
+    }
+
+    @Test
+    void toggleTasks_shouldReturnResultPerId() throws Exception {
+        mockMvc.perform(post("/api/tasks/batch/toggle")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[\"1\",\"2\",\"999\"]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].task.completed").value(false))
+                .andExpect(jsonPath("$[1].task.completed").value(true))
+                .andExpect(jsonPath("$[2].error").value("Task not found with id: 999"));
+    }
+
+    @Test
+    void deleteCompletedTasks_shouldReturnRemovedCount() throws Exception {
+        mockMvc.perform(delete("/api/tasks/completed"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.removed").value(1));
+
+        assertFalse(taskRepository.findById("1").isPresent());
+        assertTrue(taskRepository.findById("2").isPresent());
+    }
+
+    @Test
+    void getTask_shouldTagTaskWithItsVersion() throws Exception {
+        mockMvc.perform(get("/api/tasks/2"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1\""))
+                .andExpect(jsonPath("$.version").value(1));
+
+        mockMvc.perform(get("/api/tasks/2").header("If-None-Match", "\"1\""))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void updateTask_shouldRejectStaleIfMatchWithPreconditionFailed() throws Exception {
+        mockMvc.perform(put("/api/tasks/2")
+                        .header("If-Match", "\"1\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"description\":\"First\",\"completed\":false}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"2\""));
+
+        mockMvc.perform(put("/api/tasks/2")
+                        .header("If-Match", "\"1\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"description\":\"Second\",\"completed\":false}"))
+                .andExpect(status().isPreconditionFailed());
+
+        assertEquals("First", taskRepository.findById("2").get().getDescription());
+    }
+
+    @Test
+    void updateTask_shouldReportConflictWithCurrentTask() throws Exception {
+        taskRepository.toggleById("2");
+
+        mockMvc.perform(put("/api/tasks/2")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"description\":\"Stale\",\"completed\":false,\"version\":1}"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.task.version").value(2))
+                .andExpect(jsonPath("$.task.completed").value(true));
+
+        mockMvc.perform(put("/api/tasks/missing")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"description\":\"Stale\",\"version\":1}"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void toggleTask_shouldHonourIfMatch() throws Exception {
+        mockMvc.perform(post("/api/tasks/2/toggle").header("If-Match", "\"1\""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version").value(2));
+        mockMvc.perform(post("/api/tasks/2/toggle").header("If-Match", "\"1\""))
+                .andExpect(status().isPreconditionFailed());
+
+        assertTrue(taskRepository.findById("2").get().isCompleted());
+    }
+
+    @Test
+    void tenantHeader_shouldSelectTheTenantsOwnTasks() throws Exception {
+        String tenant = "acme-" + UUID.randomUUID();
+
+        mockMvc.perform(post("/api/tasks").header("X-Tenant-Id", tenant)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"id\":\"1\",\"description\":\"Acme task\",\"tenant\":\"default\"}"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.tenant").value(tenant));
+
+        mockMvc.perform(get("/api/tasks").header("X-Tenant-Id", tenant))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.tasks", hasSize(1)))
+                .andExpect(jsonPath("$.tasks[0].description").value("Acme task"));
+        mockMvc.perform(get("/api/tasks"))
+                .andExpect(jsonPath("$.tasks", hasSize(2)))
+                .andExpect(jsonPath("$.tasks[0].description").value("Task 1"));
+
+        TenantContext.runAs(tenant, () -> taskRepository.deleteById("1"));
+    }
+
+    @Test
+    void tenantHeader_shouldRejectInvalidTenant() throws Exception {
+        mockMvc.perform(get("/api/tasks").header("X-Tenant-Id", "../other"))
+                .andExpect(status().isBadRequest());
+    }
+}
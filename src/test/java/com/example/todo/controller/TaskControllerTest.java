@@ -12,6 +12,8 @@ import org.springframework.test.web.servlet.MockMvc;
 
 import java.util.List;
 
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.nullValue;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -80,6 +82,54 @@ class TaskControllerTest {
                 .andExpect(model().attribute("error", "Test error"));
     }
 
+    @Test
+    void getTasks_shouldReturnFirstPageWithNextCursor() throws Exception {
+        mockMvc.perform(get("/tasks").param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(view().name("taskList"))
+                .andExpect(model().attribute("tasks", hasSize(1)))
+                .andExpect(model().attribute("nextCursor", "1"));
+    }
+
+    @Test
+    void getTasks_shouldReturnPageAfterCursor() throws Exception {
+        mockMvc.perform(get("/tasks").param("cursor", "1").param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(view().name("taskList"))
+                .andExpect(model().attribute("tasks", hasSize(1)))
+                .andExpect(model().attribute("nextCursor", nullValue()));
+    }
+
+    @Test
+    void getTasks_shouldFilterByStatus() throws Exception {
+        mockMvc.perform(get("/tasks").param("status", "pending"))
+                .andExpect(status().isOk())
+                .andExpect(view().name("taskList"))
+                .andExpect(model().attribute("tasks", hasSize(1)))
+                .andExpect(model().attribute("status", "pending"))
+                .andExpect(model().attribute("pendingCount", 1L))
+                .andExpect(model().attribute("completedCount", 1L));
+    }
+
+    @Test
+    void getTasks_shouldShowEmptyFilteredList() throws Exception {
+        taskRepository.deleteById("1");
+
+        mockMvc.perform(get("/tasks").param("status", "completed"))
+                .andExpect(status().isOk())
+                .andExpect(view().name("taskList"))
+                .andExpect(model().attribute("tasks", hasSize(0)));
+    }
+
+    @Test
+    void searchTasks_shouldReturnMatchingTasks() throws Exception {
+        mockMvc.perform(get("/tasks/search").param("q", "task 2"))
+                .andExpect(status().isOk())
+                .andExpect(view().name("taskList"))
+                .andExpect(model().attribute("tasks", hasSize(1)))
+                .andExpect(model().attribute("query", "task 2"));
+    }
+
     @Test
     void showTasksForm_shouldReturnTaskFormView() throws Exception {
         mockMvc.perform(get("/tasks/new"))
@@ -104,6 +154,19 @@ class TaskControllerTest {
         assertTrue(tasks.stream().anyMatch(t -> t.getDescription().equals("New Test Task")));
     }
 
+    @Test
+    void saveTask_shouldIgnoreVersionField() throws Exception {
+        mockMvc.perform(post("/task/save")
+                .param("description", "Versioned Task")
+                .param("version", "5"))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/tasks"));
+
+        Task saved = taskRepository.findAll().stream()
+                .filter(t -> t.getDescription().equals("Versioned Task")).findFirst().orElseThrow();
+        assertEquals(1, saved.getVersion());
+    }
+
     @Test
     void toggleTaskStatus_shouldRedirectToTasksPage() throws Exception {
         // Проверяем начальный статус
@@ -117,6 +180,19 @@ class TaskControllerTest {
         assertTrue(taskRepository.findById("2").get().isCompleted());
     }
 
+    @Test
+    void toggleTaskStatus_shouldShowConflictWhenTaskChangedSinceListWasRendered() throws Exception {
+        taskRepository.toggleById("2");
+
+        mockMvc.perform(post("/task/toggle/2").param("version", "1"))
+                .andExpect(status().isConflict())
+                .andExpect(view().name("taskList"))
+                .andExpect(model().attribute("error", TaskService.TASK_VERSION_CONFLICT));
+
+        // Задача не переключена обратно
+        assertTrue(taskRepository.findById("2").get().isCompleted());
+    }
+
     @Test
     void toggleTaskStatus_shouldRedirectWithErrorWhenTaskNotFound() throws Exception {
         mockMvc.perform(post("/task/toggle/999"))
@@ -150,4 +226,14 @@ class TaskControllerTest {
         // Проверяем, что задача не была удалена
         assertTrue(taskRepository.findById("2").isPresent());
     }
+
+    @Test
+    void deleteCompletedTasks_shouldRedirectToTasksPage() throws Exception {
+        mockMvc.perform(post("/task/delete-completed"))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/tasks"));
+
+        assertFalse(taskRepository.findById("1").isPresent());
+        assertTrue(taskRepository.findById("2").isPresent());
+    }
 }
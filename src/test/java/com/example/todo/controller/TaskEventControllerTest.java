@@ -0,0 +1,115 @@
+package com.example.todo.controller;
+
+import com.example.todo.events.TaskEventBus;
+import com.example.todo.model.Task;
+import com.example.todo.repository.TaskRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class TaskEventControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @Autowired
+    private TaskEventBus taskEventBus;
+
+    @BeforeEach
+    void setUp() {
+        // Очищаем репозиторий и создаём тестовые задачи
+        for (Task task : taskRepository.findAll()) {
+            taskRepository.deleteById(task.getId());
+        }
+        taskRepository.saveTask(new Task("1", "Task 1", true));
+        taskRepository.saveTask(new Task("2", "Task 2", false));
+    }
+
+    @Test
+    void streamEvents_shouldSendChangesAfterGivenSequence() throws Exception {
+        long after = taskEventBus.lastSequence();
+        taskRepository.toggleById("2");
+        taskRepository.deleteById("1");
+
+        MvcResult result = mockMvc.perform(get("/tasks/events").param("after", taskEventBus.eventId(after)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = awaitContent(result.getResponse(), "event:deleted");
+        assertTrue(body.contains("id:" + taskEventBus.eventId(after + 1) + "\nevent:toggled\n"));
+        assertTrue(body.contains("\"completed\":true"));
+        assertTrue(body.contains("id:" + taskEventBus.eventId(after + 2) + "\nevent:deleted\n"));
+    }
+
+    @Test
+    void streamEvents_shouldResumeFromLastEventId() throws Exception {
+        long after = taskEventBus.lastSequence();
+        taskRepository.toggleById("2");
+        taskRepository.toggleById("2");
+
+        MvcResult result = mockMvc.perform(get("/tasks/events")
+                        .header("Last-Event-ID", taskEventBus.eventId(after + 1))
+                        .param("after", taskEventBus.eventId(after)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = awaitContent(result.getResponse(), "id:" + taskEventBus.eventId(after + 2));
+        assertFalse(body.contains("id:" + taskEventBus.eventId(after + 1) + "\n"));
+    }
+
+    @Test
+    void streamEvents_shouldResetWhenEventsAreNoLongerAvailable() throws Exception {
+        long current = taskEventBus.lastSequence();
+
+        MvcResult result = mockMvc.perform(get("/tasks/events").param("after", taskEventBus.eventId(current + 1000)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = awaitContent(result.getResponse(), "event:reset");
+        String id = taskEventBus.eventId(current);
+        assertTrue(body.contains("id:" + id + "\nevent:reset\ndata:" + id));
+    }
+
+    @Test
+    void streamEvents_shouldResetOnIdOfAnEarlierProcess() throws Exception {
+        long after = taskEventBus.lastSequence() - 1;
+        taskRepository.toggleById("2");
+
+        // Номер события из прошлого запуска совпадает, но эпоха другая: дельты применять нельзя
+        MvcResult result = mockMvc.perform(get("/tasks/events")
+                        .header("Last-Event-ID", UUID.randomUUID() + ":" + after))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = awaitContent(result.getResponse(), "event:reset");
+        assertFalse(body.contains("event:toggled"));
+        assertTrue(body.contains("id:" + taskEventBus.eventId(taskEventBus.lastSequence()) + "\nevent:reset\n"));
+    }
+
+    private static String awaitContent(MockHttpServletResponse response, String expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 10_000;
+        String body = response.getContentAsString();
+        while (!body.contains(expected) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            body = response.getContentAsString();
+        }
+        assertTrue(body.contains(expected), body);
+        return body;
+    }
+}
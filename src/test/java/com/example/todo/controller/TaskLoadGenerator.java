@@ -0,0 +1,300 @@
+package com.example.todo.controller;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Drives the HTML endpoints of a running application the way the task list does: listing the
+// first page, creating tasks through the form, and toggling and deleting tasks it knows about.
+// Clients are closed-loop, each sending its next request once the previous one is answered.
+class TaskLoadGenerator {
+
+    enum Operation { LIST, CREATE, TOGGLE, DELETE }
+
+    private static final long MAX_LATENCY_NANOS = Duration.ofMinutes(1).toNanos();
+    private static final int SEED_BATCH_SIZE = 1_000;
+
+    private final URI baseUri;
+    private final int concurrency;
+    private final Map<Operation, Integer> mix;
+    private final int totalWeight;
+    private final HttpClient client;
+    private final List<String> ids = new ArrayList<>();
+
+    TaskLoadGenerator(URI baseUri, int concurrency, Map<Operation, Integer> mix) {
+        this.baseUri = baseUri;
+        this.concurrency = concurrency;
+        this.mix = new EnumMap<>(mix);
+        this.totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+        if (totalWeight <= 0) {
+            throw new IllegalArgumentException("The traffic mix must have a positive weight");
+        }
+        this.client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    // Parses a mix such as "list:70,create:10,toggle:15,delete:5".
+    static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid traffic mix entry: " + entry);
+            }
+            weights.put(Operation.valueOf(parts[0].trim().toUpperCase()), Integer.parseInt(parts[1].trim()));
+        }
+        return weights;
+    }
+
+    // Creates storeSize tasks through the batch API, so the measured traffic runs against a store
+    // of a realistic size.
+    void seed(int storeSize) throws IOException, InterruptedException {
+        for (int created = 0; created < storeSize; created += SEED_BATCH_SIZE) {
+            StringBuilder body = new StringBuilder("[");
+            List<String> batch = new ArrayList<>();
+            for (int i = created; i < Math.min(storeSize, created + SEED_BATCH_SIZE); i++) {
+                String id = UUID.randomUUID().toString();
+                batch.add(id);
+                body.append(batch.size() > 1 ? "," : "")
+                        .append("{\"id\":\"").append(id).append("\",\"description\":\"Load task ").append(i)
+                        .append("\",\"completed\":").append(i % 2 == 0).append('}');
+            }
+            HttpRequest request = HttpRequest.newBuilder(baseUri.resolve("/api/tasks/batch"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body.append(']').toString()))
+                    .build();
+            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() != 200) {
+                throw new IOException("Seeding the store failed with status " + response.statusCode());
+            }
+            synchronized (ids) {
+                ids.addAll(batch);
+            }
+        }
+    }
+
+    Report run(Duration duration) throws InterruptedException {
+        Report report = new Report();
+        long deadline = System.nanoTime() + duration.toNanos();
+        long started = System.nanoTime();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < concurrency; i++) {
+                futures.add(clients.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        send(pick(), report);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Load client failed", e.getCause());
+                }
+            }
+        }
+        report.elapsedNanos = System.nanoTime() - started;
+        return report;
+    }
+
+    private Operation pick() {
+        int weight = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Map.Entry<Operation, Integer> entry : mix.entrySet()) {
+            weight -= entry.getValue();
+            if (weight < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("Unreachable");
+    }
+
+    private void send(Operation operation, Report report) {
+        HttpRequest request;
+        String id;
+        switch (operation) {
+            case LIST -> request = HttpRequest.newBuilder(baseUri.resolve("/tasks")).build();
+            case CREATE -> {
+                id = UUID.randomUUID().toString();
+                request = form("/task/save", "id=" + id + "&description=" + encode("Created under load " + id));
+                if (succeeded(operation, request, report)) {
+                    add(id);
+                }
+                return;
+            }
+            case TOGGLE -> {
+                id = any(false);
+                if (id == null) {
+                    return;
+                }
+                request = form("/task/toggle/" + encode(id), "");
+            }
+            case DELETE -> {
+                id = any(true);
+                if (id == null) {
+                    return;
+                }
+                request = form("/task/delete/" + encode(id), "");
+            }
+            default -> throw new IllegalStateException("Unknown operation " + operation);
+        }
+        succeeded(operation, request, report);
+    }
+
+    // Redirects are not followed: the form endpoints answer with one, and following it would
+    // measure a page render as part of every write.
+    private boolean succeeded(Operation operation, HttpRequest request, Report report) {
+        long sent = System.nanoTime();
+        boolean success;
+        try {
+            int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+            success = status < 400;
+        } catch (IOException e) {
+            success = false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        report.record(operation, Math.min(System.nanoTime() - sent, MAX_LATENCY_NANOS), success);
+        return success;
+    }
+
+    private HttpRequest form(String path, String body) {
+        return HttpRequest.newBuilder(baseUri.resolve(path))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private void add(String id) {
+        synchronized (ids) {
+            ids.add(id);
+        }
+    }
+
+    // A random known task, removed from the pool when it is about to be deleted.
+    private String any(boolean remove) {
+        synchronized (ids) {
+            if (ids.isEmpty()) {
+                return null;
+            }
+            int index = ThreadLocalRandom.current().nextInt(ids.size());
+            String id = ids.get(index);
+            if (remove) {
+                ids.set(index, ids.get(ids.size() - 1));
+                ids.remove(ids.size() - 1);
+            }
+            return id;
+        }
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    static class Report {
+
+        private final Map<Operation, Histogram> latencies = new EnumMap<>(Operation.class);
+        private final Map<Operation, AtomicLong> errors = new EnumMap<>(Operation.class);
+        private long elapsedNanos;
+
+        Report() {
+            for (Operation operation : Operation.values()) {
+                latencies.put(operation, new ConcurrentHistogram(MAX_LATENCY_NANOS, 3));
+                errors.put(operation, new AtomicLong());
+            }
+        }
+
+        void record(Operation operation, long latencyNanos, boolean success) {
+            latencies.get(operation).recordValue(latencyNanos);
+            if (!success) {
+                errors.get(operation).incrementAndGet();
+            }
+        }
+
+        Histogram total() {
+            Histogram total = new Histogram(MAX_LATENCY_NANOS, 3);
+            latencies.values().forEach(total::add);
+            return total;
+        }
+
+        long requests() {
+            return total().getTotalCount();
+        }
+
+        double throughput() {
+            return requests() / (elapsedNanos / 1_000_000_000.0);
+        }
+
+        double errorRate() {
+            long requests = requests();
+            return requests == 0 ? 0 : errors.values().stream().mapToLong(AtomicLong::get).sum() / (double) requests;
+        }
+
+        double p99Millis() {
+            return millis(total().getValueAtPercentile(99));
+        }
+
+        String format() {
+            StringBuilder text = new StringBuilder(String.format("%-8s %9s %7s %9s %9s %9s %9s %9s%n",
+                    "", "requests", "errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+            for (Operation operation : Operation.values()) {
+                appendRow(text, operation.name().toLowerCase(), latencies.get(operation), errors.get(operation).get());
+            }
+            appendRow(text, "total", total(), errors.values().stream().mapToLong(AtomicLong::get).sum());
+            text.append(String.format("%.0f req/s over %.1f s, error rate %.4f%n",
+                    throughput(), elapsedNanos / 1_000_000_000.0, errorRate()));
+            return text.toString();
+        }
+
+        private static void appendRow(StringBuilder text, String name, Histogram histogram, long errors) {
+            text.append(String.format("%-8s %9d %7d %9.2f %9.2f %9.2f %9.2f %9.2f%n", name,
+                    histogram.getTotalCount(), errors,
+                    millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(90)),
+                    millis(histogram.getValueAtPercentile(99)), millis(histogram.getValueAtPercentile(99.9)),
+                    millis(histogram.getMaxValue())));
+        }
+
+        Properties toProperties() {
+            Properties properties = new Properties();
+            properties.setProperty("throughput", String.valueOf(throughput()));
+            properties.setProperty("p99.millis", String.valueOf(p99Millis()));
+            properties.setProperty("error-rate", String.valueOf(errorRate()));
+            for (Operation operation : Operation.values()) {
+                Histogram histogram = latencies.get(operation);
+                String name = operation.name().toLowerCase();
+                properties.setProperty(name + ".requests", String.valueOf(histogram.getTotalCount()));
+                properties.setProperty(name + ".errors", String.valueOf(errors.get(operation).get()));
+                properties.setProperty(name + ".p99.millis", String.valueOf(millis(histogram.getValueAtPercentile(99))));
+            }
+            return properties;
+        }
+
+        private static double millis(long nanos) {
+            return nanos / 1_000_000.0;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.todo.controller;
+
+import com.example.todo.TodoApplication;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Mixed traffic against /tasks and /task/*, reporting throughput and latency percentiles.
+// Запуск: mvn test -Dsurefire.excludedGroups= -Dgroups=benchmark -Dtest=TaskLoadTest
+// The application is started on a random port unless -Dload.url points at a running one. Each run
+// is saved to target/load-test-result.properties; pass a saved run as -Dload.baseline to fail when
+// throughput drops or p99 latency grows by more than load.max-regression (a fraction).
+@Tag("benchmark")
+class TaskLoadTest {
+
+    private static final String URL = System.getProperty("load.url", "");
+    private static final int CONCURRENCY = Integer.getInteger("load.concurrency", 32);
+    private static final int STORE_SIZE = Integer.getInteger("load.store-size", 10_000);
+    private static final Duration WARMUP = Duration.ofSeconds(Integer.getInteger("load.warmup-seconds", 5));
+    private static final Duration DURATION = Duration.ofSeconds(Integer.getInteger("load.duration-seconds", 20));
+    private static final String MIX = System.getProperty("load.mix", "list:70,create:10,toggle:15,delete:5");
+    private static final double MAX_ERROR_RATE = Double.parseDouble(System.getProperty("load.max-error-rate", "0.01"));
+    // 0 leaves the absolute limits unchecked
+    private static final double MIN_THROUGHPUT = Double.parseDouble(System.getProperty("load.min-throughput", "0"));
+    private static final double MAX_P99_MILLIS = Double.parseDouble(System.getProperty("load.max-p99-millis", "0"));
+    private static final String BASELINE = System.getProperty("load.baseline", "");
+    private static final double MAX_REGRESSION = Double.parseDouble(System.getProperty("load.max-regression", "0.2"));
+
+    @Test
+    void mixedTraffic_shouldStayWithinThresholds() throws Exception {
+        TaskLoadGenerator.Report report;
+        if (URL.isEmpty()) {
+            try (ConfigurableApplicationContext context = new SpringApplicationBuilder(TodoApplication.class)
+                    .properties("server.port=0", "spring.main.banner-mode=off", "logging.level.root=warn")
+                    .run()) {
+                int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+                report = run(URI.create("http://localhost:" + port));
+            }
+        } else {
+            report = run(URI.create(URL));
+        }
+
+        System.out.printf("%d clients, %d seeded tasks, mix %s%n%s", CONCURRENCY, STORE_SIZE, MIX, report.format());
+        Path result = Path.of("target", "load-test-result.properties");
+        Files.createDirectories(result.getParent());
+        try (Writer writer = Files.newBufferedWriter(result)) {
+            report.toProperties().store(writer, CONCURRENCY + " clients, " + STORE_SIZE + " seeded tasks, mix " + MIX);
+        }
+
+        assertTrue(report.requests() > 0, "No requests were answered");
+        assertTrue(report.errorRate() <= MAX_ERROR_RATE, "Error rate " + report.errorRate() + " exceeds " + MAX_ERROR_RATE);
+        if (MIN_THROUGHPUT > 0) {
+            assertTrue(report.throughput() >= MIN_THROUGHPUT,
+                    String.format("Throughput %.0f req/s is below %.0f", report.throughput(), MIN_THROUGHPUT));
+        }
+        if (MAX_P99_MILLIS > 0) {
+            assertTrue(report.p99Millis() <= MAX_P99_MILLIS,
+                    String.format("p99 %.2f ms exceeds %.2f ms", report.p99Millis(), MAX_P99_MILLIS));
+        }
+        if (!BASELINE.isEmpty()) {
+            Properties baseline = new Properties();
+            try (Reader reader = Files.newBufferedReader(Path.of(BASELINE))) {
+                baseline.load(reader);
+            }
+            double throughput = Double.parseDouble(baseline.getProperty("throughput"));
+            double p99Millis = Double.parseDouble(baseline.getProperty("p99.millis"));
+            assertTrue(report.throughput() >= throughput * (1 - MAX_REGRESSION),
+                    String.format("Throughput fell from %.0f to %.0f req/s", throughput, report.throughput()));
+            assertTrue(report.p99Millis() <= p99Millis * (1 + MAX_REGRESSION),
+                    String.format("p99 grew from %.2f to %.2f ms", p99Millis, report.p99Millis()));
+        }
+    }
+
+    private static TaskLoadGenerator.Report run(URI uri) throws Exception {
+        TaskLoadGenerator generator = new TaskLoadGenerator(uri, CONCURRENCY, TaskLoadGenerator.parseMix(MIX));
+        generator.seed(STORE_SIZE);
+        generator.run(WARMUP);
+        return generator.run(DURATION);
+    }
+}
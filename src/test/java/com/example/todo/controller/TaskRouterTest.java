@@ -0,0 +1,83 @@
+package com.example.todo.controller;
+
+import com.example.todo.model.Task;
+import com.example.todo.repository.TaskRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("reactive")
+@AutoConfigureWebTestClient
+class TaskRouterTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @BeforeEach
+    void setUp() {
+        // Очищаем репозиторий и создаём тестовые задачи
+        for (Task task : taskRepository.findAll()) {
+            taskRepository.deleteById(task.getId());
+        }
+        taskRepository.saveTask(new Task("1", "Task 1", true));
+        taskRepository.saveTask(new Task("2", "Task 2", false));
+    }
+
+    @Test
+    void getTasks_shouldReturnPageAsJson() {
+        webTestClient.get().uri("/api/tasks?status=pending").exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.tasks.length()").isEqualTo(1)
+                .jsonPath("$.tasks[0].id").isEqualTo("2");
+    }
+
+    @Test
+    void streamTasks_shouldReturnNewlineDelimitedJson() {
+        webTestClient.get().uri("/api/tasks/stream").accept(MediaType.APPLICATION_NDJSON).exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(Task.class).hasSize(2);
+    }
+
+    @Test
+    void createTask_shouldReturnCreatedTask() {
+        webTestClient.post().uri("/api/tasks").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"description\":\"New task\"}").exchange()
+                .expectStatus().isCreated()
+                .expectHeader().exists("Location")
+                .expectBody().jsonPath("$.description").isEqualTo("New task");
+        assertEquals(3, taskRepository.count());
+
+        webTestClient.post().uri("/api/tasks").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"description\":\" \"}").exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void toggleTask_shouldReturnToggledTaskOrNotFound() {
+        webTestClient.post().uri("/api/tasks/2/toggle").exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.completed").isEqualTo(true);
+        webTestClient.post().uri("/api/tasks/missing/toggle").exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void deleteTask_shouldMapOutcomesToStatusCodes() {
+        webTestClient.delete().uri("/api/tasks/2").exchange().expectStatus().isEqualTo(409);
+        webTestClient.delete().uri("/api/tasks/1").exchange().expectStatus().isNoContent();
+        webTestClient.delete().uri("/api/tasks/1").exchange().expectStatus().isNotFound();
+    }
+}
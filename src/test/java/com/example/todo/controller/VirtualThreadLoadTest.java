@@ -0,0 +1,115 @@
+package com.example.todo.controller;
+
+import com.example.todo.TodoApplication;
+import jakarta.servlet.Filter;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Запуск: mvn test -Dsurefire.excludedGroups= -Dgroups=benchmark -Dtest=VirtualThreadLoadTest
+@Tag("benchmark")
+class VirtualThreadLoadTest {
+
+    private static final int CLIENTS = 200;
+    private static final int REQUESTS = 4_000;
+    private static final long SIMULATED_IO_MILLIS = 50;
+    private static final int PLATFORM_MAX_THREADS = 20;
+
+    @Test
+    void virtualThreads_shouldServeBlockingRequestsFasterThanPlatformPool() throws Exception {
+        Result platform = run(false);
+        Result virtual = run(true);
+
+        System.out.printf("Platform threads (max %d): %.0f req/s, p99 %d ms%n",
+                PLATFORM_MAX_THREADS, platform.throughput, platform.p99Millis);
+        System.out.printf("Virtual threads: %.0f req/s, p99 %d ms%n", virtual.throughput, virtual.p99Millis);
+        assertTrue(virtual.throughput > platform.throughput);
+        assertTrue(virtual.p99Millis < platform.p99Millis);
+    }
+
+    private Result run(boolean virtualThreads) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(TodoApplication.class, BlockingIoConfig.class)
+                .properties("server.port=0",
+                        "spring.main.banner-mode=off",
+                        "logging.level.root=warn",
+                        "spring.threads.virtual.enabled=" + virtualThreads,
+                        "server.tomcat.threads.max=" + PLATFORM_MAX_THREADS,
+                        "server.tomcat.accept-count=" + CLIENTS)
+                .run()) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            URI uri = URI.create("http://localhost:" + port + "/tasks?size=5");
+            HttpClient client = HttpClient.newBuilder().executor(Executors.newVirtualThreadPerTaskExecutor()).build();
+
+            long[] latencies = new long[REQUESTS];
+            long started = System.nanoTime();
+            try (ExecutorService clients = Executors.newFixedThreadPool(CLIENTS)) {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int i = 0; i < REQUESTS; i++) {
+                    int request = i;
+                    futures.add(clients.submit(() -> {
+                        long sent = System.nanoTime();
+                        HttpResponse<Void> response = client.send(HttpRequest.newBuilder(uri).build(),
+                                HttpResponse.BodyHandlers.discarding());
+                        latencies[request] = System.nanoTime() - sent;
+                        assertEquals(200, response.statusCode());
+                        return null;
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            }
+            double elapsedSeconds = (System.nanoTime() - started) / 1_000_000_000.0;
+            Arrays.sort(latencies);
+            return new Result(REQUESTS / elapsedSeconds, latencies[REQUESTS * 99 / 100] / 1_000_000);
+        }
+    }
+
+    private static class Result {
+
+        final double throughput;
+        final long p99Millis;
+
+        Result(double throughput, long p99Millis) {
+            this.throughput = throughput;
+            this.p99Millis = p99Millis;
+        }
+    }
+
+    // Stands in for blocking persistence I/O on the request thread.
+    @Configuration
+    static class BlockingIoConfig {
+
+        @Bean
+        FilterRegistrationBean<Filter> simulatedBlockingIo() {
+            FilterRegistrationBean<Filter> registration = new FilterRegistrationBean<>((request, response, chain) -> {
+                try {
+                    Thread.sleep(SIMULATED_IO_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                chain.doFilter(request, response);
+            });
+            registration.addUrlPatterns("/tasks");
+            return registration;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.todo.events;
+
+import com.example.todo.model.Task;
+import com.example.todo.model.TaskEvent;
+import com.example.todo.repository.TaskRepository;
+import com.example.todo.tenant.TenantContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskEventBusTest {
+
+    private TaskRepository taskRepository;
+    private TaskEventBus taskEventBus;
+
+    @BeforeEach
+    void setUp() {
+        taskRepository = new TaskRepository();
+        for (Task task : taskRepository.findAll()) {
+            taskRepository.deleteById(task.getId());
+        }
+        taskEventBus = new TaskEventBus(taskRepository, 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        taskRepository.removeListener(taskEventBus);
+    }
+
+    @Test
+    void mutations_shouldBePublishedInOrderWithTheirType() throws InterruptedException {
+        taskRepository.saveTask(new Task("1", "Task 1", false));
+        taskRepository.toggleById("1");
+        taskRepository.saveTask(new Task("1", "Renamed", true));
+        taskRepository.deleteByIdIfCompleted("1");
+
+        List<TaskEvent> events = taskEventBus.eventsAfter(0, 0, TimeUnit.MILLISECONDS).orElseThrow();
+
+        assertEquals(List.of(TaskEvent.Type.CREATED, TaskEvent.Type.TOGGLED, TaskEvent.Type.UPDATED, TaskEvent.Type.DELETED),
+                events.stream().map(TaskEvent::getType).toList());
+        assertEquals(List.of(1L, 2L, 3L, 4L), events.stream().map(TaskEvent::getSequence).toList());
+        assertTrue(events.get(1).getTask().isCompleted());
+        // Удалённая задача передаётся в том виде, в котором была удалена
+        assertEquals("Renamed", events.get(3).getTask().getDescription());
+    }
+
+    @Test
+    void eventsAfter_shouldResumeFromGivenSequence() throws InterruptedException {
+        taskRepository.saveTask(new Task("1", "Task 1", false));
+        taskRepository.saveTask(new Task("2", "Task 2", false));
+        taskRepository.deleteById("1");
+
+        List<TaskEvent> events = taskEventBus.eventsAfter(2, 0, TimeUnit.MILLISECONDS).orElseThrow();
+
+        assertEquals(1, events.size());
+        assertEquals(TaskEvent.Type.DELETED, events.get(0).getType());
+        assertEquals("1", events.get(0).getId());
+    }
+
+    @Test
+    void eventsAfter_shouldReportEventsNoLongerBuffered() throws InterruptedException {
+        for (int i = 0; i < 6; i++) {
+            taskRepository.saveTask(new Task(String.valueOf(i), "Task " + i, false));
+        }
+
+        assertTrue(taskEventBus.eventsAfter(1, 0, TimeUnit.MILLISECONDS).isEmpty());
+        assertEquals(4, taskEventBus.eventsAfter(2, 0, TimeUnit.MILLISECONDS).orElseThrow().size());
+        // Номер из предыдущего запуска приложения
+        assertTrue(taskEventBus.eventsAfter(100, 0, TimeUnit.MILLISECONDS).isEmpty());
+    }
+
+    @Test
+    void eventsAfter_shouldWaitForNextEvent() throws Exception {
+        long sequence = taskEventBus.lastSequence();
+        assertEquals(Optional.of(List.of()), taskEventBus.eventsAfter(sequence, 10, TimeUnit.MILLISECONDS));
+
+        CompletableFuture<Optional<List<TaskEvent>>> waiting = CompletableFuture.supplyAsync(() -> {
+            try {
+                return taskEventBus.eventsAfter(sequence, 10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        taskRepository.saveTask(new Task("1", "Task 1", false));
+
+        List<TaskEvent> events = waiting.get(10, TimeUnit.SECONDS).orElseThrow();
+        assertEquals(1, events.size());
+        assertEquals(TaskEvent.Type.CREATED, events.get(0).getType());
+    }
+
+    @Test
+    void tenants_shouldHaveTheirOwnSequenceAndBuffer() throws Exception {
+        long sequence = taskEventBus.lastSequence();
+        // Изменения другого тенанта не вытесняют события текущего из буфера
+        TenantContext.runAs("acme", () -> {
+            for (int i = 0; i < 10; i++) {
+                taskRepository.saveTask(new Task(String.valueOf(i), "Acme " + i, false));
+            }
+        });
+        taskRepository.saveTask(new Task("1", "Task 1", false));
+
+        List<TaskEvent> events = taskEventBus.eventsAfter(sequence, 0, TimeUnit.MILLISECONDS).orElseThrow();
+        assertEquals(1, events.size());
+        assertEquals(sequence + 1, events.get(0).getSequence());
+        assertEquals(TenantContext.DEFAULT_TENANT, events.get(0).getTask().getTenant());
+        assertEquals(10, taskEventBus.log("acme").lastSequence());
+        TenantContext.runAs("acme", () -> {
+            for (int i = 0; i < 10; i++) {
+                taskRepository.deleteById(String.valueOf(i));
+            }
+        });
+    }
+
+    @Test
+    void log_shouldGrowUpToItsCapacity() throws InterruptedException {
+        TaskEventLog log = new TaskEventLog(100);
+        for (int i = 0; i < 150; i++) {
+            log.taskSaved(null, new Task(String.valueOf(i), "Task " + i, false));
+        }
+
+        List<TaskEvent> events = log.eventsAfter(50, 0, TimeUnit.MILLISECONDS).orElseThrow();
+        assertEquals(100, events.size());
+        assertEquals(51, events.get(0).getSequence());
+        assertEquals("149", events.get(99).getId());
+        assertTrue(log.eventsAfter(49, 0, TimeUnit.MILLISECONDS).isEmpty());
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.todo.persistence;
+
+import com.example.todo.model.Task;
+import com.example.todo.repository.TaskRepository;
+import com.example.todo.tenant.TenantContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Запуск: mvn test -Dsurefire.excludedGroups= -Dgroups=benchmark -Dtest=TaskJournalBenchmarkTest
+// Допустимое время восстановления задаётся -Djournal.max-recovery-millis
+@Tag("benchmark")
+class TaskJournalBenchmarkTest {
+
+    private static final int TASK_COUNT = 1_000_000;
+    private static final long MAX_RECOVERY_MILLIS = Long.getLong("journal.max-recovery-millis", 2_000);
+
+    @TempDir
+    Path directory;
+
+    private final TaskRepository taskRepository = new TaskRepository();
+
+    @AfterEach
+    void tearDown() {
+        clearRepository();
+    }
+
+    @Test
+    void restart_shouldRecoverMillionTasksWithinTarget() throws Exception {
+        clearRepository();
+        // Порог компактации по умолчанию: восстановление читает снимок и хвост журнала
+        TaskJournal journal = new TaskJournal(taskRepository, directory, 5, 4096, 100_000);
+        journal.open();
+        for (int i = 0; i < TASK_COUNT; i++) {
+            taskRepository.saveTask(new Task(null, "Benchmark task number " + i, i % 3 == 0));
+        }
+        journal.flush();
+        journal.close();
+        clearRepository();
+
+        long started = System.nanoTime();
+        journal = new TaskJournal(taskRepository, directory, 5, 4096, 100_000);
+        journal.open();
+        long recoveryMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        journal.close();
+
+        System.out.printf("Recovering %,d tasks: %d ms%n", TASK_COUNT, recoveryMillis);
+        assertEquals(TASK_COUNT, taskRepository.count());
+        assertTrue(recoveryMillis < MAX_RECOVERY_MILLIS, "Recovery took " + recoveryMillis + " ms");
+    }
+
+    private void clearRepository() {
+        for (String tenant : taskRepository.tenants()) {
+            TenantContext.runAs(tenant, () -> {
+                for (Task task : taskRepository.findAll()) {
+                    taskRepository.deleteById(task.getId());
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,434 @@
+package com.example.todo.persistence;
+
+import com.example.todo.model.Task;
+import com.example.todo.repository.TaskRepository;
+import com.example.todo.search.TaskSearchIndex;
+import com.example.todo.service.TaskService;
+import com.example.todo.tenant.TenantContext;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskJournalTest {
+
+    @TempDir
+    Path directory;
+
+    private TaskRepository taskRepository;
+    private TaskJournal journal;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        taskRepository = new TaskRepository();
+        clearRepository();
+        journal = open(1_000);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        journal.close();
+        clearRepository();
+    }
+
+    @Test
+    void restart_shouldRecoverSavedToggledAndDeletedTasks() throws Exception {
+        taskRepository.saveTask(new Task("1", "Keep me", false));
+        taskRepository.saveTask(new Task("2", "Delete me", true));
+        taskRepository.toggleById("1");
+        taskRepository.deleteByIdIfCompleted("2");
+        journal.flush();
+
+        restart(1_000);
+
+        assertEquals(1, taskRepository.count());
+        Task recovered = taskRepository.findById("1").get();
+        assertEquals("Keep me", recovered.getDescription());
+        assertTrue(recovered.isCompleted());
+        assertEquals(2, recovered.getVersion());
+        assertFalse(taskRepository.findById("2").isPresent());
+    }
+
+    @Test
+    void compaction_shouldReplaceOldLogsWithSnapshot() throws Exception {
+        journal.close();
+        journal = open(10);
+        for (int i = 0; i < 100; i++) {
+            taskRepository.saveTask(new Task(String.valueOf(i), "Task " + i, i % 2 == 0));
+        }
+        journal.flush();
+
+        restart(10);
+
+        assertTrue(Files.exists(directory.resolve(TaskJournal.SNAPSHOT_FILE)));
+        assertTrue(logFiles().size() <= 2);
+        assertEquals(100, taskRepository.count());
+        assertTrue(taskRepository.findById("42").get().isCompleted());
+        assertFalse(taskRepository.findById("43").get().isCompleted());
+    }
+
+    @Test
+    void restart_shouldRecoverTasksOfEveryTenant() throws Exception {
+        journal.close();
+        journal = open(10);
+        for (int i = 0; i < 30; i++) {
+            String id = String.valueOf(i);
+            TenantContext.runAs("alice", () -> taskRepository.saveTask(new Task(id, "Alice " + id, false)));
+            TenantContext.runAs("bob", () -> taskRepository.saveTask(new Task(id, "Bob " + id, true)));
+        }
+        TenantContext.runAs("bob", () -> taskRepository.deleteById("0"));
+        journal.flush();
+
+        restart(10);
+
+        assertEquals(0, taskRepository.count());
+        TenantContext.runAs("alice", () -> {
+            assertEquals(30, taskRepository.count());
+            assertEquals("Alice 0", taskRepository.findById("0").get().getDescription());
+        });
+        TenantContext.runAs("bob", () -> {
+            assertEquals(29, taskRepository.count());
+            assertFalse(taskRepository.findById("0").isPresent());
+            assertEquals("Bob 1", taskRepository.findById("1").get().getDescription());
+        });
+    }
+
+    @Test
+    void restart_shouldIgnoreTornTailOfLog() throws Exception {
+        taskRepository.saveTask(new Task("1", "Durable", false));
+        journal.flush();
+        journal.close();
+
+        // Имитируем сбой посреди записи последней пачки
+        Path log = logFiles().get(logFiles().size() - 1);
+        byte[] partial = TaskJournal.encode(TaskJournal.SAVE, "default", "2", "Torn", false, 1);
+        Files.write(log, Arrays.copyOf(partial, partial.length - 3), StandardOpenOption.APPEND);
+        long tornSize = Files.size(log);
+
+        clearRepository();
+        journal = open(1_000);
+
+        assertEquals(1, taskRepository.count());
+        assertTrue(taskRepository.findById("1").isPresent());
+        assertTrue(Files.size(log) < tornSize);
+    }
+
+    @Test
+    void restart_shouldRecoverDescriptionsLongerThan64Kilobytes() throws Exception {
+        String description = "Долгое описание ".repeat(10_000);
+        taskRepository.saveTask(new Task("1", description, false));
+        taskRepository.saveTask(new Task("2", "Short", false));
+        journal.flush();
+
+        restart(1_000);
+
+        assertEquals(description, taskRepository.findById("1").get().getDescription());
+        assertEquals(2, taskRepository.count());
+    }
+
+    @Test
+    void restart_shouldReplayRecordsOfTheFirstFormat() throws Exception {
+        journal.close();
+        // Записи первого формата хранили строки через writeUTF
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream payload = new DataOutputStream(bytes);
+        payload.writeByte(1);
+        payload.writeUTF("legacy");
+        payload.writeBoolean(true);
+        payload.writeUTF("Written before");
+        payload.writeBoolean(true);
+        payload.writeLong(3);
+        payload.writeUTF("bob");
+        byte[] body = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        Files.write(directory.resolve(String.format("%s%019d%s", TaskJournal.LOG_PREFIX, 1_000, TaskJournal.LOG_SUFFIX)),
+                ByteBuffer.allocate(8 + body.length).putInt(body.length).putInt((int) crc.getValue()).put(body).array());
+
+        clearRepository();
+        journal = open(1_000);
+
+        TenantContext.runAs("bob", () -> {
+            Task recovered = taskRepository.findById("legacy").get();
+            assertEquals("Written before", recovered.getDescription());
+            assertEquals(3, recovered.getVersion());
+        });
+    }
+
+    @Test
+    void repeatedChanges_shouldBeWrittenOnceAndFlushedOnDemand() throws Exception {
+        journal.close();
+        // Без flush() пачка собиралась бы минуту
+        journal = open(60_000, 1_000);
+        taskRepository.saveTask(new Task("1", "Toggled a lot", false));
+        for (int i = 0; i < 99; i++) {
+            taskRepository.toggleById("1");
+        }
+
+        long started = System.nanoTime();
+        journal.flush();
+
+        assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - started) < 30);
+        assertEquals(99, journal.coalesced());
+        restart(1_000);
+        Task recovered = taskRepository.findById("1").get();
+        assertEquals(100, recovered.getVersion());
+        assertTrue(recovered.isCompleted());
+    }
+
+    @Test
+    void fullBuffer_shouldHoldBackWritersBeforeTheyLockATask() throws Exception {
+        journal.close();
+        journal = open(60_000, 2);
+        TaskService taskService = new TaskService(taskRepository, new TaskSearchIndex(taskRepository),
+                new SimpleMeterRegistry(), journal, false);
+        taskService.createTask(new Task("1", "First", false));
+        taskService.createTask(new Task("2", "Second", false));
+
+        CompletableFuture<Task> third = CompletableFuture.supplyAsync(
+                () -> taskService.createTask(new Task("3", "Third", false)));
+        Thread.sleep(200);
+        assertFalse(third.isDone());
+        assertTrue(taskRepository.findById("3").isEmpty());
+
+        // Слушатель журнала никогда не ждёт под блокировкой задачи, даже при полном буфере
+        CompletableFuture.runAsync(() -> {
+            taskRepository.toggleById("1");
+            taskRepository.saveTask(new Task("4", "Written around the service", false));
+        }).get(10, TimeUnit.SECONDS);
+        assertFalse(third.isDone());
+
+        journal.flush();
+        third.get(10, TimeUnit.SECONDS);
+        journal.flush();
+        restart(1_000);
+        assertEquals(4, taskRepository.count());
+        assertTrue(taskRepository.findById("1").get().isCompleted());
+        assertEquals("Third", taskRepository.findById("3").get().getDescription());
+        assertEquals("Written around the service", taskRepository.findById("4").get().getDescription());
+    }
+
+    @Test
+    void writeFailure_shouldFailAcknowledgedWritesAndWriteTheBatchOnceTheDiskRecovers() throws Exception {
+        journal.close();
+        AtomicBoolean diskFull = new AtomicBoolean();
+        journal = new TaskJournal(taskRepository, directory, 1, 4096, 1_000_000) {
+            @Override
+            FileChannel openLog(long logGeneration) throws IOException {
+                return new FailingChannel(super.openLog(logGeneration), diskFull);
+            }
+        };
+        journal.open();
+        TaskService taskService = new TaskService(taskRepository, new TaskSearchIndex(taskRepository),
+                new SimpleMeterRegistry(), journal, true);
+        taskService.createTask(new Task("1", "Written", false));
+
+        // Диск переполнен: подтверждаемая запись сообщает об ошибке, а не ждёт вечно
+        diskFull.set(true);
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            assertThrows(UncheckedIOException.class,
+                    () -> taskService.createTask(new Task("2", "Written after the failure", false)));
+            assertThrows(IOException.class, journal::flush);
+        });
+        taskRepository.toggleById("1");
+
+        // Когда место освобождается, отложенный пакет записывается в новый лог
+        diskFull.set(false);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (true) {
+            try {
+                journal.flush();
+                break;
+            } catch (IOException e) {
+                assertTrue(System.nanoTime() < deadline, "journal did not recover");
+                Thread.sleep(100);
+            }
+        }
+        restart(1_000_000);
+        assertEquals(2, taskRepository.count());
+        assertTrue(taskRepository.findById("1").get().isCompleted());
+        assertEquals("Written after the failure", taskRepository.findById("2").get().getDescription());
+    }
+
+    @Test
+    void restart_shouldRecoverManyTasks() throws Exception {
+        int taskCount = 50_000;
+        for (int i = 0; i < taskCount; i++) {
+            taskRepository.saveTask(new Task(null, "Bulk task " + i, false));
+        }
+        journal.flush();
+
+        restart(1_000_000);
+
+        assertEquals(taskCount, taskRepository.count());
+    }
+
+    private void restart(long compactAfterRecords) throws Exception {
+        journal.close();
+        clearRepository();
+        journal = open(compactAfterRecords);
+    }
+
+    private TaskJournal open(long compactAfterRecords) throws IOException {
+        TaskJournal opened = new TaskJournal(taskRepository, directory, 1, 4096, compactAfterRecords);
+        opened.open();
+        return opened;
+    }
+
+    private TaskJournal open(long groupCommitMillis, int capacity) throws IOException {
+        TaskJournal opened = new TaskJournal(taskRepository, directory, groupCommitMillis, 4096, 1_000_000, capacity);
+        opened.open();
+        return opened;
+    }
+
+    // Writes half of each buffer and then fails, like a disk running out of space mid-batch.
+    private static final class FailingChannel extends FileChannel {
+
+        private final FileChannel delegate;
+        private final AtomicBoolean failing;
+
+        FailingChannel(FileChannel delegate, AtomicBoolean failing) {
+            this.delegate = delegate;
+            this.failing = failing;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            if (failing.get()) {
+                ByteBuffer half = src.slice(src.position(), src.remaining() / 2);
+                src.position(src.position() + delegate.write(half));
+                throw new IOException("No space left on device");
+            }
+            return delegate.write(src);
+        }
+
+        @Override
+        public void force(boolean metaData) throws IOException {
+            if (failing.get()) {
+                throw new IOException("No space left on device");
+            }
+            delegate.force(metaData);
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return delegate.read(dst);
+        }
+
+        @Override
+        public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+            return delegate.read(dsts, offset, length);
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+            return delegate.write(srcs, offset, length);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return delegate.position();
+        }
+
+        @Override
+        public FileChannel position(long newPosition) throws IOException {
+            delegate.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return delegate.size();
+        }
+
+        @Override
+        public FileChannel truncate(long size) throws IOException {
+            delegate.truncate(size);
+            return this;
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            return delegate.transferTo(position, count, target);
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+            return delegate.transferFrom(src, position, count);
+        }
+
+        @Override
+        public int read(ByteBuffer dst, long position) throws IOException {
+            return delegate.read(dst, position);
+        }
+
+        @Override
+        public int write(ByteBuffer src, long position) throws IOException {
+            return delegate.write(src, position);
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+            return delegate.map(mode, position, size);
+        }
+
+        @Override
+        public FileLock lock(long position, long size, boolean shared) throws IOException {
+            return delegate.lock(position, size, shared);
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+            return delegate.tryLock(position, size, shared);
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            delegate.close();
+        }
+    }
+
+    private List<Path> logFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith(TaskJournal.LOG_PREFIX))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private void clearRepository() {
+        for (String tenant : taskRepository.tenants()) {
+            TenantContext.runAs(tenant, () -> {
+                for (Task task : taskRepository.findAll()) {
+                    taskRepository.deleteById(task.getId());
+                }
+            });
+        }
+    }
+}
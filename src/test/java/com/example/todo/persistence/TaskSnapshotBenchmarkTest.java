@@ -0,0 +1,61 @@
+package com.example.todo.persistence;
+
+import com.example.todo.model.Task;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Запуск: mvn test -Dsurefire.excludedGroups= -Dgroups=benchmark
+@Tag("benchmark")
+class TaskSnapshotBenchmarkTest {
+
+    private static final int TASK_COUNT = 1_000_000;
+    private static final int ROUNDS = 5;
+
+    @TempDir
+    Path directory;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void mappedSnapshotLoad_shouldBeFasterThanJsonLoad() throws IOException {
+        List<Task> tasks = new ArrayList<>(TASK_COUNT);
+        for (int i = 0; i < TASK_COUNT; i++) {
+            tasks.add(new Task(UUID.randomUUID().toString(), "Benchmark task number " + i, i % 3 == 0));
+        }
+        Path snapshot = directory.resolve("tasks.snapshot");
+        Path json = directory.resolve("tasks.json");
+        TaskSnapshot.write(snapshot, 1, tasks);
+        objectMapper.writeValue(json.toFile(), tasks);
+
+        long snapshotNanos = Long.MAX_VALUE;
+        long jsonNanos = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long started = System.nanoTime();
+            List<Task> loaded = new ArrayList<>(TASK_COUNT);
+            TaskSnapshot.read(snapshot, loaded::add);
+            snapshotNanos = Math.min(snapshotNanos, System.nanoTime() - started);
+            assertEquals(TASK_COUNT, loaded.size());
+
+            started = System.nanoTime();
+            List<Task> parsed = objectMapper.readValue(json.toFile(), new TypeReference<List<Task>>() { });
+            jsonNanos = Math.min(jsonNanos, System.nanoTime() - started);
+            assertEquals(TASK_COUNT, parsed.size());
+        }
+
+        System.out.printf("Loading %,d tasks: mapped snapshot %d ms, JSON %d ms%n", TASK_COUNT,
+                TimeUnit.NANOSECONDS.toMillis(snapshotNanos), TimeUnit.NANOSECONDS.toMillis(jsonNanos));
+        assertTrue(snapshotNanos < jsonNanos);
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.todo.persistence;
+
+import com.example.todo.model.Task;
+import com.example.todo.tenant.TenantContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void read_shouldReturnWrittenTasksAndGeneration() throws IOException {
+        Path snapshot = directory.resolve("tasks.snapshot");
+        List<Task> tasks = List.of(
+                new Task("1", "Eat", false, 1),
+                new Task("2", "Wake up", true, 42),
+                new Task("3", null, false),
+                new Task("4", "Купить молоко ☕", true),
+                new Task("1", "Alice's", false, 3, "alice"));
+
+        TaskSnapshot.write(snapshot, 7, tasks);
+        List<Task> loaded = new ArrayList<>();
+        long generation = TaskSnapshot.read(snapshot, loaded::add);
+
+        assertEquals(7, generation);
+        assertEquals(tasks.size(), loaded.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            assertEquals(tasks.get(i).getId(), loaded.get(i).getId());
+            assertEquals(tasks.get(i).getDescription(), loaded.get(i).getDescription());
+            assertEquals(tasks.get(i).isCompleted(), loaded.get(i).isCompleted());
+            assertEquals(tasks.get(i).getVersion(), loaded.get(i).getVersion());
+        }
+        // Задачи без арендатора принадлежат арендатору по умолчанию
+        assertEquals(TenantContext.DEFAULT_TENANT, loaded.get(0).getTenant());
+        assertEquals("alice", loaded.get(4).getTenant());
+    }
+
+    @Test
+    void write_shouldHandleDescriptionsLargerThanWriteBuffer() throws IOException {
+        Path snapshot = directory.resolve("tasks.snapshot");
+        String longDescription = "x".repeat(200_000);
+
+        TaskSnapshot.write(snapshot, 1, List.of(new Task("1", longDescription, false), new Task("2", "Short", true)));
+        List<Task> loaded = new ArrayList<>();
+        TaskSnapshot.read(snapshot, loaded::add);
+
+        assertEquals(longDescription, loaded.get(0).getDescription());
+        assertEquals("Short", loaded.get(1).getDescription());
+    }
+
+    @Test
+    void write_shouldReplaceExistingSnapshotWithoutLeavingTemporaryFile() throws IOException {
+        Path snapshot = directory.resolve("tasks.snapshot");
+
+        TaskSnapshot.write(snapshot, 1, List.of(new Task("1", "Old", false)));
+        TaskSnapshot.write(snapshot, 2, List.of(new Task("2", "New", false)));
+        List<Task> loaded = new ArrayList<>();
+
+        assertEquals(2, TaskSnapshot.read(snapshot, loaded::add));
+        assertEquals(1, loaded.size());
+        assertEquals("New", loaded.get(0).getDescription());
+        assertFalse(Files.exists(directory.resolve("tasks.snapshot.tmp")));
+    }
+
+    @Test
+    void read_shouldMoveTheMappingAcrossRecords() throws IOException {
+        Path snapshot = directory.resolve("tasks.snapshot");
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            tasks.add(new Task("task-" + i, i % 50 == 0 ? "y".repeat(5_000) : "Task " + i, i % 2 == 0, i, "t" + i % 3));
+        }
+
+        TaskSnapshot.write(snapshot, 3, tasks);
+        List<Task> loaded = new ArrayList<>();
+        // Окно меньше одной записи, так что отображение переносится почти на каждом поле
+        assertEquals(3, TaskSnapshot.read(snapshot, loaded::add, 16));
+
+        assertEquals(tasks.size(), loaded.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            assertEquals(tasks.get(i).getId(), loaded.get(i).getId());
+            assertEquals(tasks.get(i).getDescription(), loaded.get(i).getDescription());
+            assertEquals(tasks.get(i).getVersion(), loaded.get(i).getVersion());
+            assertEquals(tasks.get(i).getTenant(), loaded.get(i).getTenant());
+        }
+    }
+
+    @Test
+    void read_shouldRejectTruncatedSnapshot() throws IOException {
+        Path snapshot = directory.resolve("tasks.snapshot");
+        TaskSnapshot.write(snapshot, 1, List.of(new Task("1", "Whole", false), new Task("2", "Cut off", true)));
+        byte[] bytes = Files.readAllBytes(snapshot);
+        Files.write(snapshot, Arrays.copyOf(bytes, bytes.length - 5));
+
+        assertThrows(IOException.class, () -> TaskSnapshot.read(snapshot, task -> { }));
+    }
+
+    @Test
+    void read_shouldRejectFileThatIsNotSnapshot() throws IOException {
+        Path snapshot = directory.resolve("tasks.snapshot");
+        Files.write(snapshot, new byte[64]);
+
+        assertThrows(IOException.class, () -> TaskSnapshot.read(snapshot, task -> { }));
+    }
+}
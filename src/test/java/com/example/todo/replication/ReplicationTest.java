@@ -0,0 +1,131 @@
+package com.example.todo.replication;
+
+import com.example.todo.model.Task;
+import com.example.todo.repository.JdbcTaskStore;
+import com.example.todo.tenant.TenantContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Leader and follower in one JVM, each with its own store, talking over a local socket.
+class ReplicationTest {
+
+    private JdbcTaskStore leaderStore;
+    private JdbcTaskStore followerStore;
+    private ReplicationLeader leader;
+    private ReplicationFollower follower;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        leaderStore = store();
+        followerStore = store();
+        leader = new ReplicationLeader(leaderStore, 8, "127.0.0.1", 0, 50);
+        leader.open();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (follower != null) {
+            follower.close();
+        }
+        leader.close();
+        leaderStore.close();
+        followerStore.close();
+    }
+
+    @Test
+    void follower_shouldCopyExistingTasksAndApplyChangesInOrder() throws Exception {
+        leaderStore.saveTask(new Task("1", "Existing", false));
+        TenantContext.runAs("acme", () -> leaderStore.saveTask(new Task("1", "Acme's", true)));
+        follower = startFollower();
+        awaitInSync();
+
+        leaderStore.toggleById("1");
+        leaderStore.saveTask(new Task("2", "Created later", false));
+        leaderStore.saveTask(new Task("2", "Renamed", false));
+        TenantContext.runAs("acme", () -> leaderStore.deleteById("1"));
+        awaitInSync();
+
+        assertEquals(0, follower.lag());
+        Task toggled = followerStore.findById("1").get();
+        assertTrue(toggled.isCompleted());
+        assertEquals(2, toggled.getVersion());
+        assertEquals("Renamed", followerStore.findById("2").get().getDescription());
+        assertEquals(2, followerStore.findById("2").get().getVersion());
+        TenantContext.runAs("acme", () -> assertTrue(followerStore.findById("1").isEmpty()));
+    }
+
+    @Test
+    void restartedFollower_shouldCatchUpFromSnapshot() throws Exception {
+        leaderStore.saveTask(new Task("gone", "Deleted while the follower is down", false));
+        follower = startFollower();
+        awaitInSync();
+        follower.close();
+
+        // Больше изменений, чем помещается в буфер событий лидера
+        leaderStore.deleteById("gone");
+        for (int i = 0; i < 20; i++) {
+            leaderStore.saveTask(new Task(String.valueOf(i), "Task " + i, i % 2 == 0));
+        }
+        assertTrue(followerStore.findById("gone").isPresent());
+
+        follower = startFollower();
+        awaitInSync();
+
+        assertTrue(followerStore.findById("gone").isEmpty());
+        assertEquals(20, followerStore.count());
+        assertEquals(ids(leaderStore.findAll()), ids(followerStore.findAll()));
+        assertEquals(leaderStore.countByCompleted(true), followerStore.countByCompleted(true));
+    }
+
+    @Test
+    void follower_shouldReceiveDescriptionsLongerThan64Kilobytes() throws Exception {
+        // Описание длиннее предела writeUTF и в снимке, и в отдельном изменении
+        String description = "Описание ".repeat(10_000);
+        leaderStore.saveTask(new Task("1", description, false));
+        follower = startFollower();
+        awaitInSync();
+
+        leaderStore.saveTask(new Task("2", description + "!", true));
+        leaderStore.saveTask(new Task("3", "After the long one", false));
+        awaitInSync();
+
+        assertEquals(description, followerStore.findById("1").get().getDescription());
+        assertEquals(description + "!", followerStore.findById("2").get().getDescription());
+        assertTrue(followerStore.findById("3").isPresent());
+    }
+
+    private ReplicationFollower startFollower() {
+        ReplicationFollower started = new ReplicationFollower(followerStore, "127.0.0.1:" + leader.port(), 20);
+        started.open();
+        return started;
+    }
+
+    private void awaitInSync() throws InterruptedException {
+        await(() -> follower.appliedSequence() == leader.lastSequence() && leader.followerCount() == 1);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Follower did not catch up in time");
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private static List<String> ids(List<Task> tasks) {
+        return tasks.stream().map(Task::getId).toList();
+    }
+
+    private static JdbcTaskStore store() {
+        return new JdbcTaskStore("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "", 4);
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.todo.repository;
+
+import com.example.todo.model.Task;
+import com.example.todo.model.TaskPage;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactTaskStoreTest extends TaskStoreContractTest {
+
+    @Override
+    protected TaskStore createStore() {
+        return new CompactTaskStore();
+    }
+
+    @Override
+    protected TaskStore createStore(long maxTasksPerTenant, long maxTasks) {
+        return new CompactTaskStore(maxTasksPerTenant, maxTasks);
+    }
+
+    @Test
+    void pages_shouldMergeUuidAndOtherIdsInIdOrder() {
+        // Больше задач, чем помещается в один блок порядка, и id обоих видов вперемешку
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 3_000; i++) {
+            String id = i % 10 == 0 ? "task-" + i : UUID.randomUUID().toString();
+            taskStore.saveTask(new Task(id, "Task " + i, i % 3 == 0));
+            expected.add(id);
+        }
+        for (int i = 0; i < 3_000; i += 4) {
+            taskStore.deleteById(expected.get(i));
+        }
+        List<String> kept = new ArrayList<>();
+        for (int i = 0; i < expected.size(); i++) {
+            if (i % 4 != 0) {
+                kept.add(expected.get(i));
+            }
+        }
+        kept.sort(null);
+
+        List<String> paged = new ArrayList<>();
+        String cursor = null;
+        do {
+            TaskPage page = taskStore.findPage(cursor, 97);
+            page.getTasks().forEach(task -> paged.add(task.getId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertEquals(kept, paged);
+        assertEquals(kept.size(), taskStore.countByCompleted(true) + taskStore.countByCompleted(false));
+        String other = kept.stream().filter(id -> id.startsWith("task-")).findFirst().orElseThrow();
+        assertEquals(kept.get(kept.indexOf(other) + 1), taskStore.findPage(other, 1).getTasks().get(0).getId());
+    }
+
+    @Test
+    void descriptions_shouldSurviveRewritesOfTheArena() {
+        String id = UUID.randomUUID().toString();
+        List<Task> others = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            others.add(taskStore.saveTask(new Task(null, "Другая задача " + i, false)));
+        }
+
+        // Перезапись оставляет мусор в общем массиве, пока он не будет уплотнён
+        for (int i = 0; i < 2_000; i++) {
+            taskStore.saveTask(new Task(id, "Описание " + i + " " + "x".repeat(i % 50), i % 2 == 0));
+        }
+        taskStore.saveTask(new Task(id, null, false));
+
+        assertNull(taskStore.findById(id).get().getDescription());
+        assertEquals(2_001, taskStore.findById(id).get().getVersion());
+        for (int i = 0; i < others.size(); i++) {
+            assertEquals("Другая задача " + i, taskStore.findById(others.get(i).getId()).get().getDescription());
+        }
+    }
+
+    @Test
+    void ids_shouldOnlyMatchExactly() {
+        String id = UUID.randomUUID().toString();
+        taskStore.saveTask(new Task(id, "Lower case", false));
+        taskStore.saveTask(new Task(id.toUpperCase(), "Upper case", true));
+
+        assertEquals("Lower case", taskStore.findById(id).get().getDescription());
+        assertEquals("Upper case", taskStore.findById(id.toUpperCase()).get().getDescription());
+        assertEquals(2, taskStore.count());
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.todo.repository;
+
+class InMemoryTaskStoreTest extends TaskStoreContractTest {
+
+    @Override
+    protected TaskStore createStore() {
+        return new TaskRepository();
+    }
+
+    @Override
+    protected TaskStore createStore(long maxTasksPerTenant, long maxTasks) {
+        return new TaskRepository(null, maxTasksPerTenant, maxTasks);
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.todo.repository;
+
+import com.example.todo.model.Task;
+import com.example.todo.tenant.TenantContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JdbcTaskStoreTest extends TaskStoreContractTest {
+
+    @TempDir
+    Path directory;
+
+    private String url;
+
+    // Каждый тест получает свою пустую базу
+    @Override
+    protected TaskStore createStore() {
+        url = "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+        return open(url);
+    }
+
+    @Override
+    protected TaskStore createStore(long maxTasksPerTenant, long maxTasks) {
+        return new JdbcTaskStore(url, "sa", "", 4, maxTasksPerTenant, maxTasks);
+    }
+
+    @Test
+    void reopen_shouldKeepTasksAndCounts() {
+        String url = "jdbc:h2:file:" + directory.resolve("tasks").toAbsolutePath();
+        String id;
+        try (JdbcTaskStore store = open(url)) {
+            id = store.saveTask(new Task(null, "Persisted", false)).getId();
+            store.toggleById(id);
+            store.saveTask(new Task(null, "Pending", false));
+        }
+
+        try (JdbcTaskStore store = open(url)) {
+            Task task = store.findById(id).get();
+            assertEquals("Persisted", task.getDescription());
+            assertTrue(task.isCompleted());
+            assertEquals(2, task.getVersion());
+            assertEquals(1, store.countByCompleted(true));
+            assertEquals(1, store.countByCompleted(false));
+        }
+    }
+
+    @Test
+    void reopen_shouldKeepTenantsApart() {
+        String url = "jdbc:h2:file:" + directory.resolve("tenants").toAbsolutePath();
+        try (JdbcTaskStore store = open(url)) {
+            TenantContext.runAs("alice", () -> store.saveTask(new Task("1", "Alice's", false)));
+            TenantContext.runAs("bob", () -> store.saveTask(new Task("1", "Bob's", true)));
+        }
+
+        try (JdbcTaskStore store = new JdbcTaskStore(url, "sa", "", 4, 1)) {
+            assertEquals(Set.of("alice", "bob"), store.tenants());
+            TenantContext.runAs("alice", () -> {
+                assertEquals("Alice's", store.findById("1").get().getDescription());
+                assertEquals(1, store.countByCompleted(false));
+                // Счётчик для квоты тоже восстанавливается
+                assertThrows(TaskQuotaExceededException.class, () -> store.saveTask(new Task("2", "Too many", false)));
+            });
+            TenantContext.runAs("bob", () -> assertEquals(1, store.countByCompleted(true)));
+        }
+    }
+
+    @Test
+    void saveAll_shouldTreatRepeatedIdsInBatchAsSuccessiveVersions() {
+        String id = "batch-" + UUID.randomUUID();
+
+        taskStore.saveAll(List.of(new Task(id, "First", false), new Task(id, "Second", true)));
+
+        Task task = taskStore.findById(id).get();
+        assertEquals("Second", task.getDescription());
+        assertEquals(2, task.getVersion());
+        assertEquals(1, taskStore.count());
+        assertEquals(1, taskStore.countByCompleted(true));
+    }
+
+    private static JdbcTaskStore open(String url) {
+        return new JdbcTaskStore(url, "sa", "", 4);
+    }
+}
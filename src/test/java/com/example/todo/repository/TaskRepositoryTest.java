@@ -1,12 +1,22 @@
 package com.example.todo.repository;
 
 import com.example.todo.model.Task;
+import com.example.todo.model.TaskPage;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -17,6 +27,19 @@ class TaskRepositoryTest {
     @BeforeEach
     void setUp() {
         taskRepository = new TaskRepository();
+        // Те же задачи, что создаёт DataInitializer при запуске приложения
+        taskRepository.saveTask(new Task(UUID.randomUUID().toString(), "Eat", false));
+        taskRepository.saveTask(new Task(UUID.randomUUID().toString(), "Wake up", true));
+    }
+
+    @Test
+    void stores_shouldNotShareTasks() {
+        TaskRepository other = new TaskRepository();
+        Task task = other.saveTask(new Task(null, "Only in the other store", false));
+
+        assertFalse(taskRepository.findById(task.getId()).isPresent());
+        assertEquals(2, taskRepository.count());
+        assertEquals(1, other.countAllTenants());
     }
 
     @Test
@@ -104,4 +127,245 @@ class TaskRepositoryTest {
 
         assertEquals(initialCount + 1, taskRepository.count());
     }
+
+    @Test
+    void findPage_shouldWalkAllTasksWithoutDuplicates() {
+        for (int i = 0; i < 25; i++) {
+            taskRepository.saveTask(new Task(null, "Paged Task " + i, false));
+        }
+
+        Set<String> seen = new HashSet<>();
+        String cursor = null;
+        do {
+            TaskPage page = taskRepository.findPage(cursor, 7);
+            assertTrue(page.getTasks().size() <= 7);
+            for (Task task : page.getTasks()) {
+                assertTrue(seen.add(task.getId()));
+            }
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertEquals(taskRepository.count(), seen.size());
+    }
+
+    @Test
+    void findPage_shouldReturnTasksAfterCursorInIdOrder() {
+        Task first = taskRepository.findPage(null, 1).getTasks().get(0);
+
+        TaskPage page = taskRepository.findPage(first.getId(), 5);
+
+        for (Task task : page.getTasks()) {
+            assertTrue(task.getId().compareTo(first.getId()) > 0);
+        }
+    }
+
+    @Test
+    void countByCompleted_shouldFollowSaveToggleAndDelete() {
+        long completed = taskRepository.countByCompleted(true);
+        long pending = taskRepository.countByCompleted(false);
+
+        Task task = taskRepository.saveTask(new Task(null, "Indexed Task", false));
+        assertEquals(pending + 1, taskRepository.countByCompleted(false));
+
+        taskRepository.toggleById(task.getId());
+        assertEquals(completed + 1, taskRepository.countByCompleted(true));
+        assertEquals(pending, taskRepository.countByCompleted(false));
+
+        taskRepository.deleteById(task.getId());
+        assertEquals(completed, taskRepository.countByCompleted(true));
+        assertEquals(pending, taskRepository.countByCompleted(false));
+    }
+
+    @Test
+    void findByCompleted_shouldReturnOnlyMatchingTasks() {
+        taskRepository.saveTask(new Task(null, "Done", true));
+        taskRepository.saveTask(new Task(null, "Not done", false));
+
+        TaskPage completed = taskRepository.findByCompleted(true, null, 1_000);
+        TaskPage pending = taskRepository.findByCompleted(false, null, 1_000);
+
+        assertTrue(completed.getTasks().stream().allMatch(Task::isCompleted));
+        assertTrue(pending.getTasks().stream().noneMatch(Task::isCompleted));
+        assertEquals(taskRepository.countByCompleted(true), completed.getTasks().size());
+        assertEquals(taskRepository.countByCompleted(false), pending.getTasks().size());
+    }
+
+    @Test
+    void saveTask_shouldReindexTaskMutatedInPlace() {
+        Task task = taskRepository.saveTask(new Task(null, "Mutated", false));
+        long completed = taskRepository.countByCompleted(true);
+
+        task.setCompleted(true);
+        taskRepository.saveTask(task);
+
+        assertEquals(completed + 1, taskRepository.countByCompleted(true));
+        assertTrue(taskRepository.findByCompleted(true, null, 1_000).getTasks().contains(task));
+    }
+
+    @Test
+    void saveAll_shouldSaveBatchAndBumpVersionOnce() {
+        long initialCount = taskRepository.count();
+        long initialVersion = taskRepository.version();
+
+        List<Task> saved = taskRepository.saveAll(List.of(
+                new Task(null, "Batch 1", false),
+                new Task(null, "Batch 2", true)));
+
+        assertEquals(2, saved.size());
+        assertTrue(saved.stream().allMatch(task -> task.getId() != null));
+        assertEquals(initialCount + 2, taskRepository.count());
+        assertEquals(initialVersion + 1, taskRepository.version());
+    }
+
+    @Test
+    void toggleAll_shouldToggleExistingTasksAndSkipMissing() {
+        Task task = taskRepository.saveTask(new Task(null, "Toggle in batch", false));
+
+        Map<String, Task> toggled = taskRepository.toggleAll(List.of(task.getId(), "missing"));
+
+        assertEquals(1, toggled.size());
+        assertTrue(toggled.get(task.getId()).isCompleted());
+        assertTrue(taskRepository.findById(task.getId()).get().isCompleted());
+    }
+
+    @Test
+    void deleteCompleted_shouldRemoveOnlyCompletedTasks() {
+        Task pending = taskRepository.saveTask(new Task(null, "Still pending", false));
+        taskRepository.saveTask(new Task(null, "Done", true));
+
+        int deleted = taskRepository.deleteCompleted();
+
+        assertTrue(deleted >= 1);
+        assertEquals(0, taskRepository.countByCompleted(true));
+        assertTrue(taskRepository.findById(pending.getId()).isPresent());
+    }
+
+    @Test
+    void concurrentWrites_shouldNotLoseUpdates() throws Exception {
+        int threads = 8;
+        int tasksPerThread = 5_000;
+        long initialCount = taskRepository.count();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<String>>> futures = new ArrayList<>();
+
+        // Каждый поток создаёт, читает, обновляет и частично удаляет свои задачи
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                List<String> kept = new ArrayList<>();
+                for (int i = 0; i < tasksPerThread; i++) {
+                    Task saved = taskRepository.saveTask(new Task(null, "Stress " + i, false));
+                    assertTrue(taskRepository.findById(saved.getId()).isPresent());
+                    taskRepository.saveTask(new Task(saved.getId(), "Stress " + i, true));
+                    if (i % 2 == 0) {
+                        taskRepository.deleteById(saved.getId());
+                    } else {
+                        kept.add(saved.getId());
+                    }
+                }
+                return kept;
+            }));
+        }
+
+        long startedAt = System.nanoTime();
+        start.countDown();
+        List<String> keptIds = new ArrayList<>();
+        for (Future<List<String>> future : futures) {
+            keptIds.addAll(future.get(60, TimeUnit.SECONDS));
+        }
+        long elapsedNanos = System.nanoTime() - startedAt;
+        executor.shutdown();
+
+        try {
+            assertEquals(initialCount + keptIds.size(), taskRepository.count());
+            for (String id : keptIds) {
+                Optional<Task> task = taskRepository.findById(id);
+                assertTrue(task.isPresent());
+                assertTrue(task.get().isCompleted());
+            }
+            long operations = (long) threads * tasksPerThread * 4;
+            double opsPerSecond = operations / (elapsedNanos / 1_000_000_000.0);
+            assertTrue(opsPerSecond > 10_000, "Throughput too low: " + opsPerSecond + " ops/sec");
+        } finally {
+            keptIds.forEach(taskRepository::deleteById);
+        }
+    }
+
+    @Test
+    void saveTask_shouldAssignIncreasingVersions() {
+        Task task = taskRepository.saveTask(new Task("version-1", "Task", false));
+        assertEquals(1, task.getVersion());
+
+        assertEquals(2, taskRepository.toggleById("version-1").get().getVersion());
+        assertEquals(3, taskRepository.saveTask(new Task("version-1", "Renamed", true)).getVersion());
+
+        taskRepository.deleteById("version-1");
+    }
+
+    @Test
+    void saveTask_shouldRejectStaleVersion() {
+        taskRepository.saveTask(new Task("version-2", "Task", false));
+        Task first = taskRepository.findById("version-2").get();
+        Task edit = new Task("version-2", "First edit", false, first.getVersion());
+        Task stale = new Task("version-2", "Second edit", false, first.getVersion());
+
+        taskRepository.saveTask(edit);
+        long storeVersion = taskRepository.version();
+        TaskVersionConflictException conflict =
+                assertThrows(TaskVersionConflictException.class, () -> taskRepository.saveTask(stale));
+
+        // Отклонённая запись ничего не меняет
+        assertEquals("First edit", taskRepository.findById("version-2").get().getDescription());
+        assertEquals(storeVersion, taskRepository.version());
+        assertEquals(edit.getVersion(), conflict.getCurrent().get().getVersion());
+        assertThrows(TaskVersionConflictException.class, () -> taskRepository.toggleById("version-2", first.getVersion()));
+
+        taskRepository.deleteById("version-2");
+        assertTrue(assertThrows(TaskVersionConflictException.class, () -> taskRepository.saveTask(edit))
+                .getCurrent().isEmpty());
+    }
+
+    @Test
+    void concurrentCompareAndSwap_shouldNotLoseUpdates() throws Exception {
+        int threads = 8;
+        int incrementsPerThread = 500;
+        taskRepository.saveTask(new Task("cas-counter", "0", false));
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                int conflicts = 0;
+                for (int i = 0; i < incrementsPerThread; i++) {
+                    while (true) {
+                        Task current = taskRepository.findById("cas-counter").get();
+                        long version = current.getVersion();
+                        int value = Integer.parseInt(current.getDescription());
+                        try {
+                            taskRepository.saveTask(new Task("cas-counter", String.valueOf(value + 1), false, version));
+                            break;
+                        } catch (TaskVersionConflictException e) {
+                            conflicts++;
+                        }
+                    }
+                }
+                return conflicts;
+            }));
+        }
+        start.countDown();
+        for (Future<Integer> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        try {
+            Task counter = taskRepository.findById("cas-counter").get();
+            assertEquals(String.valueOf(threads * incrementsPerThread), counter.getDescription());
+            assertEquals(1 + threads * incrementsPerThread, counter.getVersion());
+        } finally {
+            taskRepository.deleteById("cas-counter");
+        }
+    }
 }
@@ -0,0 +1,569 @@
+package com.example.todo.repository;
+
+import com.example.todo.model.Task;
+import com.example.todo.model.TaskPage;
+import com.example.todo.tenant.TenantContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Behaviour every {@link TaskStore} has to provide, derived from {@link TaskRepositoryTest}.
+ * Stores may be shared with other tests, so each test only relies on the tasks it created
+ * and on changes relative to the counts it started with.
+ */
+abstract class TaskStoreContractTest {
+
+    protected TaskStore taskStore;
+
+    protected abstract TaskStore createStore();
+
+    // A store that allows each tenant, and all tenants together, at most the given number of tasks.
+    protected abstract TaskStore createStore(long maxTasksPerTenant, long maxTasks);
+
+    @BeforeEach
+    void setUp() {
+        taskStore = createStore();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (taskStore instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    @Test
+    void findAll_shouldReturnSavedTasks() {
+        Task task = taskStore.saveTask(new Task(null, "Listed Task", false));
+
+        assertTrue(ids(taskStore.findAll()).contains(task.getId()));
+
+        taskStore.deleteById(task.getId());
+    }
+
+    @Test
+    void saveTask_shouldAddNewTask() {
+        long initialCount = taskStore.count();
+
+        Task savedTask = taskStore.saveTask(new Task(null, "New Test Task", false));
+
+        assertNotNull(savedTask.getId());
+        assertEquals("New Test Task", taskStore.findById(savedTask.getId()).get().getDescription());
+        assertFalse(taskStore.findById(savedTask.getId()).get().isCompleted());
+        assertEquals(initialCount + 1, taskStore.count());
+        assertEquals(initialCount + 1, taskStore.findAll().size());
+
+        taskStore.deleteById(savedTask.getId());
+    }
+
+    @Test
+    void saveTask_shouldUpdateExistingTask() {
+        Task task = taskStore.saveTask(new Task(null, "Original Description", false));
+        long initialCount = taskStore.count();
+        task.setDescription("Updated Description");
+        task.setCompleted(true);
+
+        taskStore.saveTask(task);
+
+        Task retrieved = taskStore.findById(task.getId()).get();
+        assertEquals("Updated Description", retrieved.getDescription());
+        assertTrue(retrieved.isCompleted());
+        assertEquals(initialCount, taskStore.count());
+
+        taskStore.deleteById(task.getId());
+    }
+
+    @Test
+    void findById_shouldReturnEmptyWhenTaskDoesNotExist() {
+        assertFalse(taskStore.findById(UUID.randomUUID().toString()).isPresent());
+    }
+
+    @Test
+    void deleteById_shouldRemoveTask() {
+        Task savedTask = taskStore.saveTask(new Task(null, "Task to delete", true));
+        long initialCount = taskStore.count();
+        long version = taskStore.version();
+
+        taskStore.deleteById(savedTask.getId());
+        taskStore.deleteById(savedTask.getId());
+
+        assertFalse(taskStore.findById(savedTask.getId()).isPresent());
+        assertEquals(initialCount - 1, taskStore.count());
+        // Повторное удаление ничего не меняет
+        assertEquals(version + 1, taskStore.version());
+    }
+
+    @Test
+    void findPage_shouldWalkAllTasksInIdOrderWithoutDuplicates() {
+        List<Task> created = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            created.add(taskStore.saveTask(new Task(null, "Paged Task " + i, i % 3 == 0)));
+        }
+
+        Set<String> seen = new HashSet<>();
+        String previous = "";
+        String cursor = null;
+        do {
+            TaskPage page = taskStore.findPage(cursor, 7);
+            assertTrue(page.getTasks().size() <= 7);
+            for (Task task : page.getTasks()) {
+                assertTrue(seen.add(task.getId()));
+                assertTrue(task.getId().compareTo(previous) > 0);
+                previous = task.getId();
+            }
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertEquals(taskStore.count(), seen.size());
+        created.forEach(task -> taskStore.deleteById(task.getId()));
+    }
+
+    @Test
+    void findByCompleted_shouldReturnOnlyMatchingTasks() {
+        Task done = taskStore.saveTask(new Task(null, "Done", true));
+        Task notDone = taskStore.saveTask(new Task(null, "Not done", false));
+
+        List<Task> completed = walk(true);
+        List<Task> pending = walk(false);
+
+        assertTrue(completed.stream().allMatch(Task::isCompleted));
+        assertTrue(pending.stream().noneMatch(Task::isCompleted));
+        assertTrue(ids(completed).contains(done.getId()));
+        assertTrue(ids(pending).contains(notDone.getId()));
+        assertEquals(taskStore.countByCompleted(true), completed.size());
+        assertEquals(taskStore.countByCompleted(false), pending.size());
+
+        taskStore.deleteById(done.getId());
+        taskStore.deleteById(notDone.getId());
+    }
+
+    @Test
+    void countByCompleted_shouldFollowSaveToggleAndDelete() {
+        long completed = taskStore.countByCompleted(true);
+        long pending = taskStore.countByCompleted(false);
+
+        Task task = taskStore.saveTask(new Task(null, "Indexed Task", false));
+        assertEquals(pending + 1, taskStore.countByCompleted(false));
+
+        taskStore.toggleById(task.getId());
+        assertEquals(completed + 1, taskStore.countByCompleted(true));
+        assertEquals(pending, taskStore.countByCompleted(false));
+
+        taskStore.deleteById(task.getId());
+        assertEquals(completed, taskStore.countByCompleted(true));
+        assertEquals(pending, taskStore.countByCompleted(false));
+    }
+
+    @Test
+    void saveAll_shouldSaveBatchAndBumpVersionOnce() {
+        long initialCount = taskStore.count();
+        long initialVersion = taskStore.version();
+
+        List<Task> saved = taskStore.saveAll(List.of(
+                new Task(null, "Batch 1", false),
+                new Task(null, "Batch 2", true)));
+
+        assertEquals(2, saved.size());
+        assertTrue(saved.stream().allMatch(task -> task.getId() != null && task.getVersion() == 1));
+        assertEquals(initialCount + 2, taskStore.count());
+        assertEquals(initialVersion + 1, taskStore.version());
+
+        saved.forEach(task -> taskStore.deleteById(task.getId()));
+    }
+
+    @Test
+    void toggleAll_shouldToggleExistingTasksAndSkipMissing() {
+        Task task = taskStore.saveTask(new Task(null, "Toggle in batch", false));
+
+        Map<String, Task> toggled = taskStore.toggleAll(List.of(task.getId(), "missing"));
+
+        assertEquals(1, toggled.size());
+        assertTrue(toggled.get(task.getId()).isCompleted());
+        assertTrue(taskStore.findById(task.getId()).get().isCompleted());
+
+        taskStore.deleteById(task.getId());
+    }
+
+    @Test
+    void deleteByIdIfCompleted_shouldKeepPendingTask() {
+        Task pending = taskStore.saveTask(new Task(null, "Pending", false));
+        Task done = taskStore.saveTask(new Task(null, "Done", true));
+
+        assertFalse(taskStore.deleteByIdIfCompleted(pending.getId()).get().isCompleted());
+        assertTrue(taskStore.deleteByIdIfCompleted(done.getId()).get().isCompleted());
+        assertTrue(taskStore.deleteByIdIfCompleted("missing").isEmpty());
+
+        assertTrue(taskStore.findById(pending.getId()).isPresent());
+        assertFalse(taskStore.findById(done.getId()).isPresent());
+        taskStore.deleteById(pending.getId());
+    }
+
+    @Test
+    void deleteCompleted_shouldRemoveOnlyCompletedTasks() {
+        Task pending = taskStore.saveTask(new Task(null, "Still pending", false));
+        taskStore.saveTask(new Task(null, "Done", true));
+
+        assertTrue(taskStore.deleteCompleted() >= 1);
+
+        assertEquals(0, taskStore.countByCompleted(true));
+        assertTrue(taskStore.findById(pending.getId()).isPresent());
+        taskStore.deleteById(pending.getId());
+    }
+
+    @Test
+    void listeners_shouldSeePreviousStateOfEveryChange() {
+        List<String> changes = new ArrayList<>();
+        TaskChangeListener listener = new TaskChangeListener() {
+            @Override
+            public void taskSaved(Task previous, Task task) {
+                changes.add((previous == null ? "new" : previous.getDescription()) + " -> " + task.getDescription()
+                        + (task.isCompleted() ? " (done)" : ""));
+            }
+
+            @Override
+            public void taskDeleted(String id, Task previous) {
+                changes.add("deleted " + previous.getDescription());
+            }
+        };
+        taskStore.addListener(listener);
+        try {
+            Task task = taskStore.saveTask(new Task(null, "Listened", false));
+            taskStore.saveTask(new Task(task.getId(), "Renamed", false));
+            taskStore.toggleById(task.getId());
+            taskStore.deleteById(task.getId());
+        } finally {
+            taskStore.removeListener(listener);
+        }
+
+        assertEquals(List.of("new -> Listened", "Listened -> Renamed", "Renamed -> Renamed (done)", "deleted Renamed"),
+                changes);
+    }
+
+    @Test
+    void saveTask_shouldAssignIncreasingVersions() {
+        String id = "contract-version-" + UUID.randomUUID();
+        assertEquals(1, taskStore.saveTask(new Task(id, "Task", false)).getVersion());
+
+        assertEquals(2, taskStore.toggleById(id).get().getVersion());
+        assertEquals(3, taskStore.saveTask(new Task(id, "Renamed", true)).getVersion());
+        assertEquals(3, taskStore.findById(id).get().getVersion());
+
+        taskStore.deleteById(id);
+    }
+
+    @Test
+    void saveAll_shouldOnlyCreateTasksAtNewTask() {
+        String id = "contract-new-" + UUID.randomUUID();
+        Task first = taskStore.saveTask(new Task(id, "First", false, TaskStore.NEW_TASK));
+        long count = taskStore.count();
+        long storeVersion = taskStore.version();
+
+        assertEquals(1, first.getVersion());
+        assertThrows(TaskVersionConflictException.class,
+                () -> taskStore.saveTask(new Task(id, "Second", true, TaskStore.NEW_TASK)));
+        assertThrows(TaskVersionConflictException.class, () -> taskStore.saveAll(List.of(
+                new Task(null, "Fresh", false, TaskStore.NEW_TASK),
+                new Task(id, "Second", true, TaskStore.NEW_TASK))));
+        String twice = "contract-twice-" + UUID.randomUUID();
+        assertThrows(TaskVersionConflictException.class, () -> taskStore.saveAll(List.of(
+                new Task(twice, "Once", false, TaskStore.NEW_TASK),
+                new Task(twice, "Twice", false, TaskStore.NEW_TASK))));
+
+        // Ни одна задача отклонённого пакета не записана
+        assertEquals("First", taskStore.findById(id).get().getDescription());
+        assertEquals(1, taskStore.findById(id).get().getVersion());
+        assertTrue(taskStore.findById(twice).isEmpty());
+        assertEquals(count, taskStore.count());
+        assertEquals(storeVersion, taskStore.version());
+
+        taskStore.deleteById(id);
+    }
+
+    @Test
+    void saveTask_shouldRejectStaleVersion() {
+        String id = "contract-stale-" + UUID.randomUUID();
+        Task first = taskStore.saveTask(new Task(id, "Task", false));
+        Task edit = new Task(id, "First edit", false, first.getVersion());
+        Task stale = new Task(id, "Second edit", false, first.getVersion());
+
+        taskStore.saveTask(edit);
+        long storeVersion = taskStore.version();
+        TaskVersionConflictException conflict =
+                assertThrows(TaskVersionConflictException.class, () -> taskStore.saveTask(stale));
+
+        // Отклонённая запись ничего не меняет
+        assertEquals("First edit", taskStore.findById(id).get().getDescription());
+        assertEquals(storeVersion, taskStore.version());
+        assertEquals(edit.getVersion(), conflict.getCurrent().get().getVersion());
+        assertThrows(TaskVersionConflictException.class, () -> taskStore.toggleById(id, first.getVersion()));
+
+        taskStore.deleteById(id);
+        assertTrue(assertThrows(TaskVersionConflictException.class, () -> taskStore.saveTask(edit))
+                .getCurrent().isEmpty());
+    }
+
+    @Test
+    void restore_shouldKeepPersistedVersion() {
+        String id = "contract-restore-" + UUID.randomUUID();
+
+        taskStore.restore(new Task(id, "Restored", true, 42));
+
+        assertEquals(42, taskStore.findById(id).get().getVersion());
+        assertEquals(43, taskStore.toggleById(id).get().getVersion());
+        taskStore.deleteById(id);
+    }
+
+    @Test
+    void tenants_shouldOnlySeeTheirOwnTasks() {
+        String alice = "alice-" + UUID.randomUUID();
+        String bob = "bob-" + UUID.randomUUID();
+        String id = "contract-tenant-" + UUID.randomUUID();
+
+        Task aliceTask = TenantContext.callAs(alice, () -> taskStore.saveTask(new Task(id, "Alice's", false)));
+        long bobVersion = TenantContext.callAs(bob, taskStore::version);
+        TenantContext.runAs(bob, () -> taskStore.saveTask(new Task(id, "Bob's", true)));
+
+        assertEquals(alice, aliceTask.getTenant());
+        assertTrue(taskStore.tenants().containsAll(Set.of(alice, bob)));
+        TenantContext.runAs(alice, () -> {
+            assertEquals("Alice's", taskStore.findById(id).get().getDescription());
+            assertEquals(List.of(id), ids(taskStore.findAll()));
+            assertEquals(1, taskStore.count());
+            assertEquals(0, taskStore.countByCompleted(true));
+            // Одинаковый id у разных арендаторов - это разные задачи
+            assertEquals(1, taskStore.findById(id).get().getVersion());
+        });
+        TenantContext.runAs(bob, () -> {
+            assertEquals("Bob's", taskStore.findById(id).get().getDescription());
+            assertEquals(bobVersion + 1, taskStore.version());
+            assertEquals(1, taskStore.countByCompleted(true));
+            assertEquals(1, taskStore.deleteCompleted());
+        });
+        TenantContext.runAs(alice, () -> {
+            assertTrue(taskStore.findById(id).isPresent());
+            taskStore.deleteById(id);
+        });
+        assertTrue(taskStore.findById(id).isEmpty());
+    }
+
+    @Test
+    void restore_shouldUseTheTasksOwnTenant() {
+        String tenant = "restored-" + UUID.randomUUID();
+        String id = "contract-restore-tenant-" + UUID.randomUUID();
+
+        taskStore.restore(new Task(id, "Restored", false, 3, tenant));
+
+        assertTrue(taskStore.findById(id).isEmpty());
+        TenantContext.runAs(tenant, () -> {
+            assertEquals(3, taskStore.findById(id).get().getVersion());
+            assertEquals(1, taskStore.count());
+            taskStore.deleteById(id);
+        });
+    }
+
+    @Test
+    void quota_shouldRejectCreationsPastTheTenantsLimit() throws Exception {
+        TaskStore limited = createStore(2, 0);
+        String tenant = "limited-" + UUID.randomUUID();
+        try {
+            TenantContext.runAs(tenant, () -> {
+                Task first = limited.saveTask(new Task(null, "First", false));
+                limited.saveTask(new Task(null, "Second", false));
+
+                TaskQuotaExceededException exceeded = assertThrows(TaskQuotaExceededException.class,
+                        () -> limited.saveTask(new Task(null, "Third", false)));
+                assertEquals(tenant, exceeded.getTenant());
+                assertThrows(TaskQuotaExceededException.class,
+                        () -> limited.saveAll(List.of(new Task(null, "Batch", false))));
+                assertEquals(2, limited.count());
+
+                // Изменения существующих задач квота не ограничивает
+                limited.saveTask(new Task(first.getId(), "First, edited", true));
+                assertEquals(2, limited.count());
+
+                limited.deleteById(first.getId());
+                limited.saveTask(new Task(null, "Third", false));
+                assertEquals(2, limited.count());
+                limited.findAll().forEach(task -> limited.deleteById(task.getId()));
+            });
+            TenantContext.runAs("other-" + tenant, () -> {
+                List<Task> saved = limited.saveAll(List.of(new Task(null, "A", false), new Task(null, "B", false)));
+                saved.forEach(task -> limited.deleteById(task.getId()));
+            });
+        } finally {
+            if (limited instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    @Test
+    void capacity_shouldHoldUnderConcurrentCreations() throws Exception {
+        int threads = 8;
+        long limit = taskStore.countAllTenants() + 50;
+        TaskStore limited = createStore(0, limit);
+        long initialCount = limited.countAllTenants();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<String>>> futures = new ArrayList<>();
+
+        // Каждый поток пишет в свой тенант, лимит общий
+        for (int t = 0; t < threads; t++) {
+            String tenant = "capacity-" + t + "-" + UUID.randomUUID();
+            futures.add(executor.submit(() -> {
+                start.await();
+                return TenantContext.callAs(tenant, () -> {
+                    List<String> created = new ArrayList<>();
+                    for (int i = 0; i < 20; i++) {
+                        try {
+                            created.add(limited.saveTask(new Task(null, "Task " + i, false)).getId());
+                        } catch (TaskCapacityExceededException e) {
+                            assertEquals(limit, e.getLimit());
+                        }
+                    }
+                    return created;
+                });
+            }));
+        }
+        start.countDown();
+        int created = 0;
+        try {
+            for (Future<List<String>> future : futures) {
+                created += future.get(60, TimeUnit.SECONDS).size();
+            }
+            assertEquals(limit - initialCount, created);
+            assertEquals(limit, limited.countAllTenants());
+            assertThrows(TaskCapacityExceededException.class,
+                    () -> limited.saveAll(List.of(new Task(null, "One more", false))));
+        } finally {
+            executor.shutdown();
+            for (String tenant : limited.tenants()) {
+                if (tenant.startsWith("capacity-")) {
+                    TenantContext.runAs(tenant, () -> limited.findAll().forEach(task -> limited.deleteById(task.getId())));
+                }
+            }
+            if (limited instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    @Test
+    void concurrentWrites_shouldNotLoseUpdates() throws Exception {
+        int threads = 8;
+        int tasksPerThread = 500;
+        long initialCount = taskStore.count();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<String>>> futures = new ArrayList<>();
+
+        // Каждый поток создаёт, читает, обновляет и частично удаляет свои задачи
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                List<String> kept = new ArrayList<>();
+                for (int i = 0; i < tasksPerThread; i++) {
+                    Task saved = taskStore.saveTask(new Task(null, "Stress " + i, false));
+                    assertTrue(taskStore.findById(saved.getId()).isPresent());
+                    taskStore.saveTask(new Task(saved.getId(), "Stress " + i, true));
+                    if (i % 2 == 0) {
+                        taskStore.deleteById(saved.getId());
+                    } else {
+                        kept.add(saved.getId());
+                    }
+                }
+                return kept;
+            }));
+        }
+        start.countDown();
+        List<String> keptIds = new ArrayList<>();
+        for (Future<List<String>> future : futures) {
+            keptIds.addAll(future.get(60, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+
+        try {
+            assertEquals(initialCount + keptIds.size(), taskStore.count());
+            for (String id : keptIds) {
+                Optional<Task> task = taskStore.findById(id);
+                assertTrue(task.isPresent());
+                assertTrue(task.get().isCompleted());
+            }
+        } finally {
+            keptIds.forEach(taskStore::deleteById);
+        }
+    }
+
+    @Test
+    void concurrentCompareAndSwap_shouldNotLoseUpdates() throws Exception {
+        int threads = 8;
+        int incrementsPerThread = 200;
+        String id = "contract-cas-" + UUID.randomUUID();
+        taskStore.saveTask(new Task(id, "0", false));
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < incrementsPerThread; i++) {
+                    while (true) {
+                        Task current = taskStore.findById(id).get();
+                        int value = Integer.parseInt(current.getDescription());
+                        try {
+                            taskStore.saveTask(new Task(id, String.valueOf(value + 1), false, current.getVersion()));
+                            break;
+                        } catch (TaskVersionConflictException e) {
+                            // Перечитываем и пробуем снова
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        try {
+            Task counter = taskStore.findById(id).get();
+            assertEquals(String.valueOf(threads * incrementsPerThread), counter.getDescription());
+            assertEquals(1 + threads * incrementsPerThread, counter.getVersion());
+        } finally {
+            taskStore.deleteById(id);
+        }
+    }
+
+    private static List<String> ids(List<Task> tasks) {
+        return tasks.stream().map(Task::getId).toList();
+    }
+
+    private List<Task> walk(boolean completed) {
+        List<Task> tasks = new ArrayList<>();
+        String cursor = null;
+        do {
+            TaskPage page = taskStore.findByCompleted(completed, cursor, 5);
+            tasks.addAll(page.getTasks());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return tasks;
+    }
+}
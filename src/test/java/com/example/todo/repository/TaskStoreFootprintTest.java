@@ -0,0 +1,47 @@
+package com.example.todo.repository;
+
+import com.example.todo.model.Task;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Запуск: mvn test -Dsurefire.excludedGroups= -Dgroups=benchmark
+@Tag("benchmark")
+class TaskStoreFootprintTest {
+
+    private static final int TASK_COUNT = 50_000;
+
+    @Test
+    void compactStore_shouldTakeLessThanHalfTheHeapOfTheDefaultStore() {
+        Map<String, Task> map = new HashMap<>();
+        TaskRepository repository = new TaskRepository();
+        CompactTaskStore compact = new CompactTaskStore();
+        for (int i = 0; i < TASK_COUNT; i++) {
+            String id = UUID.randomUUID().toString();
+            String description = "Benchmark task number " + i;
+            boolean completed = i % 3 == 0;
+            map.put(id, new Task(id, description, completed, 1));
+            repository.saveTask(new Task(id, description, completed));
+            compact.saveTask(new Task(id, description, completed));
+        }
+
+        double mapBytes = bytesPerTask(map);
+        double repositoryBytes = bytesPerTask(repository);
+        double compactBytes = bytesPerTask(compact);
+
+        System.out.printf("Heap per task over %,d tasks: HashMap<String, Task> %.0f B, TaskRepository %.0f B, "
+                + "CompactTaskStore %.0f B%n", TASK_COUNT, mapBytes, repositoryBytes, compactBytes);
+        assertTrue(compactBytes < mapBytes / 2);
+        assertTrue(compactBytes < repositoryBytes / 2);
+    }
+
+    private static double bytesPerTask(Object store) {
+        return (double) GraphLayout.parseInstance(store).totalSize() / TASK_COUNT;
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.todo.repository;
+
+import com.example.todo.model.Task;
+import com.example.todo.tenant.TenantContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// The whole contract against a store that spills every completed task as soon as it can.
+class TieredTaskStoreTest extends TaskStoreContractTest {
+
+    @TempDir
+    Path directory;
+
+    private ColdTaskSegment segment;
+
+    @Override
+    protected TaskStore createStore() {
+        segment = new ColdTaskSegment(directory, 0, Duration.ZERO, 2);
+        return new TaskRepository(segment);
+    }
+
+    @Override
+    protected TaskStore createStore(long maxTasksPerTenant, long maxTasks) {
+        return new TaskRepository(segment, maxTasksPerTenant, maxTasks);
+    }
+
+    @AfterEach
+    void closeSegment() throws Exception {
+        ((TaskRepository) taskStore).close();
+        segment.close();
+    }
+
+    @Test
+    void completedTasks_shouldSpillAndFaultBackIn() {
+        Task done = taskStore.saveTask(new Task(null, "Done long ago", true));
+        Task pending = taskStore.saveTask(new Task(null, "Still to do", false));
+
+        assertEquals(1, segment.size());
+        long disk = segment.diskReads();
+        assertEquals("Done long ago", taskStore.findById(done.getId()).get().getDescription());
+        assertEquals("Done long ago", taskStore.findById(done.getId()).get().getDescription());
+        // Второе чтение обслуживается из кэша
+        assertEquals(disk + 1, segment.diskReads());
+        assertTrue(taskStore.findById(pending.getId()).isPresent());
+        assertTrue(taskStore.findByCompleted(true, null, 1_000).getTasks().stream()
+                .anyMatch(task -> task.getId().equals(done.getId())));
+    }
+
+    @Test
+    void writeToSpilledTask_shouldBringItBackToHeap() {
+        Task done = taskStore.saveTask(new Task(null, "Done", true));
+        assertEquals(1, segment.size());
+
+        Task reopened = taskStore.toggleById(done.getId()).get();
+
+        assertFalse(reopened.isCompleted());
+        assertEquals(2, reopened.getVersion());
+        assertEquals(0, segment.size());
+        assertSame(reopened, taskStore.findById(done.getId()).get());
+    }
+
+    @Test
+    void rejectedWriteToSpilledTask_shouldLeaveItOnDisk() {
+        Task done = taskStore.saveTask(new Task(null, "Done", true));
+
+        assertThrows(TaskVersionConflictException.class,
+                () -> taskStore.saveTask(new Task(done.getId(), "Stale", true, done.getVersion() + 1)));
+
+        assertEquals(1, segment.size());
+        assertEquals("Done", taskStore.findById(done.getId()).get().getDescription());
+    }
+
+    @Test
+    void spilledTasks_shouldBeCountedAndListed() {
+        long count = taskStore.count();
+        Task done = taskStore.saveTask(new Task(null, "Done", true));
+
+        assertEquals(count + 1, taskStore.count());
+        assertTrue(taskStore.findAll().stream().anyMatch(task -> task.getId().equals(done.getId())));
+
+        taskStore.deleteById(done.getId());
+        assertEquals(0, segment.size());
+        assertFalse(taskStore.findById(done.getId()).isPresent());
+        assertEquals(count, taskStore.count());
+    }
+
+    @Test
+    void heapLimit_shouldKeepMostRecentlyWrittenCompletedTasks() throws Exception {
+        segment.close();
+        segment = new ColdTaskSegment(directory, 10, Duration.ofHours(1), 2);
+        ((TaskRepository) taskStore).close();
+        taskStore = new TaskRepository(segment);
+
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            tasks.add(taskStore.saveTask(new Task(null, "Done " + i, true)));
+        }
+
+        // На куче остаётся не больше лимита, остальные на диске
+        assertTrue(segment.size() >= 15);
+        assertTrue(taskStore.findById(tasks.get(0).getId()).isPresent());
+        long disk = segment.diskReads();
+        taskStore.findById(tasks.get(24).getId());
+        assertEquals(disk, segment.diskReads());
+    }
+
+    @Test
+    void heapLimit_shouldOnlyCountCompletedTasksStillOnTheHeap() throws Exception {
+        segment.close();
+        segment = new ColdTaskSegment(directory, 10, Duration.ofHours(1), 2);
+        ((TaskRepository) taskStore).close();
+        taskStore = new TaskRepository(segment);
+
+        // Удалённые и снова открытые задачи освобождают место под лимитом
+        for (int i = 0; i < 10; i++) {
+            Task done = taskStore.saveTask(new Task(null, "Done " + i, true));
+            if (i % 2 == 0) {
+                taskStore.deleteById(done.getId());
+            } else {
+                taskStore.toggleById(done.getId());
+            }
+        }
+        TenantContext.runAs("other", () -> {
+            for (int i = 0; i < 5; i++) {
+                taskStore.saveTask(new Task(null, "Done elsewhere " + i, true));
+            }
+        });
+        for (int i = 0; i < 5; i++) {
+            taskStore.saveTask(new Task(null, "Done again " + i, true));
+        }
+        assertEquals(0, segment.size());
+
+        taskStore.saveTask(new Task(null, "One too many", true));
+        assertTrue(segment.size() > 0);
+    }
+
+    @Test
+    void segment_shouldCompactSupersededRecords() {
+        Task task = taskStore.saveTask(new Task(null, "Flip-flop", true));
+        for (int i = 0; i < 3_000; i++) {
+            taskStore.toggleById(task.getId());
+        }
+
+        ((TaskRepository) taskStore).compactColdTasks();
+
+        assertEquals(1, segment.size());
+        assertEquals(3_001, taskStore.findById(task.getId()).get().getVersion());
+        assertTrue(directory.resolve(ColdTaskSegment.SEGMENT_FILE).toFile().length() < 64 * 1024);
+    }
+
+    @Test
+    void remove_shouldLeaveTheFileToCompaction(@TempDir Path other) throws Exception {
+        try (ColdTaskSegment cold = new ColdTaskSegment(other, 0, Duration.ZERO, 2)) {
+            for (int i = 0; i < 3_000; i++) {
+                assertTrue(cold.publish(cold.append(new Task("task-" + i, "Spilled " + i, true, 1, "acme"))));
+            }
+            for (int i = 0; i < 2_900; i++) {
+                cold.remove("acme", "task-" + i);
+            }
+            long length = other.resolve(ColdTaskSegment.SEGMENT_FILE).toFile().length();
+
+            // Удаление только помечает записи, файл переписывается отдельно
+            assertTrue(cold.publish(cold.append(new Task("task-0", "Back again", true, 2, "acme"))));
+            assertTrue(other.resolve(ColdTaskSegment.SEGMENT_FILE).toFile().length() > length);
+            assertTrue(cold.compactIfNeeded());
+            assertFalse(cold.compactIfNeeded());
+
+            assertTrue(other.resolve(ColdTaskSegment.SEGMENT_FILE).toFile().length() < length / 10);
+            assertEquals(101, cold.size());
+            assertEquals("Back again", cold.find("acme", "task-0").getDescription());
+            assertEquals("Spilled 2999", cold.find("acme", "task-2999").getDescription());
+            assertNull(cold.find("acme", "task-1"));
+        }
+    }
+}
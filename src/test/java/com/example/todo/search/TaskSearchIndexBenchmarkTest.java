@@ -0,0 +1,74 @@
+package com.example.todo.search;
+
+import com.example.todo.model.Task;
+import com.example.todo.repository.TaskRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Запуск: mvn test -Dsurefire.excludedGroups= -Dgroups=benchmark
+@Tag("benchmark")
+class TaskSearchIndexBenchmarkTest {
+
+    private static final int TASK_COUNT = 1_000_000;
+    private static final int VOCABULARY_SIZE = 50_000;
+    private static final int WORDS_PER_TASK = 5;
+    private static final int QUERIES = 2_000;
+
+    private final TaskRepository taskRepository = new TaskRepository();
+
+    @AfterEach
+    void tearDown() {
+        for (Task task : taskRepository.findAll()) {
+            taskRepository.deleteById(task.getId());
+        }
+    }
+
+    @Test
+    void search_shouldAnswerInSingleDigitMillisecondsOverMillionTasks() {
+        Random random = new Random(7);
+        String[] words = new String[VOCABULARY_SIZE];
+        for (int i = 0; i < VOCABULARY_SIZE; i++) {
+            words[i] = randomWord(random);
+        }
+        TaskSearchIndex index = new TaskSearchIndex(taskRepository);
+        for (int i = 0; i < TASK_COUNT; i++) {
+            StringBuilder description = new StringBuilder();
+            for (int w = 0; w < WORDS_PER_TASK; w++) {
+                description.append(words[random.nextInt(VOCABULARY_SIZE)]).append(' ');
+            }
+            taskRepository.saveTask(new Task(null, description.toString(), false));
+        }
+
+        long[] latencies = new long[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            String query = i % 3 == 0
+                    ? words[random.nextInt(VOCABULARY_SIZE)].substring(0, 3)
+                    : words[random.nextInt(VOCABULARY_SIZE)] + " " + words[random.nextInt(VOCABULARY_SIZE)].substring(0, 2);
+            long started = System.nanoTime();
+            index.search(query, null, 20);
+            latencies[i] = System.nanoTime() - started;
+        }
+        Arrays.sort(latencies);
+
+        double p50 = latencies[QUERIES / 2] / 1_000_000.0;
+        double p99 = latencies[QUERIES * 99 / 100] / 1_000_000.0;
+        System.out.printf("Search over %,d tasks: p50 %.3f ms, p99 %.3f ms%n", TASK_COUNT, p50, p99);
+        assertTrue(p50 < 10, "p50 " + p50 + " ms");
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(latencies[QUERIES * 99 / 100]) < 10, "p99 " + p99 + " ms");
+    }
+
+    private static String randomWord(Random random) {
+        char[] word = new char[4 + random.nextInt(6)];
+        for (int i = 0; i < word.length; i++) {
+            word[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(word);
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.todo.search;
+
+import com.example.todo.model.Task;
+import com.example.todo.model.TaskPage;
+import com.example.todo.repository.TaskRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskSearchIndexTest {
+
+    private TaskRepository taskRepository;
+    private TaskSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        taskRepository = new TaskRepository();
+        clearRepository();
+        index = new TaskSearchIndex(taskRepository);
+
+        taskRepository.saveTask(new Task("1", "Buy milk and bread", false));
+        taskRepository.saveTask(new Task("2", "Buy a birthday present", true));
+        taskRepository.saveTask(new Task("3", "Call the plumber about the MILK-stained floor", false));
+    }
+
+    @AfterEach
+    void tearDown() {
+        taskRepository.removeListener(index);
+        clearRepository();
+    }
+
+    @Test
+    void search_shouldMatchCaseInsensitiveTokens() {
+        assertEquals(List.of("1", "3"), ids(index.search("Milk", null, 10)));
+    }
+
+    @Test
+    void search_shouldRequireEveryTerm() {
+        assertEquals(List.of("1"), ids(index.search("buy milk", null, 10)));
+    }
+
+    @Test
+    void search_shouldMatchPrefixesAndRankExactMatchesFirst() {
+        taskRepository.saveTask(new Task("4", "Birthday cake", false));
+        taskRepository.saveTask(new Task("5", "Birth certificate", false));
+
+        assertEquals(List.of("5", "2", "4"), ids(index.search("birth", null, 10)));
+    }
+
+    @Test
+    void search_shouldFollowUpdatesAndDeletes() {
+        taskRepository.saveTask(new Task("1", "Buy coffee", false));
+        taskRepository.deleteById("3");
+
+        assertTrue(index.search("milk", null, 10).getTasks().isEmpty());
+        assertEquals(List.of("1"), ids(index.search("coffee", null, 10)));
+    }
+
+    @Test
+    void search_shouldPaginateRankedResults() {
+        TaskPage first = index.search("buy", null, 1);
+        TaskPage second = index.search("buy", first.getNextCursor(), 1);
+
+        assertEquals(List.of("1"), ids(first));
+        assertEquals(List.of("2"), ids(second));
+        assertNull(second.getNextCursor());
+    }
+
+    @Test
+    void search_shouldReturnNothingForBlankQuery() {
+        assertTrue(index.search("  ", null, 10).getTasks().isEmpty());
+    }
+
+    @Test
+    void tokenize_shouldSplitOnPunctuationAndKeepUnicodeLetters() {
+        assertArrayEquals(new String[]{"купить", "молоко", "2", "литра"},
+                TaskSearchIndex.tokenize("Купить МОЛОКО, 2 литра!"));
+    }
+
+    private List<String> ids(TaskPage page) {
+        return page.getTasks().stream().map(Task::getId).collect(Collectors.toList());
+    }
+
+    private void clearRepository() {
+        for (Task task : taskRepository.findAll()) {
+            taskRepository.deleteById(task.getId());
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.todo.service;
+
+import com.example.todo.model.Task;
+import com.example.todo.repository.TaskRepository;
+import com.example.todo.search.TaskSearchIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReactiveTaskServiceTest {
+
+    private static final int TASK_COUNT = ReactiveTaskService.STREAM_PAGE_SIZE * 3 + 1;
+
+    private TaskRepository taskRepository;
+    private SimpleMeterRegistry meterRegistry;
+    private ReactiveTaskService reactiveTaskService;
+
+    @BeforeEach
+    void setUp() {
+        taskRepository = new TaskRepository();
+        meterRegistry = new SimpleMeterRegistry();
+        reactiveTaskService = new ReactiveTaskService(
+                new TaskService(taskRepository, new TaskSearchIndex(taskRepository), meterRegistry));
+
+        for (Task task : taskRepository.findAll()) {
+            taskRepository.deleteById(task.getId());
+        }
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < TASK_COUNT; i++) {
+            tasks.add(new Task(String.format("task-%04d", i), "Task " + i, i % 2 == 0));
+        }
+        taskRepository.saveAll(tasks);
+    }
+
+    @Test
+    void streamAll_shouldEmitEveryTaskInIdOrder() {
+        List<Task> streamed = reactiveTaskService.streamAll(Optional.empty()).collectList().block();
+
+        assertNotNull(streamed);
+        assertEquals(TASK_COUNT, streamed.size());
+        assertEquals("task-0000", streamed.get(0).getId());
+        assertEquals(String.format("task-%04d", TASK_COUNT - 1), streamed.get(TASK_COUNT - 1).getId());
+    }
+
+    @Test
+    void streamAll_shouldFilterByStatus() {
+        StepVerifier.create(reactiveTaskService.streamAll(Optional.of(true)))
+                .expectNextCount((TASK_COUNT + 1) / 2)
+                .verifyComplete();
+    }
+
+    @Test
+    void streamAll_shouldFetchPagesOnlyOnDemand() {
+        // Пока подписчик ничего не запросил, хранилище не читается
+        StepVerifier.create(reactiveTaskService.streamAll(Optional.empty()), 0)
+                .then(() -> assertEquals(0, pagesFetched()))
+                .thenRequest(1)
+                .expectNextCount(1)
+                .then(() -> assertEquals(1, pagesFetched()))
+                .thenRequest(ReactiveTaskService.STREAM_PAGE_SIZE)
+                .expectNextCount(ReactiveTaskService.STREAM_PAGE_SIZE)
+                .then(() -> assertEquals(2, pagesFetched()))
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void reads_shouldNotRunOnTheSubscribersThread() {
+        // Хранилище может блокировать, поэтому чтения уходят с потока event loop
+        String pageThread = reactiveTaskService.findPage(Optional.empty(), null, 10)
+                .map(page -> Thread.currentThread().getName()).block();
+        String taskThread = reactiveTaskService.findById("task-0000")
+                .map(task -> Thread.currentThread().getName()).block();
+        String streamThread = reactiveTaskService.streamAll(Optional.empty())
+                .map(task -> Thread.currentThread().getName()).blockFirst();
+
+        assertTrue(pageThread.startsWith("boundedElastic"), pageThread);
+        assertTrue(taskThread.startsWith("boundedElastic"), taskThread);
+        assertTrue(streamThread.startsWith("boundedElastic"), streamThread);
+    }
+
+    @Test
+    void toggleTaskStatus_shouldSignalErrorForUnknownTask() {
+        StepVerifier.create(reactiveTaskService.toggleTaskStatus("missing"))
+                .expectError(IllegalArgumentException.class)
+                .verify();
+    }
+
+    @Test
+    void removeTask_shouldCompleteEmptyOrEmitError() {
+        StepVerifier.create(reactiveTaskService.removeTask("task-0000")).verifyComplete();
+        StepVerifier.create(reactiveTaskService.removeTask("task-0001"))
+                .expectNext(TaskService.TASK_NOT_COMPLETED)
+                .verifyComplete();
+        StepVerifier.create(reactiveTaskService.removeTask("missing"))
+                .expectNext(TaskService.TASK_NOT_FOUND)
+                .verifyComplete();
+    }
+
+    private long pagesFetched() {
+        return meterRegistry.get(TaskService.OPERATION_TIMER).tag("operation", "findPage").timer().count();
+    }
+}
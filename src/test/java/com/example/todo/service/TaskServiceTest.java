@@ -1,12 +1,30 @@
 package com.example.todo.service;
 
 import com.example.todo.model.Task;
+import com.example.todo.model.TaskBatchResult;
+import com.example.todo.persistence.TaskJournal;
+import com.example.todo.repository.TaskCapacityExceededException;
 import com.example.todo.repository.TaskRepository;
+import com.example.todo.repository.TaskVersionConflictException;
+import com.example.todo.search.TaskSearchIndex;
+import com.example.todo.tenant.TenantContext;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -48,6 +66,21 @@ class TaskServiceTest {
         assertTrue(tasks.stream().anyMatch(t -> t.getId().equals("2")));
     }
 
+    @Test
+    void findByCompleted_shouldReturnTasksWithMatchingStatus() {
+        // Act
+        List<Task> completed = taskService.findByCompleted(true, null, 10).getTasks();
+        List<Task> pending = taskService.findByCompleted(false, null, 10).getTasks();
+
+        // Assert
+        assertEquals(1, completed.size());
+        assertEquals("1", completed.get(0).getId());
+        assertEquals(1, pending.size());
+        assertEquals("2", pending.get(0).getId());
+        assertEquals(1, taskService.countByCompleted(true));
+        assertEquals(1, taskService.countByCompleted(false));
+    }
+
     @Test
     void createTask_shouldSaveAndReturnTask() {
         // Arrange
@@ -157,4 +190,181 @@ class TaskServiceTest {
         assertTrue(result.isPresent());
         assertEquals("Task is not found", result.get());
     }
+
+    @Test
+    void createTask_shouldRejectAnIdThatIsAlreadyTaken() {
+        // Создание с занятым id не должно перезаписывать существующую задачу
+        TaskVersionConflictException conflict = assertThrows(TaskVersionConflictException.class,
+                () -> taskService.createTask(new Task("1", "Overwritten", false)));
+        assertThrows(TaskVersionConflictException.class, () -> taskService.createTasks(List.of(
+                new Task(null, "Batch A", false),
+                new Task("2", "Overwritten in a batch", true))));
+
+        assertEquals("Completed Task", conflict.getCurrent().orElseThrow().getDescription());
+        Task first = taskRepository.findById("1").orElseThrow();
+        assertEquals("Completed Task", first.getDescription());
+        assertTrue(first.isCompleted());
+        assertEquals(1, first.getVersion());
+        assertEquals("Uncompleted Task", taskRepository.findById("2").orElseThrow().getDescription());
+        assertEquals(2, taskRepository.count());
+    }
+
+    @Test
+    void createTasks_shouldSaveAllTasks() {
+        // Act
+        List<Task> created = taskService.createTasks(List.of(
+                new Task(null, "Batch A", false),
+                new Task(null, "Batch B", false)));
+
+        // Assert
+        assertEquals(2, created.size());
+        assertEquals(4, taskRepository.count());
+    }
+
+    @Test
+    void toggleAll_shouldReturnResultPerId() {
+        // Act
+        List<TaskBatchResult> results = taskService.toggleAll(List.of("1", "999", "2"));
+
+        // Assert
+        assertEquals(3, results.size());
+        assertTrue(results.get(0).isSuccess());
+        assertFalse(results.get(0).getTask().isCompleted());
+        assertFalse(results.get(1).isSuccess());
+        assertEquals("Task not found with id: 999", results.get(1).getError());
+        assertTrue(results.get(2).getTask().isCompleted());
+    }
+
+    @Test
+    void removeCompleted_shouldRemoveCompletedTasksOnly() {
+        // Act
+        int removed = taskService.removeCompleted();
+
+        // Assert
+        assertEquals(1, removed);
+        assertFalse(taskRepository.findById("1").isPresent());
+        assertTrue(taskRepository.findById("2").isPresent());
+    }
+
+    @Test
+    void ackWrites_shouldReturnOnlyOnceTheJournalHasTheChange(@TempDir Path directory) throws Exception {
+        // Группа собиралась бы минуту, если бы запись не ждала журнал
+        TaskJournal journal = new TaskJournal(taskRepository, directory, 60_000, 4096, 1_000_000);
+        journal.open();
+        TaskService durable = new TaskService(taskRepository, new TaskSearchIndex(taskRepository),
+                new SimpleMeterRegistry(), journal);
+        try {
+            long started = System.nanoTime();
+            durable.createTask(new Task("3", "Durable", false));
+            durable.toggleTaskStatus("3");
+
+            assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - started) < 30);
+            try (Stream<Path> files = Files.list(directory)) {
+                assertTrue(files.anyMatch(file -> file.toFile().length() > 0));
+            }
+        } finally {
+            journal.close();
+        }
+    }
+
+    @Test
+    void capacity_shouldRejectCreationsPastTheStoresLimit() {
+        // Лимит считается по всем тенантам
+        TaskRepository store = new TaskRepository(null, 0, 3);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        TaskService limited = new TaskService(store, new TaskSearchIndex(store), registry);
+        TenantContext.runAs("other", () -> limited.createTask(new Task("1", "Elsewhere", false)));
+
+        limited.createTask(new Task("3", "Fits", false));
+        assertThrows(TaskCapacityExceededException.class,
+                () -> limited.createTasks(List.of(new Task("4", "Too", false), new Task("5", "many", false))));
+        limited.updateTask(new Task("3", "Updates still fit", false));
+        limited.createTask(new Task("4", "Fits too", false));
+        assertThrows(TaskCapacityExceededException.class, () -> limited.updateTask(new Task("5", "Full", false)));
+
+        assertTrue(store.findById("5").isEmpty());
+        assertEquals(3, store.countAllTenants());
+        assertEquals(2, registry.get(TaskService.ERROR_COUNTER).tag("reason", "capacity_exceeded").counter().count());
+    }
+
+    @Test
+    void metrics_shouldRecordOperationsAndErrors() {
+        // Arrange
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        TaskService instrumented = new TaskService(taskRepository, new TaskSearchIndex(taskRepository), registry);
+
+        // Act
+        instrumented.toggleTaskStatus("1");
+        assertThrows(IllegalArgumentException.class, () -> instrumented.toggleTaskStatus("999"));
+        instrumented.removeTask("2");
+        instrumented.removeTask("999");
+
+        // Assert
+        assertEquals(2, registry.get(TaskService.OPERATION_TIMER).tag("operation", "toggle").timer().count());
+        assertEquals(2, registry.get(TaskService.OPERATION_TIMER).tag("operation", "remove").timer().count());
+        assertEquals(2, registry.get(TaskService.ERROR_COUNTER).tag("reason", "not_found").counter().count());
+        assertEquals(1, registry.get(TaskService.ERROR_COUNTER).tag("reason", "uncompleted_removal").counter().count());
+    }
+
+    @Test
+    void toggleTaskStatus_shouldNotLoseConcurrentToggles() throws Exception {
+        int threads = 8;
+        int togglesPerThread = 10_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        // Чётное общее число переключений должно вернуть задачу в исходное состояние
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < togglesPerThread; i++) {
+                    taskService.toggleTaskStatus("2");
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertFalse(taskRepository.findById("2").get().isCompleted());
+    }
+
+    @Test
+    void removeTask_shouldNotDeleteTaskToggledBackConcurrently() throws Exception {
+        int rounds = 2_000;
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        for (int i = 0; i < rounds; i++) {
+            taskRepository.saveTask(new Task("race", "Race Task", true));
+            CountDownLatch start = new CountDownLatch(1);
+            Future<Task> toggle = executor.submit(() -> {
+                start.await();
+                return taskService.toggleTaskStatus("race");
+            });
+            Future<Optional<String>> remove = executor.submit(() -> {
+                start.await();
+                return taskService.removeTask("race");
+            });
+            start.countDown();
+
+            Optional<String> removeResult = remove.get(10, TimeUnit.SECONDS);
+            try {
+                toggle.get(10, TimeUnit.SECONDS);
+                // Переключение прошло раньше удаления: задача стала незавершённой и должна остаться
+                assertEquals(Optional.of("You cannot remove uncompleted task!"), removeResult);
+                assertFalse(taskRepository.findById("race").get().isCompleted());
+            } catch (ExecutionException e) {
+                // Удаление прошло раньше переключения
+                assertTrue(e.getCause() instanceof IllegalArgumentException);
+                assertFalse(removeResult.isPresent());
+                assertFalse(taskRepository.findById("race").isPresent());
+            }
+        }
+        executor.shutdown();
+        taskRepository.deleteById("race");
+    }
 }